@@ -47,6 +47,7 @@ import com.expressui.core.view.menu.MainMenuBar;
 import com.expressui.core.view.menu.MenuBarNode;
 import com.expressui.core.view.page.Page;
 import com.expressui.core.view.page.PageConversation;
+import com.expressui.core.view.page.SearchPage;
 import com.expressui.core.view.util.MessageSource;
 import com.github.wolfie.sessionguard.SessionGuard;
 import com.vaadin.Application;
@@ -71,10 +72,7 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Main Vaadin Application, which is tied to the user's session. The user's MainApplication
@@ -140,6 +138,8 @@ public abstract class MainApplication extends Application implements ViewBean, H
 
     private PageConversation currentPageConversation;
 
+    private Map<String, PageConversation> pageConversations = new LinkedHashMap<String, PageConversation>();
+
     public abstract void configureLeftMenuBar(MenuBarNode rootNode);
 
     public abstract void configureRightMenuBar(MenuBarNode rootNode);
@@ -187,23 +187,108 @@ public abstract class MainApplication extends Application implements ViewBean, H
     }
 
     /**
-     * Begins a new page conversation.
+     * Begins a new page conversation. Any existing conversation with the same id is destroyed. If the number of live
+     * conversations exceeds the configured maximum, the least recently begun conversations are destroyed.
      *
      * @param id unique id of conversation
      * @return newly created page conversation
+     * @see ApplicationProperties#getMaxPageConversations()
      */
     public PageConversation beginPageConversation(String id) {
+        PageConversation existingPageConversation = pageConversations.remove(id);
+        if (existingPageConversation != null) {
+            existingPageConversation.destroy();
+        }
+
         currentPageConversation = new PageConversation(id);
+        pageConversations.put(id, currentPageConversation);
+
+        Iterator<PageConversation> liveConversations = pageConversations.values().iterator();
+        while (pageConversations.size() > Math.max(1, applicationProperties.getMaxPageConversations())
+                && liveConversations.hasNext()) {
+            PageConversation eldestPageConversation = liveConversations.next();
+            if (eldestPageConversation != currentPageConversation) {
+                liveConversations.remove();
+                eldestPageConversation.destroy();
+            }
+        }
 
         return currentPageConversation;
     }
 
     /**
-     * Ends the current page conversation. This doesn't need to be called, since a new page conversation automatically
-     * ends the previous conversation.
+     * Ends and destroys the current page conversation. This doesn't need to be called, since a new page conversation
+     * automatically ends the previous conversation.
      */
     public void endPageConversation() {
-        currentPageConversation = null;
+        if (currentPageConversation != null) {
+            endPageConversation(currentPageConversation);
+        }
+    }
+
+    /**
+     * Ends and destroys the given page conversation, running destruction callbacks of its beans.
+     *
+     * @param pageConversation page conversation to end
+     */
+    public void endPageConversation(PageConversation pageConversation) {
+        if (pageConversations.get(pageConversation.getId()) == pageConversation) {
+            pageConversations.remove(pageConversation.getId());
+        }
+        if (currentPageConversation == pageConversation) {
+            currentPageConversation = null;
+        }
+        pageConversation.destroy();
+    }
+
+    private void endPageConversationContaining(Object bean) {
+        for (PageConversation pageConversation : new ArrayList<PageConversation>(pageConversations.values())) {
+            if (pageConversation.containsBean(bean)) {
+                endPageConversation(pageConversation);
+            }
+        }
+    }
+
+    /**
+     * Gets a report of live page conversations and the beans they hold, as well as the number of items held by
+     * results in pages displayed in this session. Useful for diagnosing memory consumption per session.
+     *
+     * @return multi-line report
+     */
+    public String getPageConversationReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("Live page conversations: ").append(pageConversations.size());
+        for (PageConversation pageConversation : pageConversations.values()) {
+            report.append("\n  ").append(pageConversation.getId()).append(": ")
+                    .append(pageConversation.getKeys());
+        }
+
+        int displayedPages = 0;
+        int resultItems = 0;
+        Iterator<Component> components = pageLayoutTabSheet.getComponentIterator();
+        while (components.hasNext()) {
+            Component component = components.next();
+            displayedPages++;
+            if (component instanceof SearchPage && ((SearchPage) component).getResults().getResultsTable() != null) {
+                resultItems += ((SearchPage) component).getResults().getResultsTable().size();
+            }
+        }
+        report.append("\nPages in session: ").append(displayedPages);
+        report.append("\nResult items held: ").append(resultItems);
+
+        return report.toString();
+    }
+
+    /**
+     * Destroys all page conversations and closes this application, e.g. when user logs out or the session expires.
+     */
+    @Override
+    public void close() {
+        for (PageConversation pageConversation : new ArrayList<PageConversation>(pageConversations.values())) {
+            endPageConversation(pageConversation);
+        }
+
+        super.close();
     }
 
     @PostConstruct
@@ -438,6 +523,7 @@ public abstract class MainApplication extends Application implements ViewBean, H
             Scope scope = previousPage.getClass().getAnnotation(Scope.class);
             if (scope != null && scope.value().equals(Page.SCOPE_PAGE)) {
                 pageLayoutTabSheet.removeComponent(previousPage);
+                endPageConversationContaining(previousPage);
             }
         }
 
@@ -458,6 +544,10 @@ public abstract class MainApplication extends Application implements ViewBean, H
         }
 
         page.onDisplay();
+
+        if (log.isDebugEnabled()) {
+            log.debug(getPageConversationReport());
+        }
     }
 
     /**
@@ -487,6 +577,9 @@ public abstract class MainApplication extends Application implements ViewBean, H
      * Forces all page beans to be loaded. This is useful for admin managing security permissions. In this case,
      * all pages must be loaded so that security becomes aware of the components whose permissions
      * can be altered.
+     * <p/>
+     * Each page is loaded in its own throwaway page conversation, which is destroyed right after loading, so that
+     * live conversations, including that of the page currently being displayed, are left untouched.
      */
     public void loadAllPageBeans() {
         Map<String, String> typeLabels = labelRegistry.getTypeLabels();
@@ -500,9 +593,17 @@ public abstract class MainApplication extends Application implements ViewBean, H
             }
         }
 
+        PageConversation previousPageConversation = currentPageConversation;
         for (Class clazz : classes) {
             if (Page.class.isAssignableFrom(clazz)) {
-                loadPageBean(clazz);
+                PageConversation loadingPageConversation = new PageConversation(clazz.getName());
+                currentPageConversation = loadingPageConversation;
+                try {
+                    SpringApplicationContext.getBean(clazz);
+                } finally {
+                    currentPageConversation = previousPageConversation;
+                    loadingPageConversation.destroy();
+                }
             }
         }
     }
@@ -151,7 +151,7 @@ public abstract class EntityDao<T, ID extends Serializable> {
     }
 
     /**
-     * Persists a collection of entities
+     * Persists a collection of entities. {@link #prePersist(java.util.Collection)} is called first with all of them.
      *
      * @param entities the entities to persist
      */
@@ -160,6 +160,56 @@ public abstract class EntityDao<T, ID extends Serializable> {
         genericDao.persist(entities);
     }
 
+    /**
+     * Lifecycle method called before a collection of entities of this DAO's type is persisted, either by
+     * {@link #persist(java.util.Collection)} or by {@link GenericDao#persist(java.util.Collection)}. Override this
+     * to prepare all entities at once, for example to calculate derived values in one batch rather than in each
+     * entity's @PrePersist callback. Does nothing by default.
+     *
+     * @param entities entities that will be persisted, which may include entities that are already persistent
+     */
+    public void prePersist(Collection<T> entities) {
+    }
+
+    /**
+     * Removes a collection of managed or detached entities in one transaction.
+     *
+     * @param entities either attached or detached entities
+     * @see GenericDao#remove(java.util.Collection)
+     */
+    @Transactional
+    public void remove(Collection<T> entities) {
+        genericDao.remove(entities);
+    }
+
+    /**
+     * Removes all entities with given primary keys in one transaction, loading them in chunks and batching the
+     * DELETE statements.
+     *
+     * @param ids primary keys of entities to remove
+     * @return number of removed entities
+     * @see GenericDao#removeAll(Class, java.util.Collection)
+     */
+    @Transactional
+    public int removeAll(Collection<ID> ids) {
+        return genericDao.removeAll(getEntityType(), ids);
+    }
+
+    /**
+     * Updates the reference to a parent entity in all entities with given primary keys, using set-based
+     * UPDATE statements. Entity listeners are bypassed and managed instances are detached.
+     *
+     * @param ids              primary keys of entities to update
+     * @param parentPropertyId property in the entity that references the parent, must not be a collection
+     * @param parent           parent entity to reference or null to remove references
+     * @return number of updated entities
+     * @see GenericDao#updateParentReference(Class, java.util.Collection, String, Object)
+     */
+    @Transactional
+    public int updateParentReference(Collection<ID> ids, String parentPropertyId, Object parent) {
+        return genericDao.updateParentReference(getEntityType(), ids, parentPropertyId, parent);
+    }
+
     /**
      * Saves an entity, persisting it if new and merging it if already persistent.
      *
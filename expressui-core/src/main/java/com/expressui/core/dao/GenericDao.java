@@ -38,17 +38,23 @@
 package com.expressui.core.dao;
 
 import com.expressui.core.dao.query.EntityQuery;
+import com.expressui.core.dao.query.ResultCountCache;
 import com.expressui.core.dao.query.StructuredEntityQuery;
 import com.expressui.core.dao.query.ToManyRelationshipQuery;
+import com.expressui.core.entity.AuditableEntity;
 import com.expressui.core.entity.IdentifiableEntity;
 import com.expressui.core.entity.UserOwnedEntity;
 import com.expressui.core.entity.security.User;
+import com.expressui.core.security.SecurityService;
 import com.expressui.core.util.ReflectionUtil;
+import com.expressui.core.util.SpringApplicationContext;
 import com.expressui.core.util.assertion.Assert;
+import org.apache.commons.lang.ClassUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.spi.EntityKey;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -58,10 +64,22 @@ import javax.persistence.NoResultException;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A generic Data Access Object, which can be used directly without subclassing with type parameters.
@@ -74,11 +92,21 @@ import java.util.List;
 @Repository
 public class GenericDao {
 
+    /**
+     * Maximum number of primary keys bound in the IN clause of a single bulk statement.
+     */
+    public static final int BULK_CHUNK_SIZE = 500;
+
     // use @Resource rather than @PersistenceContext because we want to let Spring manage JPA and avoid interference
     // from JEE app servers.
     @Resource
     private EntityManager entityManager;
 
+    @Resource
+    private ResultCountCache resultCountCache;
+
+    private volatile Map<Class, EntityDao> entityDaosByType;
+
     /**
      * Gets the class type of an entity, which can be a proxy.
      *
@@ -155,18 +183,70 @@ public class GenericDao {
     }
 
     /**
-     * Persists a collection of entities
+     * Persists a collection of entities. For each type of entity that has an {@link EntityDao},
+     * {@link EntityDao#prePersist(java.util.Collection)} is called first with all entities of that type.
      *
      * @param entities the entities to persist
      * @param <T>      type of entity
      */
     @Transactional
     public <T> void persist(Collection<T> entities) {
+        Map<Class, List<T>> entitiesByType = new LinkedHashMap<Class, List<T>>();
+        for (T entity : entities) {
+            Class entityType = getEntityType(entity);
+            List<T> typedEntities = entitiesByType.get(entityType);
+            if (typedEntities == null) {
+                typedEntities = new ArrayList<T>();
+                entitiesByType.put(entityType, typedEntities);
+            }
+            typedEntities.add(entity);
+        }
+
+        for (Map.Entry<Class, List<T>> entry : entitiesByType.entrySet()) {
+            EntityDao entityDao = getEntityDao(entry.getKey());
+            if (entityDao != null) {
+                entityDao.prePersist(entry.getValue());
+            }
+        }
+
         for (T entity : entities) {
             persist(entity);
         }
     }
 
+    /**
+     * Gets the EntityDao bean declared for given entity type or one of its superclasses.
+     *
+     * @param entityType the type of entity
+     * @return entityDao for type or null if there is none
+     */
+    private EntityDao getEntityDao(Class entityType) {
+        Map<Class, EntityDao> entityDaos = entityDaosByType;
+        if (entityDaos == null) {
+            if (SpringApplicationContext.getApplicationContext() == null) {
+                return null;
+            }
+            entityDaos = new HashMap<Class, EntityDao>();
+            for (EntityDao entityDao : SpringApplicationContext.getBeansByType(EntityDao.class)) {
+                try {
+                    entityDaos.put(entityDao.getEntityType(), entityDao);
+                } catch (UnsupportedOperationException e) {
+                    // DAO does not declare its entity type
+                }
+            }
+            entityDaosByType = entityDaos;
+        }
+
+        for (Class type = entityType; type != null && !Object.class.equals(type); type = type.getSuperclass()) {
+            EntityDao entityDao = entityDaos.get(type);
+            if (entityDao != null) {
+                return entityDao;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Saves an entity, persisting it if new and merging it if already persistent.
      *
@@ -184,6 +264,155 @@ public class GenericDao {
         }
     }
 
+    /**
+     * Removes a collection of managed or detached entities in one transaction. Entities with a simple primary key
+     * are loaded in chunks of {@link #BULK_CHUNK_SIZE} by id, see {@link #removeAll(Class, java.util.Collection)},
+     * rather than one by one.
+     * <p/>
+     * Note that {@link #remove(Object)} is not invoked for each entity, so advice or overrides that must run
+     * whenever entities are removed, e.g. to clear references to them, should target this method as well.
+     *
+     * @param entities either attached or detached entities
+     * @param <T>      type of entity
+     */
+    @Transactional
+    public <T> void remove(Collection<T> entities) {
+        Map<Class, List<Serializable>> idsByType = new LinkedHashMap<Class, List<Serializable>>();
+        for (T entity : entities) {
+            Class entityType = getEntityType(entity);
+            if (hasSimpleId(entityType)) {
+                List<Serializable> ids = idsByType.get(entityType);
+                if (ids == null) {
+                    ids = new ArrayList<Serializable>();
+                    idsByType.put(entityType, ids);
+                }
+                ids.add(getId(entity));
+            } else {
+                remove(entity);
+            }
+        }
+
+        for (Map.Entry<Class, List<Serializable>> entry : idsByType.entrySet()) {
+            removeAll(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes all entities of given type with given primary keys in one transaction. Entities are loaded in chunks
+     * of {@link #BULK_CHUNK_SIZE} and then removed, so that cascades, orphan removal, collection tables and
+     * entity listeners are handled by JPA, while the DELETE statements are batched by JDBC according to
+     * hibernate.jdbc.batch_size.
+     *
+     * @param entityType the type of entity, which must have a simple primary key
+     * @param ids        primary keys of entities to remove
+     * @param <T>        type of entity
+     * @return number of removed entities
+     */
+    @Transactional
+    public <T> int removeAll(Class<? extends T> entityType, Collection<? extends Serializable> ids) {
+        int count = 0;
+        for (List<? extends Serializable> chunk : toChunks(ids)) {
+            Query query = getEntityManager().createQuery("SELECT e FROM " + entityType.getSimpleName()
+                    + " e WHERE e." + getIdAttributeName(entityType) + " IN (:ids)");
+            query.setParameter("ids", chunk);
+            for (Object entity : query.getResultList()) {
+                getEntityManager().remove(entity);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Updates the reference to a parent entity in all entities of given type with given primary keys, using one
+     * set-based UPDATE statement for every {@link #BULK_CHUNK_SIZE} entities. For auditable entities,
+     * lastModified, modifiedBy and version are updated as well.
+     * <p/>
+     * Like any bulk update, this bypasses entity listeners, such as @PreUpdate callbacks, and setters. Any instances
+     * of the updated entities that are managed by the current EntityManager are detached, since their state is no
+     * longer current. Callers holding detached instances must reload them, since their version is stale.
+     *
+     * @param entityType       the type of entity, which must have a simple primary key
+     * @param ids              primary keys of entities to update
+     * @param parentPropertyId property in the entity that references the parent, must not be a collection
+     * @param parent           parent entity to reference or null to remove references
+     * @param <T>              type of entity
+     * @return number of updated entities
+     */
+    @Transactional
+    public <T> int updateParentReference(Class<? extends T> entityType, Collection<? extends Serializable> ids,
+                                         String parentPropertyId, Object parent) {
+        boolean isAuditable = AuditableEntity.class.isAssignableFrom(entityType);
+        StringBuilder jpql = new StringBuilder("UPDATE " + entityType.getSimpleName() + " e SET e."
+                + parentPropertyId + " = :parent");
+        if (isAuditable) {
+            jpql.append(", e.lastModified = :lastModified, e.modifiedBy = :modifiedBy, e.version = e.version + 1");
+        }
+        jpql.append(" WHERE e.").append(getIdAttributeName(entityType)).append(" IN (:ids)");
+
+        Date now = new Date();
+        int count = 0;
+        for (List<? extends Serializable> chunk : toChunks(ids)) {
+            Query query = getEntityManager().createQuery(jpql.toString());
+            query.setParameter("parent", parent);
+            query.setParameter("ids", chunk);
+            if (isAuditable) {
+                query.setParameter("lastModified", now);
+                query.setParameter("modifiedBy", SecurityService.getCurrentLoginName());
+            }
+            count += query.executeUpdate();
+        }
+
+        detachAll(entityType, ids);
+        ResultCountCache.entityWritten(entityType);
+
+        return count;
+    }
+
+    private <T> void detachAll(Class<? extends T> entityType, Collection<? extends Serializable> ids) {
+        Set<Serializable> idSet = new HashSet<Serializable>(ids);
+        Session session = (Session) getEntityManager().getDelegate();
+        List<EntityKey> entityKeys = new ArrayList<EntityKey>(session.getStatistics().getEntityKeys());
+        for (EntityKey entityKey : entityKeys) {
+            if (idSet.contains(entityKey.getIdentifier())) {
+                Object entity = session.get(entityKey.getEntityName(), entityKey.getIdentifier());
+                if (entityType.isInstance(entity)) {
+                    session.evict(entity);
+                }
+            }
+        }
+    }
+
+    private boolean hasSimpleId(Class entityType) {
+        EntityType metaEntityType = getEntityManager().getMetamodel().entity(entityType);
+        return metaEntityType.hasSingleIdAttribute()
+                && metaEntityType.getIdType().getPersistenceType() == Type.PersistenceType.BASIC;
+    }
+
+    private String getIdAttributeName(Class entityType) {
+        Assert.PROGRAMMING.isTrue(hasSimpleId(entityType), entityType + " must have a simple primary key");
+        EntityType metaEntityType = getEntityManager().getMetamodel().entity(entityType);
+        return metaEntityType.getId(metaEntityType.getIdType().getJavaType()).getName();
+    }
+
+    private static <I> List<List<I>> toChunks(Collection<I> ids) {
+        List<List<I>> chunks = new ArrayList<List<I>>();
+        List<I> chunk = new ArrayList<I>(BULK_CHUNK_SIZE);
+        for (I id : ids) {
+            chunk.add(id);
+            if (chunk.size() == BULK_CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<I>(BULK_CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
     /**
      * Refreshes an entity.
      *
@@ -293,6 +522,63 @@ public class GenericDao {
         }
     }
 
+    /**
+     * Finds which of the given entities no longer exist in the database. Rather than finding every entity, the
+     * primary keys of all entities of the same type are checked with one query for every {@link #BULK_CHUNK_SIZE}
+     * entities. Entities found in the second-level cache, e.g. reference entities, are assumed to exist and
+     * entities without a simple primary key are re-found one by one.
+     *
+     * @param entities entities to check
+     * @param <T>      type of entities
+     * @return entities that have no primary key or no longer exist, empty if all exist
+     */
+    public <T> List<T> findNonexistent(Collection<? extends T> entities) {
+        List<T> nonexistentEntities = new ArrayList<T>();
+        Map<Class, Map<Serializable, List<T>>> entitiesByTypeAndId = new LinkedHashMap<Class, Map<Serializable, List<T>>>();
+        for (T entity : entities) {
+            Serializable id = getId(entity);
+            Class entityType = getEntityType(entity);
+            if (id == null) {
+                nonexistentEntities.add(entity);
+            } else if (getEntityManager().getEntityManagerFactory().getCache().contains(entityType, id)) {
+                continue;
+            } else if (hasSimpleId(entityType)) {
+                Map<Serializable, List<T>> entitiesById = entitiesByTypeAndId.get(entityType);
+                if (entitiesById == null) {
+                    entitiesById = new LinkedHashMap<Serializable, List<T>>();
+                    entitiesByTypeAndId.put(entityType, entitiesById);
+                }
+                List<T> entitiesWithId = entitiesById.get(id);
+                if (entitiesWithId == null) {
+                    entitiesWithId = new ArrayList<T>(1);
+                    entitiesById.put(id, entitiesWithId);
+                }
+                entitiesWithId.add(entity);
+            } else if (reFind(entity) == null) {
+                nonexistentEntities.add(entity);
+            }
+        }
+
+        for (Map.Entry<Class, Map<Serializable, List<T>>> entry : entitiesByTypeAndId.entrySet()) {
+            Class entityType = entry.getKey();
+            String idAttributeName = getIdAttributeName(entityType);
+            Set<Object> existingIds = new HashSet<Object>();
+            for (List<Serializable> chunk : toChunks(entry.getValue().keySet())) {
+                Query query = getEntityManager().createQuery("SELECT e." + idAttributeName + " FROM "
+                        + entityType.getSimpleName() + " e WHERE e." + idAttributeName + " IN (:ids)");
+                query.setParameter("ids", chunk);
+                existingIds.addAll(query.getResultList());
+            }
+            for (Map.Entry<Serializable, List<T>> entitiesWithId : entry.getValue().entrySet()) {
+                if (!existingIds.contains(entitiesWithId.getKey())) {
+                    nonexistentEntities.addAll(entitiesWithId.getValue());
+                }
+            }
+        }
+
+        return nonexistentEntities;
+    }
+
     /**
      * Finds an entity by natural id, or business key. This method only works for entities that have a single property
      * marked as @NaturalId. The benefit of calling this method is that Hibernate will try to look up the entity
@@ -406,6 +692,119 @@ public class GenericDao {
                 toManyRelationshipQuery).execute();
     }
 
+    /**
+     * Executes a structured entity query over all of its results, rather than a single page, passing results
+     * to handler in chunks. The persistence context is cleared after each chunk, so that memory use does not grow
+     * with the number of results.
+     *
+     * @param structuredEntityQuery query to execute
+     * @param chunkSize             number of entities fetched per chunk
+     * @param chunkHandler          handler invoked for each chunk, must not keep references to entities
+     * @param <T>                   type of entity
+     * @see #scroll(com.expressui.core.dao.query.StructuredEntityQuery, int)
+     */
+    public <T> void scroll(StructuredEntityQuery<T> structuredEntityQuery, int chunkSize,
+                           ChunkHandler<T> chunkHandler) {
+        ChunkIterator<T> chunkIterator = scroll(structuredEntityQuery, chunkSize);
+        try {
+            while (chunkIterator.hasNext()) {
+                chunkHandler.handle(chunkIterator.next());
+            }
+        } finally {
+            chunkIterator.close();
+        }
+    }
+
+    /**
+     * Executes a structured entity query over all of its results, rather than a single page, fetching one chunk
+     * of results each time the returned iterator is advanced. The persistence context is cleared before fetching
+     * each chunk after the first and when the iterator is closed. Chunks are fetched with keyset paging where the
+     * query's ordering allows it, so that later chunks do not get slower as the offset grows.
+     * <p/>
+     * Chunks are fetched through a copy of the query, see {@link StructuredEntityQuery#copy()}, so the query itself
+     * is left untouched and may still be executed for display while chunks are being fetched.
+     *
+     * @param structuredEntityQuery query to execute
+     * @param chunkSize             number of entities fetched per chunk
+     * @param <T>                   type of entity
+     * @return iterator over chunks, which should be closed when done
+     */
+    public <T> ChunkIterator<T> scroll(StructuredEntityQuery<T> structuredEntityQuery, int chunkSize) {
+        return new ChunkIterator<T>(structuredEntityQuery, chunkSize);
+    }
+
+    /**
+     * Handler for chunks of results.
+     *
+     * @param <T> type of entity
+     * @see GenericDao#scroll(com.expressui.core.dao.query.StructuredEntityQuery, int, GenericDao.ChunkHandler)
+     */
+    public static interface ChunkHandler<T> {
+
+        /**
+         * Handles a chunk of results.
+         *
+         * @param chunk entities in chunk
+         */
+        void handle(List<T> chunk);
+    }
+
+    /**
+     * Iterator over chunks of all results of a structured entity query.
+     *
+     * @param <T> type of entity
+     * @see GenericDao#scroll(com.expressui.core.dao.query.StructuredEntityQuery, int)
+     */
+    public class ChunkIterator<T> implements Iterator<List<T>> {
+
+        private StructuredEntityQuery<T> structuredEntityQuery;
+        private int chunkSize;
+        private List<T> lastChunk;
+
+        private ChunkIterator(StructuredEntityQuery<T> structuredEntityQuery, int chunkSize) {
+            this.structuredEntityQuery = structuredEntityQuery.copy();
+            this.structuredEntityQuery.setFirstResult(0);
+            this.structuredEntityQuery.setPageSize(chunkSize);
+            this.structuredEntityQuery.setResultCountLimit(null);
+            this.structuredEntityQuery.setKeysetPaging(true);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return lastChunk == null || (lastChunk.size() == chunkSize
+                    && structuredEntityQuery.getFirstResult() + chunkSize < structuredEntityQuery.getResultCount());
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            if (lastChunk != null) {
+                clear();
+                structuredEntityQuery.setFirstResult(structuredEntityQuery.getFirstResult() + chunkSize);
+            }
+
+            lastChunk = structuredEntityQuery.execute();
+
+            return lastChunk;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Clears the persistence context.
+         */
+        public void close() {
+            clear();
+        }
+    }
+
     private class StructuredQueryExecutor {
 
         private Class entityType;
@@ -426,17 +825,79 @@ public class GenericDao {
         }
 
         public List execute() {
-            List<Serializable> count = executeImpl(true);
-            structuredQuery.setResultCount((Long) count.get(0));
+            countResults();
 
             if (structuredQuery.getResultCount() > 0) {
-                List<Serializable> ids = executeImpl(false);
-                return findByIds(ids);
+                if (structuredQuery.isKeysetPaging() && structuredQuery.getOrderByPropertyId() != null) {
+                    return findByIds(executeKeysetImpl());
+                } else {
+                    return executeEntitiesImpl();
+                }
             } else {
                 return new ArrayList();
             }
         }
 
+        /**
+         * Sets the result count on the query, using a cached count if criteria have not changed and no entities
+         * of the queried type have been written since. If the query has a result count limit, first probes whether
+         * a result exists at position firstResult + limit, fetching at most a single id. If so, the count is not
+         * taken but set to firstResult + limit + 1 and flagged as estimated. Otherwise, fewer results match and
+         * they are counted exactly.
+         */
+        private void countResults() {
+            List<Object> fingerprint = null;
+            long writeGeneration = 0;
+            if (resultCountCache.isEnabled()) {
+                fingerprint = structuredQuery.buildCriteriaFingerprint();
+                Long cachedCount = resultCountCache.get(getEntityType(), fingerprint);
+                if (cachedCount != null) {
+                    structuredQuery.setResultCount(cachedCount);
+                    structuredQuery.setResultCountEstimated(false);
+                    return;
+                }
+                writeGeneration = resultCountCache.getWriteGeneration(getEntityType());
+            }
+
+            Long count;
+            boolean isEstimated = false;
+            Integer resultCountLimit = structuredQuery.getResultCountLimit();
+            if (resultCountLimit == null) {
+                count = (Long) executeImpl(true).get(0);
+            } else {
+                int maxCount = structuredQuery.getFirstResult() + resultCountLimit + 1;
+                if (hasResultAt(maxCount - 1)) {
+                    count = (long) maxCount;
+                    isEstimated = true;
+                } else {
+                    count = (Long) executeImpl(true).get(0);
+                }
+            }
+
+            structuredQuery.setResultCount(count);
+            structuredQuery.setResultCountEstimated(isEstimated);
+            if (fingerprint != null && !isEstimated) {
+                resultCountCache.put(fingerprint, count, writeGeneration);
+            }
+        }
+
+        private boolean hasResultAt(int position) {
+            CriteriaBuilder builder = getEntityManager().getCriteriaBuilder();
+            CriteriaQuery query = builder.createQuery();
+            Root rootEntity = query.from(getEntityType());
+            query.select(rootEntity.get("id"));
+
+            List<Predicate> criteria = structuredQuery.buildCriteria(builder, query, rootEntity);
+            query.where(builder.and(criteria.toArray(new Predicate[0])));
+
+            TypedQuery<Serializable> typedQuery = getEntityManager().createQuery(query);
+            structuredQuery.setParameters(typedQuery);
+            typedQuery.setFirstResult(position);
+            typedQuery.setMaxResults(1);
+
+            return !typedQuery.getResultList().isEmpty();
+        }
+
         private List<Serializable> executeImpl(boolean isCount) {
             CriteriaBuilder builder = getEntityManager().getCriteriaBuilder();
             CriteriaQuery query = builder.createQuery();
@@ -452,10 +913,7 @@ public class GenericDao {
             query.where(builder.and(criteria.toArray(new Predicate[0])));
 
             if (!isCount && structuredQuery.getOrderByPropertyId() != null) {
-                Path path = structuredQuery.buildOrderBy(rootEntity);
-                if (path == null) {
-                    path = rootEntity.get(structuredQuery.getOrderByPropertyId());
-                }
+                Path path = buildOrderByPath(rootEntity);
                 if (structuredQuery.getOrderDirection().equals(EntityQuery.OrderDirection.ASC)) {
                     query.orderBy(builder.asc(path));
                 } else {
@@ -474,6 +932,190 @@ public class GenericDao {
             return typedQuery.getResultList();
         }
 
+        /**
+         * Fetches entities of the current page in a single query, including fetch joins. This is only possible if
+         * the query has no to-many joins or fetches, which would multiply rows and break paging. Otherwise, falls
+         * back to fetching the ids of the current page and then fetching the entities by id.
+         */
+        private List executeEntitiesImpl() {
+            CriteriaBuilder builder = getEntityManager().getCriteriaBuilder();
+            CriteriaQuery query = builder.createQuery(getEntityType());
+            Root rootEntity = query.from(getEntityType());
+            query.select(rootEntity);
+
+            List<Predicate> criteria = structuredQuery.buildCriteria(builder, query, rootEntity);
+            query.where(builder.and(criteria.toArray(new Predicate[0])));
+
+            structuredQuery.addFetchJoins(rootEntity);
+
+            if (structuredQuery.getOrderByPropertyId() != null) {
+                Path path = buildOrderByPath(rootEntity);
+                if (structuredQuery.getOrderDirection().equals(EntityQuery.OrderDirection.ASC)) {
+                    query.orderBy(builder.asc(path));
+                } else {
+                    query.orderBy(builder.desc(path));
+                }
+            }
+
+            if (hasToManyJoin(rootEntity)) {
+                return findByIds(executeImpl(false));
+            }
+
+            TypedQuery typedQuery = getEntityManager().createQuery(query);
+            structuredQuery.setParameters(typedQuery);
+            typedQuery.setFirstResult(structuredQuery.getFirstResult());
+            typedQuery.setMaxResults(structuredQuery.getPageSize());
+
+            return typedQuery.getResultList();
+        }
+
+        private boolean hasToManyJoin(FetchParent fetchParent) {
+            for (Object fetch : fetchParent.getFetches()) {
+                if (((Fetch) fetch).getAttribute().isCollection() || hasToManyJoin((Fetch) fetch)) {
+                    return true;
+                }
+            }
+
+            if (fetchParent instanceof From) {
+                for (Object join : ((From) fetchParent).getJoins()) {
+                    if (((Join) join).getAttribute().isCollection() || hasToManyJoin((Join) join)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Fetches ids of the current page using keyset (seek) paging, i.e. WHERE (orderBy, id) > (?, ?), falling
+         * back to offset paging if the page cannot be reached by seeking. Also remembers the boundaries
+         * of the fetched page, so that the next or previous page can be reached by seeking.
+         */
+        private List<Serializable> executeKeysetImpl() {
+            CriteriaBuilder builder = getEntityManager().getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = builder.createQuery(Object[].class);
+            Root rootEntity = query.from(getEntityType());
+            Path orderByPath = buildOrderByPath(rootEntity);
+
+            if (!isKeysetComparable(rootEntity, orderByPath)) {
+                structuredQuery.forgetKeysetBoundaries();
+                return executeImpl(false);
+            }
+
+            Path idPath = rootEntity.get("id");
+            query.multiselect(orderByPath, idPath);
+
+            StructuredEntityQuery.KeysetSeek seek = structuredQuery.getKeysetSeek();
+            if (seek != null && seek.hasBoundary() && (seek.getOrderByValue() == null || seek.getId() == null)) {
+                seek = null;
+            }
+            boolean isReversed = seek != null && seek.isReversed();
+            boolean isAscending = structuredQuery.getOrderDirection().equals(EntityQuery.OrderDirection.ASC)
+                    ^ isReversed;
+
+            List<Predicate> criteria = structuredQuery.buildCriteria(builder, query, rootEntity);
+            if (seek != null && seek.hasBoundary()) {
+                ParameterExpression orderByValueExp = builder.parameter(orderByPath.getJavaType(), "keysetOrderByValue");
+                ParameterExpression idExp = builder.parameter(idPath.getJavaType(), "keysetId");
+                if (isAscending) {
+                    criteria.add(builder.or(builder.greaterThan(orderByPath, orderByValueExp),
+                            builder.and(builder.equal(orderByPath, orderByValueExp),
+                                    builder.greaterThan(idPath, idExp))));
+                } else {
+                    criteria.add(builder.or(builder.lessThan(orderByPath, orderByValueExp),
+                            builder.and(builder.equal(orderByPath, orderByValueExp),
+                                    builder.lessThan(idPath, idExp))));
+                }
+            }
+            query.where(builder.and(criteria.toArray(new Predicate[0])));
+
+            if (isAscending) {
+                query.orderBy(builder.asc(orderByPath), builder.asc(idPath));
+            } else {
+                query.orderBy(builder.desc(orderByPath), builder.desc(idPath));
+            }
+
+            TypedQuery<Object[]> typedQuery = getEntityManager().createQuery(query);
+            structuredQuery.setParameters((TypedQuery) typedQuery);
+
+            if (seek == null) {
+                typedQuery.setFirstResult(structuredQuery.getFirstResult());
+                typedQuery.setMaxResults(structuredQuery.getPageSize());
+            } else {
+                if (seek.hasBoundary()) {
+                    typedQuery.setParameter("keysetOrderByValue", seek.getOrderByValue());
+                    typedQuery.setParameter("keysetId", seek.getId());
+                }
+                if (seek.getDirection() == StructuredEntityQuery.SeekDirection.LAST) {
+                    int lastPageSize = structuredQuery.getResultCount().intValue() - structuredQuery.getFirstResult();
+                    typedQuery.setMaxResults(Math.max(lastPageSize, 1));
+                } else {
+                    typedQuery.setMaxResults(structuredQuery.getPageSize());
+                }
+            }
+
+            List<Object[]> rows = new ArrayList<Object[]>(typedQuery.getResultList());
+            if (isReversed) {
+                Collections.reverse(rows);
+            }
+
+            List<Serializable> ids = new ArrayList<Serializable>(rows.size());
+            for (Object[] row : rows) {
+                ids.add((Serializable) row[1]);
+            }
+
+            if (rows.isEmpty()) {
+                structuredQuery.forgetKeysetBoundaries();
+            } else {
+                Object[] firstRow = rows.get(0);
+                Object[] lastRow = rows.get(rows.size() - 1);
+                structuredQuery.rememberKeysetBoundaries(firstRow[0], (Serializable) firstRow[1],
+                        lastRow[0], (Serializable) lastRow[1]);
+            }
+
+            return ids;
+        }
+
+        /**
+         * Asks if the ORDER BY path can be used for seeking. It must be a non-nullable, comparable attribute and
+         * reached without any outer joins, otherwise rows with null values would be skipped.
+         */
+        private boolean isKeysetComparable(Root rootEntity, Path orderByPath) {
+            if (!(orderByPath.getModel() instanceof SingularAttribute)) {
+                return false;
+            }
+
+            SingularAttribute attribute = (SingularAttribute) orderByPath.getModel();
+            if (attribute.isOptional() && !attribute.isId()) {
+                return false;
+            }
+
+            Class javaType = ClassUtils.primitiveToWrapper(orderByPath.getJavaType());
+            if (!Comparable.class.isAssignableFrom(javaType)) {
+                return false;
+            }
+
+            Path parentPath = orderByPath.getParentPath();
+            while (parentPath != null && parentPath != rootEntity) {
+                if (!(parentPath instanceof Join) || !JoinType.INNER.equals(((Join) parentPath).getJoinType())) {
+                    return false;
+                }
+                parentPath = parentPath.getParentPath();
+            }
+
+            return true;
+        }
+
+        private Path buildOrderByPath(Root rootEntity) {
+            Path path = structuredQuery.buildOrderBy(rootEntity);
+            if (path == null) {
+                path = rootEntity.get(structuredQuery.getOrderByPropertyId());
+            }
+
+            return path;
+        }
+
         private List findByIds(List<Serializable> ids) {
             CriteriaBuilder builder = getEntityManager().getCriteriaBuilder();
             CriteriaQuery c = builder.createQuery(getEntityType());
@@ -489,14 +1131,19 @@ public class GenericDao {
             c.where(builder.and(criteria.toArray(new Predicate[0])));
 
             if (structuredQuery.getOrderByPropertyId() != null) {
-                Path path = structuredQuery.buildOrderBy(rootEntity);
-                if (path == null) {
-                    path = rootEntity.get(structuredQuery.getOrderByPropertyId());
-                }
+                Path path = buildOrderByPath(rootEntity);
                 if (structuredQuery.getOrderDirection().equals(EntityQuery.OrderDirection.ASC)) {
-                    c.orderBy(builder.asc(path));
+                    if (structuredQuery.isKeysetPaging()) {
+                        c.orderBy(builder.asc(path), builder.asc(rootEntity.get("id")));
+                    } else {
+                        c.orderBy(builder.asc(path));
+                    }
                 } else {
-                    c.orderBy(builder.desc(path));
+                    if (structuredQuery.isKeysetPaging()) {
+                        c.orderBy(builder.desc(path), builder.desc(rootEntity.get("id")));
+                    } else {
+                        c.orderBy(builder.desc(path));
+                    }
                 }
             }
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao;
+
+import com.expressui.core.dao.query.ResultCountCache;
+import com.expressui.core.util.ApplicationProperties;
+import com.expressui.core.util.SpringApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Application-wide cache of reference data, e.g. lists of countries, states or currencies used as select items.
+ * Every cached list is an immutable snapshot that is shared by all sessions, so that displaying forms does not
+ * query the database and sessions do not each hold their own copies of the same reference entities.
+ * <p/>
+ * A snapshot is reloaded once a transaction that writes any entity of its type, or of the other types its loader
+ * depends on, completes, which is detected by
+ * {@link com.expressui.core.entity.ReferenceEntity.ReferenceEntityListener}, or once it has expired. Since shared
+ * entities are detached and visible to all sessions, they must never be modified.
+ *
+ * @see ApplicationProperties#getReferenceDataCacheTimeToLive()
+ */
+@Component
+@SuppressWarnings("unchecked")
+public class ReferenceDataCache {
+
+    @Resource
+    private ReferenceEntityDao referenceEntityDao;
+
+    @Resource
+    private ResultCountCache resultCountCache;
+
+    @Resource
+    private ApplicationProperties applicationProperties;
+
+    private final ConcurrentMap<List<Object>, Snapshot> snapshots = new ConcurrentHashMap<List<Object>, Snapshot>();
+
+    /**
+     * Finds all entities of the given type, using the type-specific EntityDao if one exists, or otherwise
+     * ReferenceEntityDao.
+     *
+     * @param entityType type of entity
+     * @param <T>        type of entity
+     * @return immutable list of all entities, shared across sessions
+     */
+    public <T> List<T> findAll(final Class<T> entityType) {
+        return get(entityType, null, new Loader<T>() {
+            @Override
+            public List<T> load() {
+                EntityDao entityDao = SpringApplicationContext.getBeanByTypeAndGenericArgumentType(EntityDao.class,
+                        entityType);
+                if (entityDao != null) {
+                    return entityDao.findAll();
+                } else {
+                    return referenceEntityDao.findAll(entityType);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets a snapshot of entities, loading it if it is not cached or no longer valid.
+     *
+     * @param entityType      type of entity, writes to which invalidate the snapshot
+     * @param key             distinguishes different lists of the same type, e.g. states by country, may be null
+     * @param loader          loads entities, if not cached
+     * @param dependencyTypes other types of entity queried by the loader, writes to which also invalidate
+     *                        the snapshot
+     * @param <T>             type of entity
+     * @return immutable list of entities, shared across sessions
+     */
+    public <T> List<T> get(Class<T> entityType, Object key, Loader<T> loader, Class... dependencyTypes) {
+        List<Object> cacheKey = Arrays.<Object>asList(entityType, key);
+        Snapshot snapshot = snapshots.get(cacheKey);
+        if (snapshot == null || snapshot.writeGeneration != getWriteGeneration(entityType, dependencyTypes)
+                || System.currentTimeMillis() > snapshot.expiration) {
+            long writeGeneration = getWriteGeneration(entityType, dependencyTypes);
+            List<T> entities = Collections.unmodifiableList(new ArrayList<T>(loader.load()));
+            long expiration = System.currentTimeMillis()
+                    + applicationProperties.getReferenceDataCacheTimeToLive() * 1000L;
+            snapshot = new Snapshot(entities, writeGeneration, expiration);
+            snapshots.put(cacheKey, snapshot);
+        }
+
+        return (List<T>) snapshot.entities;
+    }
+
+    private long getWriteGeneration(Class entityType, Class... dependencyTypes) {
+        long writeGeneration = resultCountCache.getWriteGeneration(entityType);
+        for (Class dependencyType : dependencyTypes) {
+            writeGeneration += resultCountCache.getWriteGeneration(dependencyType);
+        }
+
+        return writeGeneration;
+    }
+
+    /**
+     * Clears all cached snapshots of the given type.
+     *
+     * @param entityType type of entity
+     */
+    public void clear(Class entityType) {
+        for (List<Object> cacheKey : snapshots.keySet()) {
+            if (entityType.equals(cacheKey.get(0))) {
+                snapshots.remove(cacheKey);
+            }
+        }
+    }
+
+    /**
+     * Clears all cached snapshots.
+     */
+    public void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * Loads entities to be cached.
+     *
+     * @param <T> type of entity
+     */
+    public static interface Loader<T> {
+        /**
+         * Loads entities from the database.
+         *
+         * @return loaded entities
+         */
+        List<T> load();
+    }
+
+    private static class Snapshot {
+        private final List entities;
+        private final long writeGeneration;
+        private final long expiration;
+
+        private Snapshot(List entities, long writeGeneration, long expiration) {
+            this.entities = entities;
+            this.writeGeneration = writeGeneration;
+            this.expiration = expiration;
+        }
+    }
+}
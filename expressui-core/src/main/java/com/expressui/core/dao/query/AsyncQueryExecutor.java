@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import com.expressui.core.security.SecurityService;
+import com.expressui.core.util.ApplicationProperties;
+import com.expressui.core.util.SessionRequestAttributes;
+import org.apache.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes entity queries in the background, on a pool of at most {@link ApplicationProperties#getAsyncQueryThreads()}
+ * threads shared application-wide. Each execution binds its own EntityManager to the worker thread, just like
+ * OpenEntityManagerInViewFilter does for requests, so that count and fetch share a persistence context and
+ * lazy properties can be initialized before the EntityManager is closed. The session and login name of the thread
+ * submitting a query are bound to the worker thread too, so that session-scoped beans, e.g. advice on query
+ * execution that restricts results for the current user, behave the same as in a request.
+ * <p/>
+ * An execution can be cancelled: if it is still queued, it never runs; if it is running, its current JDBC statement
+ * is cancelled and its results are discarded. Queries are executed while holding the query's monitor, so code that
+ * changes paging state of a query that may be executing should synchronize on the query too.
+ */
+@Component
+public class AsyncQueryExecutor {
+
+    private final Logger log = Logger.getLogger(getClass());
+
+    @Resource
+    private ApplicationProperties applicationProperties;
+
+    @Resource
+    private EntityManagerFactory entityManagerFactory;
+
+    private ThreadPoolExecutor queryExecutor;
+
+    @PostConstruct
+    public void postConstruct() {
+        int threads = applicationProperties.getAsyncQueryThreads();
+        queryExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "async-query-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        queryExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        queryExecutor.shutdownNow();
+    }
+
+    /**
+     * Executes the given query in the background and notifies the given callback, from the worker thread, once
+     * results have been found or execution failed. The callback is not notified if the execution is cancelled.
+     *
+     * @param entityQuery query to execute
+     * @param callback    callback to notify
+     * @param <T>         type of entity
+     * @return execution that can be cancelled
+     */
+    public <T> Execution<T> execute(EntityQuery<T> entityQuery, Callback<T> callback) {
+        Execution<T> execution = new Execution<T>(entityQuery, callback);
+        execution.future = queryExecutor.submit(execution);
+
+        return execution;
+    }
+
+    /**
+     * Gets the number of executions waiting for a free worker thread.
+     *
+     * @return number of queued executions
+     */
+    public int getQueuedCount() {
+        return queryExecutor.getQueue().size();
+    }
+
+    /**
+     * Callback notified when a query executed in the background completes.
+     *
+     * @param <T> type of entity
+     */
+    public static interface Callback<T> {
+
+        /**
+         * Invoked from the worker thread after the query has been executed. The EntityManager used for executing
+         * the query is still open, so lazy properties of the results may be initialized. The query's result count
+         * is set when this is invoked.
+         *
+         * @param results results of the query
+         */
+        void executed(List<T> results);
+
+        /**
+         * Invoked from the worker thread if executing the query failed.
+         *
+         * @param e exception thrown by the query
+         */
+        void failed(RuntimeException e);
+    }
+
+    /**
+     * Query execution that runs in the background and can be cancelled.
+     *
+     * @param <T> type of entity
+     */
+    public class Execution<T> implements Runnable {
+
+        private final EntityQuery<T> entityQuery;
+        private final Callback<T> callback;
+        private final SessionRequestAttributes sessionAttributes;
+        private final String loginName;
+
+        private volatile boolean isCancelled;
+        private volatile EntityManager entityManager;
+        private Future<?> future;
+
+        private Execution(EntityQuery<T> entityQuery, Callback<T> callback) {
+            this.entityQuery = entityQuery;
+            this.callback = callback;
+            sessionAttributes = SessionRequestAttributes.fromCurrentRequest();
+            loginName = SecurityService.getCurrentLoginName();
+        }
+
+        /**
+         * Asks if this execution has been cancelled.
+         *
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+
+        /**
+         * Cancels this execution. Removes it from the queue if it has not started yet, otherwise cancels the JDBC
+         * statement currently executing, if the database supports it.
+         */
+        public void cancel() {
+            isCancelled = true;
+            if (future != null && future.cancel(false)) {
+                queryExecutor.remove((Runnable) future);
+            }
+
+            EntityManager runningEntityManager = entityManager;
+            if (runningEntityManager != null) {
+                try {
+                    runningEntityManager.unwrap(Session.class).cancelQuery();
+                } catch (HibernateException e) {
+                    log.debug("Failed to cancel query: " + e.getMessage());
+                } catch (IllegalStateException e) {
+                    log.debug("Failed to cancel query: " + e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled) return;
+
+            if (sessionAttributes != null) {
+                RequestContextHolder.setRequestAttributes(sessionAttributes);
+            }
+            SecurityService.setCurrentLoginName(loginName);
+            EntityManager newEntityManager = entityManagerFactory.createEntityManager();
+            TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                    new EntityManagerHolder(newEntityManager));
+            try {
+                List<T> results;
+                synchronized (entityQuery) {
+                    if (isCancelled) return;
+
+                    entityManager = newEntityManager;
+                    try {
+                        results = entityQuery.execute();
+                    } finally {
+                        entityManager = null;
+                    }
+                }
+
+                if (!isCancelled) {
+                    callback.executed(results);
+                }
+            } catch (RuntimeException e) {
+                if (isCancelled) {
+                    log.debug("Cancelled query failed: " + e.getMessage());
+                } else {
+                    log.error("Failed to execute query " + entityQuery, e);
+                    callback.failed(e);
+                }
+            } finally {
+                TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+                EntityManagerFactoryUtils.closeEntityManager(newEntityManager);
+                SecurityService.removeCurrentLoginName();
+                RequestContextHolder.resetRequestAttributes();
+                if (sessionAttributes != null) {
+                    sessionAttributes.requestCompleted();
+                }
+            }
+        }
+    }
+}
@@ -38,18 +38,27 @@
 package com.expressui.core.dao.query;
 
 import com.expressui.core.dao.GenericDao;
+import com.expressui.core.entity.IdentifiableEntity;
 import com.expressui.core.util.ApplicationProperties;
 import com.expressui.core.util.ReflectionUtil;
 import com.expressui.core.util.assertion.Assert;
 import org.apache.commons.beanutils.PropertyUtils;
+import org.hibernate.Hibernate;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Query for finding entities, similar to a DAO but adds support for paging and sorting result sets.
@@ -64,7 +73,7 @@ import java.util.List;
  *
  * @param <T> type of entity being queried
  */
-public abstract class EntityQuery<T> {
+public abstract class EntityQuery<T> implements Cloneable {
 
     /**
      * Default ORDER BY property, uses lastModified descending so that the most recently modified entities
@@ -81,8 +90,11 @@ public abstract class EntityQuery<T> {
     private Integer pageSize;
     private Integer firstResult = 0;
     private Long resultCount = 0L;
+    private boolean resultCountEstimated = false;
+    private Integer resultCountLimit;
     private String orderByPropertyId;
     private OrderDirection orderDirection = OrderDirection.ASC;
+    private boolean keysetPaging = false;
 
     private PropertyDescriptor[] descriptors;
 
@@ -103,6 +115,7 @@ public abstract class EntityQuery<T> {
     public void postConstruct() {
         descriptors = PropertyUtils.getPropertyDescriptors(this);
         pageSize = applicationProperties.getDefaultPageSize();
+        resultCountLimit = applicationProperties.getDefaultResultCountLimit();
         clear();
     }
 
@@ -192,6 +205,46 @@ public abstract class EntityQuery<T> {
         this.resultCount = resultCount;
     }
 
+    /**
+     * Asks if the result count is only an estimate, because more results were found than the result count limit.
+     * In this case, the result count is one more than the number of results actually counted.
+     *
+     * @return true if result count is an estimate
+     * @see #getResultCountLimit()
+     */
+    public boolean isResultCountEstimated() {
+        return resultCountEstimated;
+    }
+
+    /**
+     * Sets whether the result count is only an estimate.
+     *
+     * @param resultCountEstimated true if result count is an estimate
+     */
+    public void setResultCountEstimated(boolean resultCountEstimated) {
+        this.resultCountEstimated = resultCountEstimated;
+    }
+
+    /**
+     * Gets the limit beyond which results are no longer counted. If set, queries that support it count at most
+     * firstResult + limit + 1 results, which avoids paying for a full count on huge tables. If more results
+     * are found, the result count is flagged as estimated. Default is null, meaning results are counted exactly.
+     *
+     * @return limit beyond which results are not counted, null if results are counted exactly
+     */
+    public Integer getResultCountLimit() {
+        return resultCountLimit;
+    }
+
+    /**
+     * Sets the limit beyond which results are no longer counted.
+     *
+     * @param resultCountLimit limit beyond which results are not counted, null to count results exactly
+     */
+    public void setResultCountLimit(Integer resultCountLimit) {
+        this.resultCountLimit = resultCountLimit;
+    }
+
     /**
      * Sets index to 0, first page in the result set.
      */
@@ -278,6 +331,28 @@ public abstract class EntityQuery<T> {
         this.orderDirection = orderDirection;
     }
 
+    /**
+     * Asks if keyset (seek) paging is enabled. If enabled, queries that support it fetch the next and previous pages
+     * by seeking past the ORDER BY value and id of the last or first row in the current page, rather than by
+     * skipping over rows with an offset. Default is false.
+     *
+     * @return true if keyset paging is enabled
+     * @see StructuredEntityQuery#getKeysetSeek()
+     */
+    public boolean isKeysetPaging() {
+        return keysetPaging;
+    }
+
+    /**
+     * Sets whether keyset (seek) paging is enabled. This is useful for very large result sets, where deep pages
+     * would otherwise require the database to scan and discard all preceding rows.
+     *
+     * @param keysetPaging true to enable keyset paging
+     */
+    public void setKeysetPaging(boolean keysetPaging) {
+        this.keysetPaging = keysetPaging;
+    }
+
     /**
      * Clear this query so that all filters (query parameters) and sort-criteria are removed (except for defaults).
      * The method uses reflection to clear any filters defined as bean properties by subclasses. Once cleared,
@@ -289,10 +364,7 @@ public abstract class EntityQuery<T> {
         try {
             for (PropertyDescriptor descriptor : descriptors) {
                 Method writeMethod = descriptor.getWriteMethod();
-                Method readMethod = descriptor.getReadMethod();
-                if (readMethod != null && writeMethod != null
-                        && !writeMethod.getDeclaringClass().equals(EntityQuery.class)
-                        && !writeMethod.getDeclaringClass().equals(Object.class)) {
+                if (isCriteriaProperty(descriptor)) {
                     Class type = descriptor.getPropertyType();
                     if (type.isPrimitive() && !type.isArray()) {
                         if (ReflectionUtil.isNumberType(type)) {
@@ -314,6 +386,104 @@ public abstract class EntityQuery<T> {
         initializeDefaults();
     }
 
+    /**
+     * Creates a copy of this query with the same criteria, ordering and paging, which can be executed and paged
+     * independently of this query. Collection-valued query parameters are copied, so that later changes to this
+     * query's criteria do not affect the copy.
+     *
+     * @return copy of this query
+     */
+    @SuppressWarnings("unchecked")
+    public EntityQuery<T> copy() {
+        EntityQuery<T> copy = null;
+        try {
+            copy = (EntityQuery<T>) clone();
+            for (PropertyDescriptor descriptor : descriptors) {
+                if (isCriteriaProperty(descriptor)) {
+                    Object value = descriptor.getReadMethod().invoke(this);
+                    Class type = descriptor.getPropertyType();
+                    if (value instanceof Set && type.isAssignableFrom(LinkedHashSet.class)) {
+                        descriptor.getWriteMethod().invoke(copy, new LinkedHashSet((Set) value));
+                    } else if (value instanceof List && type.isAssignableFrom(ArrayList.class)) {
+                        descriptor.getWriteMethod().invoke(copy, new ArrayList((List) value));
+                    }
+                }
+            }
+        } catch (CloneNotSupportedException e) {
+            Assert.PROGRAMMING.fail(e);
+        } catch (IllegalAccessException e) {
+            Assert.PROGRAMMING.fail(e);
+        } catch (InvocationTargetException e) {
+            Assert.PROGRAMMING.fail(e);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Builds a fingerprint of this query's criteria, consisting of the query class, the entity type and the values
+     * of all bean properties defined by subclasses as query parameters. Two queries with equal fingerprints
+     * match the same results, which allows result counts to be cached.
+     * <p/>
+     * Since fingerprints outlive this query and are shared across sessions, values are snapshotted: collections and
+     * dates are copied and entities are represented by their type and id, so that later changes to criteria or
+     * to session-bound entities do not affect fingerprints already in use.
+     *
+     * @return list of values that can be compared with equals and used as a hash key
+     * @see ResultCountCache
+     */
+    public List<Object> buildCriteriaFingerprint() {
+        List<Object> fingerprint = new ArrayList<Object>();
+        fingerprint.add(getClass());
+        fingerprint.add(getEntityType());
+        try {
+            for (PropertyDescriptor descriptor : descriptors) {
+                if (isCriteriaProperty(descriptor)) {
+                    fingerprint.add(descriptor.getName());
+                    fingerprint.add(snapshotCriteriaValue(descriptor.getReadMethod().invoke(this)));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            Assert.PROGRAMMING.fail(e);
+        } catch (InvocationTargetException e) {
+            Assert.PROGRAMMING.fail(e);
+        }
+
+        return fingerprint;
+    }
+
+    private static Object snapshotCriteriaValue(Object value) {
+        if (value instanceof IdentifiableEntity) {
+            return Collections.unmodifiableList(Arrays.<Object>asList(Hibernate.getClass(value),
+                    ((IdentifiableEntity) value).getId()));
+        } else if (value instanceof Set) {
+            Set<Object> snapshot = new HashSet<Object>();
+            for (Object element : (Set) value) {
+                snapshot.add(snapshotCriteriaValue(element));
+            }
+            return Collections.unmodifiableSet(snapshot);
+        } else if (value instanceof Collection) {
+            List<Object> snapshot = new ArrayList<Object>();
+            for (Object element : (Collection) value) {
+                snapshot.add(snapshotCriteriaValue(element));
+            }
+            return Collections.unmodifiableList(snapshot);
+        } else if (value instanceof Date) {
+            return ((Date) value).clone();
+        } else {
+            return value;
+        }
+    }
+
+    private boolean isCriteriaProperty(PropertyDescriptor descriptor) {
+        Method writeMethod = descriptor.getWriteMethod();
+        Method readMethod = descriptor.getReadMethod();
+
+        return readMethod != null && writeMethod != null
+                && !writeMethod.getDeclaringClass().equals(EntityQuery.class)
+                && !writeMethod.getDeclaringClass().equals(Object.class);
+    }
+
     /**
      * Initializes any default filters and order-by property and direction. These filters are always applied by default
      * when no search criteria have been applied or after {@link #clear()} has been called.
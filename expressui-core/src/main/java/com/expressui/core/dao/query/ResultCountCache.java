@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import com.expressui.core.util.ApplicationProperties;
+import com.expressui.core.util.TransactionUtil;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide cache of result counts for structured queries, so that paging and sorting through results
+ * does not re-execute the COUNT query when query criteria have not changed. Counts are keyed by a fingerprint
+ * of the query criteria, see {@link EntityQuery#buildCriteriaFingerprint()}.
+ * <p/>
+ * A cached count is invalidated once a transaction that writes any entity of the queried type completes, which
+ * is detected by {@link com.expressui.core.entity.AuditableEntity.WritableEntityListener}. Since criteria may also
+ * depend on related entities, counts also expire after a configurable time to live.
+ *
+ * @see ApplicationProperties#getResultCountCacheSize()
+ * @see ApplicationProperties#getResultCountCacheTimeToLive()
+ */
+@Component
+public class ResultCountCache {
+
+    private static final ConcurrentMap<Class, AtomicLong> writeGenerations = new ConcurrentHashMap<Class, AtomicLong>();
+
+    @Resource
+    private ApplicationProperties applicationProperties;
+
+    private Map<List<Object>, CachedCount> cachedCounts;
+
+    /**
+     * Lifecycle method called after this bean has been constructed.
+     */
+    @PostConstruct
+    public void postConstruct() {
+        final int maxSize = applicationProperties.getResultCountCacheSize();
+        cachedCounts = Collections.synchronizedMap(new LinkedHashMap<List<Object>, CachedCount>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedCount> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Asks if caching is enabled, i.e. if the configured cache size is greater than 0.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return applicationProperties.getResultCountCacheSize() > 0;
+    }
+
+    /**
+     * Gets the current write generation for an entity type, which is incremented every time an entity of the given
+     * type or any subtype is written. This should be read before executing a count, so that a write that
+     * occurs while counting invalidates the count.
+     *
+     * @param entityType type of entity
+     * @return current write generation
+     */
+    public long getWriteGeneration(Class entityType) {
+        AtomicLong generation = writeGenerations.get(entityType);
+        return generation == null ? 0 : generation.get();
+    }
+
+    /**
+     * Gets a cached count.
+     *
+     * @param entityType  type of entity being counted
+     * @param fingerprint fingerprint of the query criteria
+     * @return cached count or null if none is cached or if it has been invalidated
+     */
+    public Long get(Class entityType, List<Object> fingerprint) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        CachedCount cachedCount = cachedCounts.get(fingerprint);
+        if (cachedCount == null) {
+            return null;
+        } else if (cachedCount.writeGeneration != getWriteGeneration(entityType)
+                || System.currentTimeMillis() > cachedCount.expiration) {
+            cachedCounts.remove(fingerprint);
+            return null;
+        } else {
+            return cachedCount.count;
+        }
+    }
+
+    /**
+     * Caches a count.
+     *
+     * @param fingerprint     fingerprint of the query criteria
+     * @param count           count to cache
+     * @param writeGeneration write generation of the entity type, read before the count was executed
+     */
+    public void put(List<Object> fingerprint, Long count, long writeGeneration) {
+        if (isEnabled()) {
+            long expiration = System.currentTimeMillis() + applicationProperties.getResultCountCacheTimeToLive() * 1000L;
+            cachedCounts.put(fingerprint, new CachedCount(count, writeGeneration, expiration));
+        }
+    }
+
+    /**
+     * Clears all cached counts.
+     */
+    public void clear() {
+        cachedCounts.clear();
+    }
+
+    /**
+     * Invalidates cached counts for the given type of entity and all its supertypes, by incrementing their
+     * write generations. Called whenever an entity is persisted, updated or removed. Within a transaction,
+     * write generations are incremented once the transaction completes, so that counts executed before commit
+     * are not cached as current.
+     *
+     * @param entityType type of entity written
+     */
+    public static void entityWritten(Class entityType) {
+        TransactionUtil.afterCompletion(new IncrementWriteGenerations(entityType));
+    }
+
+    private static void incrementWriteGenerations(Class entityType) {
+        for (Class type = entityType; type != null && !Object.class.equals(type); type = type.getSuperclass()) {
+            AtomicLong generation = writeGenerations.get(type);
+            if (generation == null) {
+                AtomicLong newGeneration = new AtomicLong();
+                generation = writeGenerations.putIfAbsent(type, newGeneration);
+                if (generation == null) {
+                    generation = newGeneration;
+                }
+            }
+            generation.incrementAndGet();
+        }
+    }
+
+    private static class IncrementWriteGenerations implements Runnable {
+        private Class entityType;
+
+        private IncrementWriteGenerations(Class entityType) {
+            this.entityType = entityType;
+        }
+
+        @Override
+        public void run() {
+            incrementWriteGenerations(entityType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IncrementWriteGenerations
+                    && entityType.equals(((IncrementWriteGenerations) o).entityType);
+        }
+
+        @Override
+        public int hashCode() {
+            return entityType.hashCode();
+        }
+    }
+
+    private static class CachedCount {
+        private Long count;
+        private long writeGeneration;
+        private long expiration;
+
+        private CachedCount(Long count, long writeGeneration, long expiration) {
+            this.count = count;
+            this.writeGeneration = writeGeneration;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -37,6 +37,7 @@
 
 package com.expressui.core.dao.query;
 
+import javax.annotation.Resource;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.io.Serializable;
@@ -58,7 +59,10 @@ import java.util.List;
  * A StructuredEntityQuery works around this limitation by breaking the query into 3 stages:
  * <ol><li>Execute query and get count of all results</li><li>Execute query and fetch only the primary keys of the
  * current page</li><li>Fetch records matching previously found primary keys but with added fetch-join clauses</li></ol>
- * This approach essentially breaks paging apart from fetching nested entities.
+ * This approach essentially breaks paging apart from fetching nested entities. If the query has no to-many joins or
+ * fetch-joins, which would multiply rows, stages 2 and 3 are combined into a single query, since paging then works
+ * as expected. Result counts are cached until criteria change or entities of the queried type are written,
+ * so paging through results usually only costs a single query.
  * <p/>
  * <strong>Design Hint:</strong> Annotate JPA properties using a lazy rather than an eager fetch strategy and override
  * addFetchJoins to specify any nested entities whose properties are referenced in the results. This design approach
@@ -72,12 +76,26 @@ import java.util.List;
  * parameters and sort criteria. Simple string-based JPQL or HQL queries initially look easier to read but become
  * messy once you have to restructure them dynamically to handle different query parameters, sort criteria as well as
  * paging and join strategies.
+ * <p/>
+ * For very large result sets, keyset (seek) paging can be enabled with {@link #setKeysetPaging(boolean)}. Instead of
+ * skipping over rows with an offset, the next and previous pages are fetched by seeking past the ORDER BY value and id
+ * of the rows at the boundaries of the current page, so that deep pages cost about as much as the first one.
+ * Keyset paging only applies when sorting on a non-nullable, comparable property; otherwise offset paging is used.
+ * <p/>
+ * Case-insensitive "contains" criteria, i.e. LIKE '%text%', always scan the whole table. For properties annotated
+ * with {@link com.expressui.core.entity.textindex.Searchable}, buildCriteria implementations should add the predicate
+ * returned by {@link #buildTextSearch}, which narrows candidates down using the trigram {@link TextIndex}.
  *
  * @param <T> type of entity being queried
  * @see com.expressui.core.dao.EntityDao#execute(StructuredEntityQuery)
  */
 public abstract class StructuredEntityQuery<T> extends EntityQuery<T> {
 
+    private KeysetBoundaries keysetBoundaries;
+
+    @Resource
+    private TextIndex textIndex;
+
     /**
      * Builds query criteria.
      *
@@ -116,6 +134,24 @@ public abstract class StructuredEntityQuery<T> extends EntityQuery<T> {
     public void addFetchJoins(Root<T> rootEntity) {
     }
 
+    /**
+     * Builds a predicate that uses the text index to narrow down entities whose property contains the given text.
+     * Since the index only finds candidates, this predicate must be added in addition to the LIKE criterion on the
+     * property, not instead of it.
+     *
+     * @param builder    criteria builder passed to buildCriteria
+     * @param query      query passed to buildCriteria
+     * @param path       root entity or path to a related entity, whose property is searched
+     * @param propertyId property annotated with {@link com.expressui.core.entity.textindex.Searchable}
+     * @param text       search text
+     * @return predicate or null if the index is disabled or not yet complete for the type, the property is not
+     *         searchable or the text is too short
+     */
+    protected Predicate buildTextSearch(CriteriaBuilder builder, AbstractQuery<?> query, Path<?> path,
+                                        String propertyId, String text) {
+        return textIndex.buildContainsPredicate(builder, query, path, propertyId, text);
+    }
+
     /**
      * Executes this query.
      *
@@ -125,4 +161,190 @@ public abstract class StructuredEntityQuery<T> extends EntityQuery<T> {
     public List<T> execute() {
         return genericDao.execute(this);
     }
+
+    /**
+     * Creates a copy of this query, see {@link EntityQuery#copy()}. The copy does not share keyset boundaries with
+     * this query, so it starts with offset paging until it fetches a page.
+     *
+     * @return copy of this query
+     */
+    @Override
+    public StructuredEntityQuery<T> copy() {
+        StructuredEntityQuery<T> copy = (StructuredEntityQuery<T>) super.copy();
+        copy.keysetBoundaries = null;
+
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        keysetBoundaries = null;
+        super.clear();
+    }
+
+    /**
+     * Gets the keyset seek for fetching the current page, derived from the current first result, result count and
+     * the boundaries of the previously fetched page. The first and last pages never need boundaries. The next and
+     * previous pages are reached by seeking past the last or first row of the previous page.
+     *
+     * @return keyset seek, or null if keyset paging is disabled or if the current page cannot be reached by seeking,
+     *         for example after jumping to an arbitrary first result, in which case offset paging should be used
+     */
+    public KeysetSeek getKeysetSeek() {
+        if (!isKeysetPaging() || getOrderByPropertyId() == null) {
+            return null;
+        }
+
+        int firstResult = getFirstResult();
+        int pageSize = getPageSize();
+
+        if (firstResult == 0) {
+            return new KeysetSeek(SeekDirection.FIRST, null, null);
+        } else if (!isResultCountEstimated() && firstResult + pageSize >= getResultCount()) {
+            return new KeysetSeek(SeekDirection.LAST, null, null);
+        } else if (keysetBoundaries != null && keysetBoundaries.isSameOrdering(this)) {
+            if (firstResult == keysetBoundaries.firstResult + pageSize) {
+                return new KeysetSeek(SeekDirection.AFTER, keysetBoundaries.lastOrderByValue,
+                        keysetBoundaries.lastId);
+            } else if (firstResult == keysetBoundaries.firstResult - pageSize) {
+                return new KeysetSeek(SeekDirection.BEFORE, keysetBoundaries.firstOrderByValue,
+                        keysetBoundaries.firstId);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remembers the ORDER BY values and ids of the first and last rows of the page just fetched, so that the
+     * next or previous page can be fetched by seeking.
+     *
+     * @param firstOrderByValue ORDER BY value of first row in the page
+     * @param firstId           id of first row in the page
+     * @param lastOrderByValue  ORDER BY value of last row in the page
+     * @param lastId            id of last row in the page
+     */
+    public void rememberKeysetBoundaries(Object firstOrderByValue, Serializable firstId,
+                                         Object lastOrderByValue, Serializable lastId) {
+        keysetBoundaries = new KeysetBoundaries(this, firstOrderByValue, firstId, lastOrderByValue, lastId);
+    }
+
+    /**
+     * Forgets the boundaries of the previously fetched page, so that offset paging is used until a page
+     * is fetched again.
+     */
+    public void forgetKeysetBoundaries() {
+        keysetBoundaries = null;
+    }
+
+    /**
+     * Direction in which to seek when fetching a page with keyset paging.
+     */
+    public enum SeekDirection {
+        /**
+         * First page, no seek predicate needed
+         */
+        FIRST,
+        /**
+         * Rows after the given ORDER BY value and id
+         */
+        AFTER,
+        /**
+         * Rows before the given ORDER BY value and id, fetched in reverse order
+         */
+        BEFORE,
+        /**
+         * Last page, fetched in reverse order with no seek predicate
+         */
+        LAST
+    }
+
+    /**
+     * Describes how to fetch a page with keyset paging: the direction and the ORDER BY value and id to seek past.
+     */
+    public static class KeysetSeek {
+        private SeekDirection direction;
+        private Object orderByValue;
+        private Serializable id;
+
+        public KeysetSeek(SeekDirection direction, Object orderByValue, Serializable id) {
+            this.direction = direction;
+            this.orderByValue = orderByValue;
+            this.id = id;
+        }
+
+        /**
+         * Gets the direction to seek in.
+         *
+         * @return seek direction
+         */
+        public SeekDirection getDirection() {
+            return direction;
+        }
+
+        /**
+         * Gets the ORDER BY value to seek past.
+         *
+         * @return ORDER BY value, null if direction is FIRST or LAST
+         */
+        public Object getOrderByValue() {
+            return orderByValue;
+        }
+
+        /**
+         * Gets the id to seek past, used to break ties between rows with the same ORDER BY value.
+         *
+         * @return id, null if direction is FIRST or LAST
+         */
+        public Serializable getId() {
+            return id;
+        }
+
+        /**
+         * Asks if this seek has a boundary row to seek past.
+         *
+         * @return true if direction is AFTER or BEFORE
+         */
+        public boolean hasBoundary() {
+            return direction == SeekDirection.AFTER || direction == SeekDirection.BEFORE;
+        }
+
+        /**
+         * Asks if rows must be fetched in reverse order and then reversed again in memory.
+         *
+         * @return true if direction is BEFORE or LAST
+         */
+        public boolean isReversed() {
+            return direction == SeekDirection.BEFORE || direction == SeekDirection.LAST;
+        }
+    }
+
+    private static class KeysetBoundaries {
+        private String orderByPropertyId;
+        private OrderDirection orderDirection;
+        private int pageSize;
+        private int firstResult;
+        private Object firstOrderByValue;
+        private Serializable firstId;
+        private Object lastOrderByValue;
+        private Serializable lastId;
+
+        private KeysetBoundaries(StructuredEntityQuery query, Object firstOrderByValue, Serializable firstId,
+                                 Object lastOrderByValue, Serializable lastId) {
+            orderByPropertyId = query.getOrderByPropertyId();
+            orderDirection = query.getOrderDirection();
+            pageSize = query.getPageSize();
+            firstResult = query.getFirstResult();
+            this.firstOrderByValue = firstOrderByValue;
+            this.firstId = firstId;
+            this.lastOrderByValue = lastOrderByValue;
+            this.lastId = lastId;
+        }
+
+        private boolean isSameOrdering(StructuredEntityQuery query) {
+            return orderByPropertyId.equals(query.getOrderByPropertyId())
+                    && orderDirection.equals(query.getOrderDirection())
+                    && pageSize == query.getPageSize();
+        }
+    }
 }
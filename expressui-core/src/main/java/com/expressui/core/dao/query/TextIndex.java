@@ -0,0 +1,592 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import com.expressui.core.entity.WritableEntity;
+import com.expressui.core.entity.textindex.Searchable;
+import com.expressui.core.entity.textindex.TextIndexEntry;
+import com.expressui.core.util.BeanPropertyType;
+import com.expressui.core.util.SpringApplicationContext;
+import org.apache.log4j.Logger;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.persistence.*;
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.EntityType;
+import java.beans.PropertyDescriptor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Trigram index for speeding up case-insensitive "contains" searches on String properties annotated with
+ * {@link Searchable}. A LIKE '%text%' criterion cannot use a B-tree index and always scans the whole table.
+ * Instead, every searchable value is broken into its distinct upper-case trigrams, which are stored as
+ * {@link TextIndexEntry} rows, so that a search can first narrow candidates down to entities whose values
+ * contain all the trigrams of the search text, using an index.
+ * <p/>
+ * The index is maintained by {@link Listener} whenever a {@link WritableEntity} is persisted, updated or removed.
+ * Changes are collected during the transaction and written to the index in a separate transaction after commit,
+ * so that the index never contains entries for rolled back writes. Existing data can be indexed with
+ * {@link #rebuild(Class)}.
+ * <p/>
+ * When the application starts, the index of each entity type is checked for entities with searchable values that
+ * have no entries, for example rows that were created before the index was introduced or inserted with SQL. Such
+ * types are rebuilt in the background. Until the index of a type is known to be complete, searches on that type
+ * do not use it and rely on the LIKE criterion alone.
+ * <p/>
+ * The index is enabled only if {@link TextIndexEntry} is a managed entity, i.e. if com.expressui.core.entity.textindex
+ * is included in expressui.packagesToScan.
+ *
+ * @see StructuredEntityQuery#buildTextSearch
+ */
+@Component
+public class TextIndex implements ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * Length of the substrings that are indexed.
+     */
+    public static final int TRIGRAM_LENGTH = 3;
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    private static final List<String> NO_SEARCHABLE_PROPERTIES = Collections.emptyList();
+
+    private final Logger log = Logger.getLogger(getClass());
+
+    @Resource
+    private EntityManager entityManager;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private Boolean enabled;
+
+    private final ConcurrentMap<Class, List<String>> searchableProperties = new ConcurrentHashMap<Class, List<String>>();
+
+    private final Set<String> completeTypeNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicBoolean isVerificationStarted = new AtomicBoolean();
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "text-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @PreDestroy
+    void preDestroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Checks the index of every entity type with searchable properties once the application context is refreshed
+     * and rebuilds incomplete ones in the background.
+     *
+     * @param event context refreshed event
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (isEnabled() && isVerificationStarted.compareAndSet(false, true)) {
+            for (EntityType<?> managedType : entityManager.getMetamodel().getEntities()) {
+                final Class entityType = managedType.getJavaType();
+                if (WritableEntity.class.isAssignableFrom(entityType)
+                        && getIndexedTypeName(entityType).equals(entityType.getName())
+                        && !getSearchableProperties(entityType).isEmpty()) {
+                    if (!hasUnindexedEntities(entityType)) {
+                        completeTypeNames.add(entityType.getName());
+                    } else {
+                        log.info("Text index for " + entityType.getSimpleName()
+                                + " is incomplete, rebuilding it in the background");
+                        rebuildExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                rebuildInTransaction(entityType);
+                            }
+                        });
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks if any entity of the given type has a searchable value long enough to be indexed but no entries.
+     */
+    private boolean hasUnindexedEntities(final Class entityType) {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<Boolean>() {
+            @Override
+            public Boolean doInTransaction(TransactionStatus status) {
+                StringBuilder hasValues = new StringBuilder();
+                for (String propertyId : getSearchableProperties(entityType)) {
+                    if (hasValues.length() > 0) {
+                        hasValues.append(" OR ");
+                    }
+                    hasValues.append("LENGTH(e.").append(propertyId).append(") >= ").append(TRIGRAM_LENGTH);
+                }
+                List<Long> unindexedIds = entityManager.createQuery("SELECT e.id FROM " + entityType.getName()
+                        + " e WHERE (" + hasValues + ") AND NOT EXISTS (SELECT x.id FROM TextIndexEntry x"
+                        + " WHERE x.entityType = :entityType AND x.entityId = e.id)", Long.class)
+                        .setParameter("entityType", entityType.getName())
+                        .setMaxResults(1)
+                        .getResultList();
+
+                return !unindexedIds.isEmpty();
+            }
+        });
+    }
+
+    private void rebuildInTransaction(final Class<? extends WritableEntity> entityType) {
+        try {
+            new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    rebuild(entityType);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild text index for " + entityType.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Asks if the index of the given type is known to be complete, i.e. if it was checked on startup or rebuilt.
+     *
+     * @param entityType type of entity
+     * @return true if the index of the type can be used for searches
+     */
+    public boolean isComplete(Class entityType) {
+        return completeTypeNames.contains(getIndexedTypeName(entityType));
+    }
+
+    /**
+     * Asks if the index is enabled, i.e. if {@link TextIndexEntry} is a managed entity.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        if (enabled == null) {
+            try {
+                entityManager.getMetamodel().entity(TextIndexEntry.class);
+                enabled = true;
+            } catch (IllegalArgumentException e) {
+                enabled = false;
+            }
+        }
+
+        return enabled;
+    }
+
+    /**
+     * Gets the String properties of an entity type that are annotated with {@link Searchable}.
+     *
+     * @param entityType type of entity
+     * @return ids of searchable properties, empty if none
+     */
+    public List<String> getSearchableProperties(Class entityType) {
+        List<String> properties = searchableProperties.get(entityType);
+        if (properties == null) {
+            List<String> newProperties = findSearchableProperties(entityType);
+            properties = searchableProperties.putIfAbsent(entityType, newProperties);
+            if (properties == null) {
+                properties = newProperties;
+            }
+        }
+
+        return properties;
+    }
+
+    private List<String> findSearchableProperties(Class entityType) {
+        List<String> properties = new ArrayList<String>();
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(entityType)) {
+            if (descriptor.getReadMethod() != null && String.class.equals(descriptor.getPropertyType())) {
+                BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(entityType,
+                        descriptor.getName());
+                if (beanPropertyType.hasAnnotation(Searchable.class)) {
+                    properties.add(descriptor.getName());
+                }
+            }
+        }
+
+        return properties.isEmpty() ? NO_SEARCHABLE_PROPERTIES : Collections.unmodifiableList(properties);
+    }
+
+    /**
+     * Asks if a property is indexed.
+     *
+     * @param entityType type of entity
+     * @param propertyId property of the entity
+     * @return true if the index is enabled and the property is searchable
+     */
+    public boolean isIndexed(Class entityType, String propertyId) {
+        return isEnabled() && getSearchableProperties(entityType).contains(propertyId);
+    }
+
+    /**
+     * Breaks text into its distinct upper-case trigrams. Text is upper-cased using English rules, independent
+     * of the default locale, the same way search text is normalized in queries.
+     *
+     * @param text text to break up
+     * @return distinct trigrams, empty if text is null or shorter than 3 characters
+     */
+    public static Set<String> toTrigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<String>();
+        if (text != null) {
+            String upperCaseText = text.toUpperCase(Locale.ENGLISH);
+            for (int i = 0; i + TRIGRAM_LENGTH <= upperCaseText.length(); i++) {
+                trigrams.add(upperCaseText.substring(i, i + TRIGRAM_LENGTH));
+            }
+        }
+
+        return trigrams;
+    }
+
+    /**
+     * Breaks LIKE search text into the distinct upper-case trigrams that any matching value must contain. The
+     * LIKE wildcards % and _, as well as the escape character \, separate the text into runs of literal text,
+     * and only trigrams within a run are returned, e.g. "a%cde" yields only "CDE".
+     *
+     * @param text search text, which may contain LIKE wildcards
+     * @return distinct trigrams, empty if no run of literal text has at least 3 characters
+     */
+    public static Set<String> toSearchTrigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<String>();
+        if (text != null) {
+            for (String run : text.split("[%_\\\\]")) {
+                trigrams.addAll(toTrigrams(run));
+            }
+        }
+
+        return trigrams;
+    }
+
+    /**
+     * Builds a predicate that restricts the given path to entities whose indexed property contains all trigrams
+     * of the search text. This predicate only narrows down candidates and must be combined with a LIKE
+     * criterion on the property itself.
+     *
+     * @param builder    criteria builder
+     * @param query      query or subquery, in which the path is used
+     * @param path       path to the entity, e.g. query root or a joined entity
+     * @param propertyId searchable property of the entity
+     * @param text       search text, in which LIKE wildcards are not part of any trigram
+     * @return predicate or null if the property is not indexed, the index of the type is not known to be complete
+     *         or the text is too short to use the index
+     */
+    public Predicate buildContainsPredicate(CriteriaBuilder builder, AbstractQuery<?> query, Path<?> path,
+                                            String propertyId, String text) {
+        Class entityType = path.getJavaType();
+        Set<String> trigrams = toSearchTrigrams(text);
+        if (trigrams.isEmpty() || !isIndexed(entityType, propertyId) || !isComplete(entityType)) {
+            return null;
+        }
+
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<TextIndexEntry> entry = subquery.from(TextIndexEntry.class);
+        subquery.select(entry.<Long>get("entityId"));
+        subquery.where(
+                builder.equal(entry.get("entityType"), getIndexedTypeName(entityType)),
+                builder.equal(entry.get("propertyId"), propertyId),
+                entry.get("trigram").in(trigrams));
+        subquery.groupBy(entry.get("entityId"));
+        subquery.having(builder.equal(builder.countDistinct(entry.get("trigram")), (long) trigrams.size()));
+
+        return path.get("id").in(subquery);
+    }
+
+    /**
+     * Re-indexes all entities of the given type, in chunks. Should be called after annotating additional properties
+     * as searchable, since the check on startup only finds entities without any entries. Note that the persistence
+     * context is cleared after every chunk. Once committed, searches on the type use the index.
+     *
+     * @param entityType type of entity to re-index
+     * @return number of entities indexed
+     */
+    @Transactional
+    public int rebuild(Class<? extends WritableEntity> entityType) {
+        if (!isEnabled() || getSearchableProperties(entityType).isEmpty()) {
+            return 0;
+        }
+
+        entityManager.createQuery("DELETE FROM TextIndexEntry e WHERE e.entityType = :entityType")
+                .setParameter("entityType", getIndexedTypeName(entityType))
+                .executeUpdate();
+
+        int count = 0;
+        Long lastId = 0L;
+        List<? extends WritableEntity> entities;
+        do {
+            TypedQuery<? extends WritableEntity> query = entityManager.createQuery("SELECT e FROM "
+                    + entityType.getName() + " e WHERE e.id > :lastId ORDER BY e.id", entityType);
+            query.setParameter("lastId", lastId);
+            query.setMaxResults(REBUILD_CHUNK_SIZE);
+            entities = query.getResultList();
+
+            for (WritableEntity entity : entities) {
+                for (TextIndexEntry entry : createEntries(entity.getClass(), entity.getId(), getValues(entity))) {
+                    entityManager.persist(entry);
+                }
+                lastId = entity.getId();
+                count++;
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } while (entities.size() == REBUILD_CHUNK_SIZE);
+
+        log.debug("Rebuilt text index for " + count + " " + entityType.getSimpleName() + " entities");
+
+        final String indexedTypeName = getIndexedTypeName(entityType);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    completeTypeNames.add(indexedTypeName);
+                }
+            });
+        } else {
+            completeTypeNames.add(indexedTypeName);
+        }
+
+        return count;
+    }
+
+    /**
+     * Records that an entity has been persisted or updated, so that it can be re-indexed after commit.
+     *
+     * @param entity entity that was written
+     */
+    public void entityWritten(WritableEntity entity) {
+        if (isEnabled() && !getSearchableProperties(entity.getClass()).isEmpty()) {
+            scheduleChange(entity.getClass(), entity.getId(), getValues(entity));
+        }
+    }
+
+    /**
+     * Records that an entity has been removed, so that its entries can be removed after commit.
+     *
+     * @param entity entity that was removed
+     */
+    public void entityRemoved(WritableEntity entity) {
+        if (isEnabled() && !getSearchableProperties(entity.getClass()).isEmpty()) {
+            scheduleChange(entity.getClass(), entity.getId(), null);
+        }
+    }
+
+    private Map<String, String> getValues(WritableEntity entity) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (String propertyId : getSearchableProperties(entity.getClass())) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(entity.getClass(), propertyId);
+            try {
+                values.put(propertyId, (String) descriptor.getReadMethod().invoke(entity));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return values;
+    }
+
+    private void scheduleChange(Class entityType, Long entityId, Map<String, String> values) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingChanges pendingChanges = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+            if (pendingChanges == null) {
+                pendingChanges = new PendingChanges();
+                TransactionSynchronizationManager.bindResource(this, pendingChanges);
+                TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+            }
+            pendingChanges.put(entityType, entityId, values);
+        } else {
+            PendingChanges pendingChanges = new PendingChanges();
+            pendingChanges.put(entityType, entityId, values);
+            applyChanges(pendingChanges);
+        }
+    }
+
+    private void applyChanges(final PendingChanges pendingChanges) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    for (Map.Entry<Class, Map<Long, Map<String, String>>> typeChanges
+                            : pendingChanges.changes.entrySet()) {
+                        Class entityType = typeChanges.getKey();
+                        Map<Long, Map<String, String>> changes = typeChanges.getValue();
+
+                        entityManager.createQuery("DELETE FROM TextIndexEntry e"
+                                + " WHERE e.entityType = :entityType AND e.entityId IN :entityIds")
+                                .setParameter("entityType", getIndexedTypeName(entityType))
+                                .setParameter("entityIds", changes.keySet())
+                                .executeUpdate();
+
+                        for (Map.Entry<Long, Map<String, String>> change : changes.entrySet()) {
+                            if (change.getValue() != null) {
+                                for (TextIndexEntry entry : createEntries(entityType, change.getKey(),
+                                        change.getValue())) {
+                                    entityManager.persist(entry);
+                                }
+                            }
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to update text index, call rebuild to repair it", e);
+        }
+    }
+
+    private List<TextIndexEntry> createEntries(Class entityType, Long entityId, Map<String, String> values) {
+        String indexedTypeName = getIndexedTypeName(entityType);
+        List<TextIndexEntry> entries = new ArrayList<TextIndexEntry>();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            for (String trigram : toTrigrams(value.getValue())) {
+                entries.add(new TextIndexEntry(indexedTypeName, value.getKey(), trigram, entityId));
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Gets the name under which entities of the given type are indexed, which is the top-most entity in the type's
+     * hierarchy, so that searches on a supertype also find subtypes.
+     *
+     * @param entityType type of entity
+     * @return class name of root entity type
+     */
+    private static String getIndexedTypeName(Class entityType) {
+        Class rootEntityType = entityType;
+        for (Class type = entityType; type != null && !Object.class.equals(type); type = type.getSuperclass()) {
+            if (type.isAnnotationPresent(Entity.class)) {
+                rootEntityType = type;
+            }
+        }
+
+        return rootEntityType.getName();
+    }
+
+    private class PendingChanges extends TransactionSynchronizationAdapter {
+        private final Map<Class, Map<Long, Map<String, String>>> changes =
+                new LinkedHashMap<Class, Map<Long, Map<String, String>>>();
+
+        private void put(Class entityType, Long entityId, Map<String, String> values) {
+            Map<Long, Map<String, String>> typeChanges = changes.get(entityType);
+            if (typeChanges == null) {
+                typeChanges = new LinkedHashMap<Long, Map<String, String>>();
+                changes.put(entityType, typeChanges);
+            }
+            typeChanges.put(entityId, values);
+        }
+
+        @Override
+        public void afterCommit() {
+            applyChanges(this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TextIndex.this);
+        }
+    }
+
+    /**
+     * JPA listener that keeps the index in sync with writes to {@link WritableEntity} instances.
+     */
+    public static class Listener {
+
+        public Listener() {
+        }
+
+        /**
+         * Called after an entity is persisted or updated.
+         *
+         * @param writableEntity entity that was written
+         */
+        @PostPersist
+        @PostUpdate
+        public void onPostWrite(WritableEntity writableEntity) {
+            TextIndex textIndex = getTextIndex();
+            if (textIndex != null) {
+                textIndex.entityWritten(writableEntity);
+            }
+        }
+
+        /**
+         * Called after an entity is removed.
+         *
+         * @param writableEntity entity that was removed
+         */
+        @PostRemove
+        public void onPostRemove(WritableEntity writableEntity) {
+            TextIndex textIndex = getTextIndex();
+            if (textIndex != null) {
+                textIndex.entityRemoved(writableEntity);
+            }
+        }
+
+        private TextIndex getTextIndex() {
+            if (SpringApplicationContext.getApplicationContext() == null) {
+                return null;
+            } else {
+                return SpringApplicationContext.getBean(TextIndex.class);
+            }
+        }
+    }
+}
@@ -42,6 +42,7 @@ import com.expressui.core.entity.security.Role;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.Query;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -77,4 +78,20 @@ public class RoleDao extends EntityDao<Role, Long> {
 
         return (Role) query.getSingleResult();
     }
+
+    /**
+     * Finds Roles with given ids, fetching their permissions. Since each permission row belongs to a single role,
+     * the result does not multiply rows across roles.
+     *
+     * @param ids ids of roles to find
+     * @return found Roles with permissions
+     */
+    public List<Role> findWithPermissions(Collection<Long> ids) {
+        Query query = getEntityManager().createQuery("SELECT DISTINCT r FROM Role r LEFT JOIN FETCH r.permissions" +
+                " WHERE r.id IN (:ids)");
+        query.setParameter("ids", ids);
+        setReadOnly(query);
+
+        return query.getResultList();
+    }
 }
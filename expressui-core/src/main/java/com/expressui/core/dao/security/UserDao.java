@@ -69,17 +69,28 @@ public class UserDao extends EntityDao<User, Long> {
     }
 
     /**
-     * Finds User by login name.
+     * Finds User by login name. Roles are not fetched, see {@link #findRoleIds(User)}.
      *
      * @param loginName login name to query
      * @return found user
      */
     public User findByLoginName(String loginName) {
-        Query query = getEntityManager().createQuery("SELECT u FROM User u " +
-                " LEFT JOIN FETCH u.userRoles ur LEFT JOIN FETCH ur.role r LEFT JOIN FETCH r.permissions" +
-                " WHERE u.loginName = :loginName");
+        Query query = getEntityManager().createQuery("SELECT u FROM User u WHERE u.loginName = :loginName");
         query.setParameter("loginName", loginName);
 
         return (User) query.getSingleResult();
     }
+
+    /**
+     * Finds ids of the roles assigned to a given user.
+     *
+     * @param user user to query
+     * @return ids of assigned roles
+     */
+    public List<Long> findRoleIds(User user) {
+        Query query = getEntityManager().createQuery("SELECT ur.role.id FROM UserRole ur WHERE ur.user = :user");
+        query.setParameter("user", user);
+
+        return query.getResultList();
+    }
 }
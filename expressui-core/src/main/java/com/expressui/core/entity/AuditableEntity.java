@@ -37,6 +37,7 @@
 
 package com.expressui.core.entity;
 
+import com.expressui.core.dao.query.ResultCountCache;
 import com.expressui.core.security.SecurityService;
 import com.expressui.core.util.SpringApplicationContext;
 
@@ -47,8 +48,10 @@ import java.util.Date;
  * Base class for entities wishing to be audited. This means that creation and modification timestamps
  * are saved to the database as well as the login name of the user responsible for the creation or modification.
  * This class also versions entities in order to handle concurrent optimistic writes gracefully.
- * Any instances of this class are automatically autowired by Spring, allowing injection
- * of bean resources into entities.
+ * Instances of subclasses that declare injection points, e.g. @Resource fields, are automatically autowired by Spring,
+ * allowing injection of bean resources into entities. Since Hibernate instantiates entities for every row it loads,
+ * entities loaded in large numbers should rather look up beans lazily through {@link SpringApplicationContext},
+ * so that loading them costs nothing extra.
  */
 @MappedSuperclass
 @EntityListeners({AuditableEntity.WritableEntityListener.class})
@@ -72,7 +75,7 @@ public abstract class AuditableEntity implements IdentifiableEntity {
     private String createdBy;
 
     protected AuditableEntity() {
-        SpringApplicationContext.autowire(this);
+        SpringApplicationContext.autowireIfRequired(this);
     }
 
     /**
@@ -154,5 +157,18 @@ public abstract class AuditableEntity implements IdentifiableEntity {
             auditableEntity.lastModified = new Date();
             auditableEntity.modifiedBy = SecurityService.getCurrentLoginName();
         }
+
+        /**
+         * Called after persist, update or remove and invalidates any cached result counts for
+         * this type of entity.
+         *
+         * @param auditableEntity entity that was written
+         */
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        public void onPostWrite(AuditableEntity auditableEntity) {
+            ResultCountCache.entityWritten(auditableEntity.getClass());
+        }
     }
 }
@@ -37,9 +37,9 @@
 
 package com.expressui.core.entity;
 
-import javax.persistence.Cacheable;
-import javax.persistence.Id;
-import javax.persistence.MappedSuperclass;
+import com.expressui.core.dao.query.ResultCountCache;
+
+import javax.persistence.*;
 
 /**
  * Base class for entities that are read-only by end users and that often represent
@@ -47,6 +47,7 @@ import javax.persistence.MappedSuperclass;
  */
 @MappedSuperclass
 @Cacheable
+@EntityListeners({ReferenceEntity.ReferenceEntityListener.class})
 public abstract class ReferenceEntity implements IdentifiableEntity, NamedEntity, Comparable {
 
     /**
@@ -167,4 +168,27 @@ public abstract class ReferenceEntity implements IdentifiableEntity, NamedEntity
     public int compareTo(Object o) {
         return id.compareTo(((ReferenceEntity) o).id);
     }
+
+    /**
+     * Listener that invalidates cached reference data and result counts when reference entities are written.
+     *
+     * @see com.expressui.core.dao.ReferenceDataCache
+     */
+    public static class ReferenceEntityListener {
+
+        public ReferenceEntityListener() {
+        }
+
+        /**
+         * Called after persist, update or remove.
+         *
+         * @param referenceEntity entity that was written
+         */
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        public void onPostWrite(ReferenceEntity referenceEntity) {
+            ResultCountCache.entityWritten(referenceEntity.getClass());
+        }
+    }
 }
@@ -37,20 +37,23 @@
 
 package com.expressui.core.entity;
 
+import com.expressui.core.dao.query.TextIndex;
+import com.expressui.core.util.UUIDGenerator;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
-import java.util.UUID;
 
 /**
  * Base class for entities that are writable by end users.
  * <p/>
  * This class requires that entities use a generated Long id as the primary key. This is a surrogate key
- * that should have no business meaning. The primary-key generation strategy is GenerationType.AUTO,
- * meaning that Hibernate chooses the best strategy depending on the specific database and dialect being used.
+ * that should have no business meaning. Ids are generated by {@link com.expressui.core.util.TableNameSequenceGenerator}
+ * from a sequence per table, or a table on databases without sequences, and are allocated in blocks so that
+ * inserting many entities requires few database round trips and can be batched.
  * This allows the application to be more portable across different databases.
  * <p/>
- * It also generates a unique UUID that is used in the default equals and hashcode logic. Developers are free
+ * It also generates a unique UUID that is used in the default equals and hashcode logic. The UUID is generated
+ * lazily, only for new entities, so that entities loaded from the database do not pay for generating one. Developers are free
  * to override this logic and use their own logic based on business keys, which is the "ideal" best practice.
  * However, the UUID approach also correctly solves the equality problem where transient and persistent entities
  * can be compared and/or added to collections.
@@ -63,11 +66,12 @@ import java.util.UUID;
  * constraints are generated in the DDL, even if these business keys are not used in equals/hashcode.
  */
 @MappedSuperclass
+@EntityListeners({WritableEntity.UUIDListener.class, TextIndex.Listener.class})
 @GenericGenerator(name = "sequence", strategy = "com.expressui.core.util.TableNameSequenceGenerator")
 public abstract class WritableEntity extends AuditableEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "sequence")
     private Long id;
 
     @Column(unique = true, nullable = false, updatable = false)
@@ -75,7 +79,6 @@ public abstract class WritableEntity extends AuditableEntity {
 
     protected WritableEntity() {
         super();
-        uuid = UUID.randomUUID().toString();
     }
 
     /**
@@ -93,11 +96,15 @@ public abstract class WritableEntity extends AuditableEntity {
     }
 
     /**
-     * Gets the randomly generated UUID that was created when this entity was constructed in memory.
+     * Gets the randomly generated UUID, which is generated the first time it is needed for a new entity
+     * and loaded from the database for a persistent entity.
      *
-     * @return UUID that was generated from UUID.randomUUID()
+     * @return UUID that was generated from UUIDGenerator.randomUUID()
      */
     public String getUuid() {
+        if (uuid == null) {
+            uuid = UUIDGenerator.randomUUID().toString();
+        }
         return uuid;
     }
 
@@ -128,4 +135,23 @@ public abstract class WritableEntity extends AuditableEntity {
                 "uuid=" + getUuid() +
                 '}';
     }
+
+    /**
+     * Listener that makes sure a UUID has been generated before a new entity is persisted.
+     */
+    public static class UUIDListener {
+
+        public UUIDListener() {
+        }
+
+        /**
+         * Called before persist and generates the UUID, if it has not been generated yet.
+         *
+         * @param writableEntity entity to generate UUID for
+         */
+        @PrePersist
+        public void onPrePersist(WritableEntity writableEntity) {
+            writableEntity.getUuid();
+        }
+    }
 }
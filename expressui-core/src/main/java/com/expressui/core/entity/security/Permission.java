@@ -39,13 +39,14 @@ package com.expressui.core.entity.security;
 
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.WritableEntity;
+import com.expressui.core.security.PermissionMatrix;
+import com.expressui.core.util.SpringApplicationContext;
 import com.expressui.core.view.field.LabelRegistry;
 import com.expressui.core.view.util.MessageSource;
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.annotations.Index;
 import org.hibernate.validator.constraints.NotBlank;
 
-import javax.annotation.Resource;
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -57,17 +58,13 @@ import javax.validation.constraints.Size;
  * apply to types themselves (where field is null).
  */
 @Entity
+@EntityListeners({PermissionMatrix.ChangeListener.class})
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 @ValidPermission
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = {"TARGET_TYPE", "FIELD"}))
 public class Permission extends WritableEntity implements NamedEntity {
 
     @Transient
-    @Resource
-    private LabelRegistry labelRegistry;
-
-    @Transient
-    @Resource
     private MessageSource uiMessageSource;
 
     private String targetType;
@@ -216,25 +213,25 @@ public class Permission extends WritableEntity implements NamedEntity {
     public String getPermissions() {
         StringBuilder permissions = new StringBuilder();
         if (isCreateAllowed()) {
-            permissions.append(uiMessageSource.getMessage("crudResults.new"));
+            permissions.append(getUiMessageSource().getMessage("crudResults.new"));
         }
         if (isViewAllowed()) {
             if (permissions.length() > 0) {
                 permissions.append(", ");
             }
-            permissions.append(uiMessageSource.getMessage("crudResults.view"));
+            permissions.append(getUiMessageSource().getMessage("crudResults.view"));
         }
         if (isEditAllowed()) {
             if (permissions.length() > 0) {
                 permissions.append(", ");
             }
-            permissions.append(uiMessageSource.getMessage("crudResults.edit"));
+            permissions.append(getUiMessageSource().getMessage("crudResults.edit"));
         }
         if (isDeleteAllowed()) {
             if (permissions.length() > 0) {
                 permissions.append(", ");
             }
-            permissions.append(uiMessageSource.getMessage("crudResults.delete"));
+            permissions.append(getUiMessageSource().getMessage("crudResults.delete"));
         }
 
         return permissions.toString();
@@ -249,7 +246,7 @@ public class Permission extends WritableEntity implements NamedEntity {
         if (getTargetType() == null) {
             return null;
         } else {
-            return labelRegistry.getTypeLabel(getTargetType());
+            return getLabelRegistry().getTypeLabel(getTargetType());
         }
     }
 
@@ -262,8 +259,20 @@ public class Permission extends WritableEntity implements NamedEntity {
         if (getTargetType() == null || getField() == null) {
             return null;
         } else {
-            return labelRegistry.getFieldLabel(getTargetType(), getField());
+            return getLabelRegistry().getFieldLabel(getTargetType(), getField());
+        }
+    }
+
+    private LabelRegistry getLabelRegistry() {
+        // session-scoped, so look up for the current session rather than holding on to it
+        return SpringApplicationContext.getBean(LabelRegistry.class);
+    }
+
+    private MessageSource getUiMessageSource() {
+        if (uiMessageSource == null) {
+            uiMessageSource = SpringApplicationContext.getBean("uiMessageSource", MessageSource.class);
         }
+        return uiMessageSource;
     }
 
     /**
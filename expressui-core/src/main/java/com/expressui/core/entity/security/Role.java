@@ -39,6 +39,7 @@ package com.expressui.core.entity.security;
 
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.WritableEntity;
+import com.expressui.core.security.PermissionMatrix;
 import com.expressui.core.util.assertion.Assert;
 import org.hibernate.validator.constraints.NotBlank;
 
@@ -52,6 +53,7 @@ import java.util.Set;
  * Security role that can be assigned to Users.
  */
 @Entity
+@EntityListeners({PermissionMatrix.ChangeListener.class})
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 @Table
 public class Role extends WritableEntity implements NamedEntity {
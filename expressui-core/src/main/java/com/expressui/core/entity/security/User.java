@@ -39,6 +39,7 @@ package com.expressui.core.entity.security;
 
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.WritableEntity;
+import com.expressui.core.security.PermissionMatrix;
 import com.expressui.core.util.ObjectUtil;
 import com.expressui.core.validation.AssertTrueForProperties;
 import org.hibernate.validator.constraints.NotBlank;
@@ -66,6 +67,8 @@ public class User extends WritableEntity implements NamedEntity {
     private String loginPassword;
     @Transient
     private String repeatLoginPassword;
+    @Transient
+    private PermissionMatrix permissionMatrix;
 
     private boolean accountExpired = false;
     private boolean accountLocked = false;
@@ -173,6 +176,7 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if passwords match
      */
     @AssertTrueForProperties(errorProperty = "repeatLoginPassword",
+            dependsOn = {"loginPassword", "repeatLoginPassword"},
             message = "{com.expressui.core.entity.security.User.passwordsDoNotMatch}")
     public boolean isPasswordMatch() {
         return ObjectUtil.isEqual(getLoginPassword(), getRepeatLoginPassword());
@@ -284,6 +288,43 @@ public class User extends WritableEntity implements NamedEntity {
         return roles;
     }
 
+    /**
+     * Gets the precomputed permission matrix used for permission checks, if one has been built.
+     *
+     * @return precomputed permission matrix or null if permissions are checked against roles directly
+     */
+    public PermissionMatrix getPermissionMatrix() {
+        return permissionMatrix;
+    }
+
+    /**
+     * Sets the precomputed permission matrix used for permission checks.
+     *
+     * @param permissionMatrix precomputed permission matrix or null to check permissions against roles directly
+     */
+    public void setPermissionMatrix(PermissionMatrix permissionMatrix) {
+        this.permissionMatrix = permissionMatrix;
+    }
+
+    /**
+     * Gets the names of all roles assigned to this user. If a permission matrix has been built, role names are
+     * taken from it, without loading roles.
+     *
+     * @return names of all roles assigned to this user
+     */
+    public Set<String> getRoleNames() {
+        if (permissionMatrix != null) {
+            return permissionMatrix.getRoleNames();
+        }
+
+        Set<String> roleNames = new HashSet<String>();
+        for (Role role : getRoles()) {
+            roleNames.add(role.getName());
+        }
+
+        return roleNames;
+    }
+
     /**
      * Asks if this user has a given role.
      *
@@ -291,6 +332,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if user has the role
      */
     public boolean hasRole(Role role) {
+        if (permissionMatrix != null && role.getId() != null) {
+            return permissionMatrix.getRoleIds().contains(role.getId());
+        }
+
         Set<Role> roles = getRoles();
         for (Role r : roles) {
             if (role.equals(r)) {
@@ -308,14 +353,7 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if user has the role
      */
     public boolean hasRole(String role) {
-        Set<Role> roles = getRoles();
-        for (Role r : roles) {
-            if (role.equals(r.getName())) {
-                return true;
-            }
-        }
-
-        return false;
+        return getRoleNames().contains(role);
     }
 
     /**
@@ -325,6 +363,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if view access is allowed
      */
     public boolean isViewAllowed(String type) {
+        if (permissionMatrix != null) {
+            return permissionMatrix.isViewAllowed(type);
+        }
+
         Set<UserRole> roles = getUserRoles();
         for (UserRole role : roles) {
             if (role.getRole().isViewAllowed(type)) {
@@ -342,6 +384,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if edit access is allowed
      */
     public boolean isEditAllowed(String type) {
+        if (permissionMatrix != null) {
+            return permissionMatrix.isEditAllowed(type);
+        }
+
         Set<UserRole> roles = getUserRoles();
         for (UserRole role : roles) {
             if (role.getRole().isEditAllowed(type)) {
@@ -359,6 +405,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if create access is allowed
      */
     public boolean isCreateAllowed(String type) {
+        if (permissionMatrix != null) {
+            return permissionMatrix.isCreateAllowed(type);
+        }
+
         Set<UserRole> roles = getUserRoles();
         for (UserRole role : roles) {
             if (role.getRole().isCreateAllowed(type)) {
@@ -376,6 +426,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if delete access is allowed
      */
     public boolean isDeleteAllowed(String type) {
+        if (permissionMatrix != null) {
+            return permissionMatrix.isDeleteAllowed(type);
+        }
+
         Set<UserRole> roles = getUserRoles();
         for (UserRole role : roles) {
             if (role.getRole().isDeleteAllowed(type)) {
@@ -395,6 +449,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if view access is allowed
      */
     public boolean isViewAllowed(String type, String field) {
+        if (permissionMatrix != null) {
+            return permissionMatrix.isViewAllowed(type, field);
+        }
+
         Set<UserRole> roles = getUserRoles();
         for (UserRole role : roles) {
             if (role.getRole().isViewAllowed(type, field)) {
@@ -414,6 +472,10 @@ public class User extends WritableEntity implements NamedEntity {
      * @return true if edit access is allowed
      */
     public boolean isEditAllowed(String type, String field) {
+        if (permissionMatrix != null) {
+            return permissionMatrix.isEditAllowed(type, field);
+        }
+
         Set<UserRole> roles = getUserRoles();
         for (UserRole role : roles) {
             if (role.getRole().isEditAllowed(type, field)) {
@@ -38,6 +38,7 @@
 package com.expressui.core.entity.security;
 
 import com.expressui.core.entity.AuditableEntity;
+import com.expressui.core.security.PermissionMatrix;
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.annotations.Index;
 
@@ -48,6 +49,7 @@ import java.io.Serializable;
  * Association entity that relates user and role.
  */
 @Entity
+@EntityListeners({PermissionMatrix.ChangeListener.class})
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 @Table
 public class UserRole extends AuditableEntity {
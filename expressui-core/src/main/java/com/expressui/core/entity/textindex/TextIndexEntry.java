@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.entity.textindex;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+
+import javax.persistence.*;
+
+/**
+ * Entry in the trigram text index, recording that a searchable text property of an entity contains a
+ * trigram, i.e. a sequence of 3 upper-case characters. Entries are maintained by
+ * {@link com.expressui.core.dao.query.TextIndex} and are not meant to be read or written directly.
+ * <p/>
+ * The index is only enabled if this package is included in expressui.packagesToScan.
+ */
+@Entity
+@Table
+@GenericGenerator(name = "textIndexSequence", strategy = "com.expressui.core.util.TableNameSequenceGenerator")
+public class TextIndexEntry {
+
+    @Id
+    @GeneratedValue(generator = "textIndexSequence")
+    private Long id;
+
+    @Index(name = "IDX_TEXT_INDEX_TRIGRAM")
+    @Column(nullable = false, length = 128)
+    private String entityType;
+
+    @Index(name = "IDX_TEXT_INDEX_TRIGRAM")
+    @Column(nullable = false, length = 64)
+    private String propertyId;
+
+    @Index(name = "IDX_TEXT_INDEX_TRIGRAM")
+    @Column(nullable = false, length = 3)
+    private String trigram;
+
+    @Index(name = "IDX_TEXT_INDEX_ENTITY")
+    @Column(nullable = false)
+    private Long entityId;
+
+    public TextIndexEntry() {
+    }
+
+    /**
+     * Constructs an index entry.
+     *
+     * @param entityType name of the indexed entity type
+     * @param propertyId searchable property of the entity
+     * @param trigram    trigram contained in the upper-case value of the property
+     * @param entityId   primary key of the indexed entity
+     */
+    public TextIndexEntry(String entityType, String propertyId, String trigram, Long entityId) {
+        this.entityType = entityType;
+        this.propertyId = propertyId;
+        this.trigram = trigram;
+        this.entityId = entityId;
+    }
+
+    /**
+     * Gets the primary key of this entry.
+     *
+     * @return primary key
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name of the indexed entity type.
+     *
+     * @return fully qualified class name
+     */
+    public String getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Gets the searchable property of the entity.
+     *
+     * @return property id
+     */
+    public String getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Gets the trigram contained in the upper-case value of the property.
+     *
+     * @return 3 upper-case characters
+     */
+    public String getTrigram() {
+        return trigram;
+    }
+
+    /**
+     * Gets the primary key of the indexed entity.
+     *
+     * @return primary key of the indexed entity
+     */
+    public Long getEntityId() {
+        return entityId;
+    }
+}
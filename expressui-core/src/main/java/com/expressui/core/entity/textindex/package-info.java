@@ -0,0 +1,5 @@
+/**
+ * Trigram text index, used to speed up case-insensitive "contains" searches on searchable properties.
+ * Include this package in expressui.packagesToScan to enable the index.
+ */
+package com.expressui.core.entity.textindex;
\ No newline at end of file
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.security;
+
+import com.expressui.core.entity.security.AllowOrDeny;
+import com.expressui.core.entity.security.Permission;
+import com.expressui.core.entity.security.Role;
+import com.expressui.core.util.TransactionUtil;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, pre-indexed matrix of a user's permissions, built once from all of the user's roles, so that
+ * permission checks are constant-time hash lookups rather than walks through every role and permission.
+ * <p/>
+ * Type-level permissions are stored as a bitmask of {@link #VIEW}, {@link #CREATE}, {@link #EDIT} and
+ * {@link #DELETE} flags per type. Field-level permissions are stored as view and edit flags per type and field.
+ * Types and fields without explicit permissions fall back to the same defaults as
+ * {@link Role#isViewAllowed(String)} and {@link Role#isViewAllowed(String, String)}.
+ * <p/>
+ * A matrix becomes stale once a transaction that writes any Role, Permission or UserRole entity completes, which
+ * is detected by {@link ChangeListener}.
+ * <p/>
+ * Matrices of single roles are cached and shared across sessions by {@link RoleCache}, which combines them into
+ * the matrix of a user, see {@link #combine(java.util.Collection)}.
+ *
+ * @see SecurityService#getCurrentUser()
+ */
+public final class PermissionMatrix {
+
+    /**
+     * Flag for view access.
+     */
+    public static final int VIEW = 1;
+
+    /**
+     * Flag for create access.
+     */
+    public static final int CREATE = 2;
+
+    /**
+     * Flag for edit access.
+     */
+    public static final int EDIT = 4;
+
+    /**
+     * Flag for delete access.
+     */
+    public static final int DELETE = 8;
+
+    private static final int ALL = VIEW | CREATE | EDIT | DELETE;
+
+    private static final AtomicLong changeGeneration = new AtomicLong();
+
+    private static final Runnable INCREMENT_CHANGE_GENERATION = new Runnable() {
+        @Override
+        public void run() {
+            changeGeneration.incrementAndGet();
+        }
+    };
+
+    private final long generation;
+    private final Set<Long> roleIds;
+    private final Set<String> roleNames;
+    private final int defaultMask;
+    private final Map<String, Integer> typeMasks;
+    private final Map<String, Map<String, Integer>> fieldMasks;
+
+    /**
+     * Builds permission matrix from the given roles.
+     *
+     * @param roles roles whose permissions are combined, access is allowed if any role allows it
+     */
+    public PermissionMatrix(Collection<Role> roles) {
+        this(roles, changeGeneration.get());
+    }
+
+    /**
+     * Builds permission matrix from the given roles, which is current as long as the change generation has not
+     * changed since the given generation.
+     *
+     * @param roles      roles whose permissions are combined, access is allowed if any role allows it
+     * @param generation change generation, read before roles were loaded
+     */
+    PermissionMatrix(Collection<Role> roles, long generation) {
+        this.generation = generation;
+
+        Set<Long> roleIds = new HashSet<Long>();
+        Set<String> roleNames = new HashSet<String>();
+        int defaultMask = 0;
+        Set<String> types = new HashSet<String>();
+        Map<String, Set<String>> fieldsByType = new HashMap<String, Set<String>>();
+        for (Role role : roles) {
+            if (role.getId() != null) {
+                roleIds.add(role.getId());
+            }
+            roleNames.add(role.getName());
+            if (role.getAllowOrDenyByDefault() == AllowOrDeny.ALLOW) {
+                defaultMask = ALL;
+            }
+            for (Permission permission : role.getPermissions()) {
+                types.add(permission.getTargetType());
+                if (permission.getField() != null) {
+                    Set<String> fields = fieldsByType.get(permission.getTargetType());
+                    if (fields == null) {
+                        fields = new HashSet<String>();
+                        fieldsByType.put(permission.getTargetType(), fields);
+                    }
+                    fields.add(permission.getField());
+                }
+            }
+        }
+        this.roleIds = Collections.unmodifiableSet(roleIds);
+        this.roleNames = Collections.unmodifiableSet(roleNames);
+        this.defaultMask = defaultMask;
+
+        Map<String, Integer> typeMasks = new HashMap<String, Integer>();
+        for (String type : types) {
+            int mask = 0;
+            for (Role role : roles) {
+                mask |= buildTypeMask(role, type);
+            }
+            typeMasks.put(type, mask);
+        }
+        this.typeMasks = Collections.unmodifiableMap(typeMasks);
+
+        Map<String, Map<String, Integer>> fieldMasks = new HashMap<String, Map<String, Integer>>();
+        for (Map.Entry<String, Set<String>> fieldsOfType : fieldsByType.entrySet()) {
+            String type = fieldsOfType.getKey();
+            Map<String, Integer> masks = new HashMap<String, Integer>();
+            for (String field : fieldsOfType.getValue()) {
+                int mask = 0;
+                for (Role role : roles) {
+                    mask |= buildFieldMask(role, type, field);
+                }
+                masks.put(field, mask);
+            }
+            fieldMasks.put(type, Collections.unmodifiableMap(masks));
+        }
+        this.fieldMasks = Collections.unmodifiableMap(fieldMasks);
+    }
+
+    private PermissionMatrix(long generation, Set<Long> roleIds, Set<String> roleNames, int defaultMask,
+                             Map<String, Integer> typeMasks, Map<String, Map<String, Integer>> fieldMasks) {
+        this.generation = generation;
+        this.roleIds = Collections.unmodifiableSet(roleIds);
+        this.roleNames = Collections.unmodifiableSet(roleNames);
+        this.defaultMask = defaultMask;
+        this.typeMasks = Collections.unmodifiableMap(typeMasks);
+        this.fieldMasks = Collections.unmodifiableMap(fieldMasks);
+    }
+
+    /**
+     * Combines the given matrices into one, for example the matrices of each of a user's roles. Access is allowed
+     * if any of the given matrices allows it, just as if a single matrix were built from all roles.
+     * The combined matrix is only current as long as all given matrices are current.
+     *
+     * @param matrices matrices to combine
+     * @return combined matrix
+     */
+    public static PermissionMatrix combine(Collection<PermissionMatrix> matrices) {
+        return combine(matrices, changeGeneration.get());
+    }
+
+    /**
+     * Combines the given matrices into one, which is current only as long as all given matrices are current and
+     * the change generation has not changed since the given generation.
+     *
+     * @param matrices   matrices to combine
+     * @param generation change generation, read before the role ids of the matrices were loaded
+     * @return combined matrix
+     */
+    static PermissionMatrix combine(Collection<PermissionMatrix> matrices, long generation) {
+        Set<Long> roleIds = new HashSet<Long>();
+        Set<String> roleNames = new HashSet<String>();
+        int defaultMask = 0;
+        Set<String> types = new HashSet<String>();
+        Map<String, Set<String>> fieldsByType = new HashMap<String, Set<String>>();
+        for (PermissionMatrix matrix : matrices) {
+            generation = Math.min(generation, matrix.generation);
+            roleIds.addAll(matrix.roleIds);
+            roleNames.addAll(matrix.roleNames);
+            defaultMask |= matrix.defaultMask;
+            types.addAll(matrix.typeMasks.keySet());
+            for (Map.Entry<String, Map<String, Integer>> fieldMasksOfType : matrix.fieldMasks.entrySet()) {
+                Set<String> fields = fieldsByType.get(fieldMasksOfType.getKey());
+                if (fields == null) {
+                    fields = new HashSet<String>();
+                    fieldsByType.put(fieldMasksOfType.getKey(), fields);
+                }
+                fields.addAll(fieldMasksOfType.getValue().keySet());
+            }
+        }
+
+        Map<String, Integer> typeMasks = new HashMap<String, Integer>();
+        for (String type : types) {
+            int mask = 0;
+            for (PermissionMatrix matrix : matrices) {
+                mask |= matrix.getTypeMask(type);
+            }
+            typeMasks.put(type, mask);
+        }
+
+        Map<String, Map<String, Integer>> fieldMasks = new HashMap<String, Map<String, Integer>>();
+        for (Map.Entry<String, Set<String>> fieldsOfType : fieldsByType.entrySet()) {
+            String type = fieldsOfType.getKey();
+            Map<String, Integer> masks = new HashMap<String, Integer>();
+            for (String field : fieldsOfType.getValue()) {
+                int mask = 0;
+                for (PermissionMatrix matrix : matrices) {
+                    mask |= matrix.getFieldMask(type, field);
+                }
+                masks.put(field, mask);
+            }
+            fieldMasks.put(type, Collections.unmodifiableMap(masks));
+        }
+
+        return new PermissionMatrix(generation, roleIds, roleNames, defaultMask, typeMasks, fieldMasks);
+    }
+
+    private static int buildTypeMask(Role role, String type) {
+        int mask = 0;
+        if (role.isViewAllowed(type)) {
+            mask |= VIEW;
+        }
+        if (role.isCreateAllowed(type)) {
+            mask |= CREATE;
+        }
+        if (role.isEditAllowed(type)) {
+            mask |= EDIT;
+        }
+        if (role.isDeleteAllowed(type)) {
+            mask |= DELETE;
+        }
+
+        return mask;
+    }
+
+    private static int buildFieldMask(Role role, String type, String field) {
+        int mask = 0;
+        if (role.isViewAllowed(type, field)) {
+            mask |= VIEW;
+        }
+        if (role.isEditAllowed(type, field)) {
+            mask |= EDIT;
+        }
+
+        return mask;
+    }
+
+    private int getTypeMask(String type) {
+        Integer mask = typeMasks.get(type);
+        return mask == null ? defaultMask : mask;
+    }
+
+    private int getFieldMask(String type, String field) {
+        Map<String, Integer> masks = fieldMasks.get(type);
+        Integer mask = masks == null ? null : masks.get(field);
+        if (mask == null) {
+            int typeMask = getTypeMask(type);
+            int fieldMask = typeMask & VIEW;
+            if ((typeMask & (EDIT | CREATE)) != 0) {
+                fieldMask |= EDIT;
+            }
+            return fieldMask;
+        } else {
+            return mask;
+        }
+    }
+
+    /**
+     * Gets the ids of the persistent roles this matrix is built from.
+     *
+     * @return ids of roles
+     */
+    public Set<Long> getRoleIds() {
+        return roleIds;
+    }
+
+    /**
+     * Gets the names of the roles this matrix is built from.
+     *
+     * @return names of roles
+     */
+    public Set<String> getRoleNames() {
+        return roleNames;
+    }
+
+    /**
+     * Asks if view access is allowed for given type.
+     *
+     * @param type type to check
+     * @return true if view access is allowed
+     */
+    public boolean isViewAllowed(String type) {
+        return (getTypeMask(type) & VIEW) != 0;
+    }
+
+    /**
+     * Asks if edit access is allowed for given type.
+     *
+     * @param type type to check
+     * @return true if edit access is allowed
+     */
+    public boolean isEditAllowed(String type) {
+        return (getTypeMask(type) & EDIT) != 0;
+    }
+
+    /**
+     * Asks if create access is allowed for given type.
+     *
+     * @param type type to check
+     * @return true if create access is allowed
+     */
+    public boolean isCreateAllowed(String type) {
+        return (getTypeMask(type) & CREATE) != 0;
+    }
+
+    /**
+     * Asks if delete access is allowed for given type.
+     *
+     * @param type type to check
+     * @return true if delete access is allowed
+     */
+    public boolean isDeleteAllowed(String type) {
+        return (getTypeMask(type) & DELETE) != 0;
+    }
+
+    /**
+     * Asks if view access is allowed for given field (property) within given type.
+     *
+     * @param type  type to check
+     * @param field field to check
+     * @return true if view access is allowed
+     */
+    public boolean isViewAllowed(String type, String field) {
+        return (getFieldMask(type, field) & VIEW) != 0;
+    }
+
+    /**
+     * Asks if edit access is allowed for given field (property) within given type.
+     *
+     * @param type  type to check
+     * @param field field to check
+     * @return true if edit access is allowed
+     */
+    public boolean isEditAllowed(String type, String field) {
+        return (getFieldMask(type, field) & EDIT) != 0;
+    }
+
+    /**
+     * Asks if this matrix is still current, that is no Role, Permission or UserRole has been written
+     * since it was built.
+     *
+     * @return true if current
+     */
+    public boolean isCurrent() {
+        return generation == changeGeneration.get();
+    }
+
+    static long getChangeGeneration() {
+        return changeGeneration.get();
+    }
+
+    /**
+     * Marks all permission matrices as stale, so that they are rebuilt. If a transaction is active, matrices are
+     * marked stale once it completes, so that they are not rebuilt from data read before commit.
+     */
+    public static void permissionsChanged() {
+        TransactionUtil.afterCompletion(INCREMENT_CHANGE_GENERATION);
+    }
+
+    /**
+     * Entity listener that marks all permission matrices as stale once a transaction that writes a Role,
+     * Permission or UserRole completes.
+     */
+    public static class ChangeListener {
+
+        public ChangeListener() {
+        }
+
+        /**
+         * Called after persist, update or remove.
+         *
+         * @param entity entity that was written
+         */
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        public void onPostWrite(Object entity) {
+            permissionsChanged();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.security;
+
+import com.expressui.core.dao.security.RoleDao;
+import com.expressui.core.entity.security.Role;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Application-wide cache of role permissions. The permissions of each role are loaded once and kept as an
+ * immutable {@link PermissionMatrix} keyed by role id, which is shared by all sessions. Users only reference
+ * roles by id, so that logging in does not fetch the role and permission graph and sessions do not each hold
+ * their own copy of it.
+ * <p/>
+ * All cached matrices are discarded once a transaction that writes any Role, Permission or UserRole completes,
+ * which is detected by {@link PermissionMatrix.ChangeListener}. Matrices remember the change generation read
+ * before their roles were loaded, so that matrices built from data read before commit never become current.
+ */
+@Component
+public class RoleCache {
+
+    @Resource
+    private RoleDao roleDao;
+
+    private final ConcurrentMap<Long, PermissionMatrix> roleMatrices = new ConcurrentHashMap<Long, PermissionMatrix>();
+
+    private final ConcurrentMap<Set<Long>, PermissionMatrix> combinedMatrices =
+            new ConcurrentHashMap<Set<Long>, PermissionMatrix>();
+
+    private volatile long changeGeneration = PermissionMatrix.getChangeGeneration();
+
+    /**
+     * Gets the permission matrix combining the permissions of the given roles. Users with the same roles share
+     * the same matrix.
+     *
+     * @param roleIds ids of roles
+     * @return immutable matrix, shared across sessions
+     */
+    public PermissionMatrix getPermissionMatrix(Collection<Long> roleIds) {
+        return getPermissionMatrix(roleIds, PermissionMatrix.getChangeGeneration());
+    }
+
+    /**
+     * Gets the permission matrix combining the permissions of the given roles, which were loaded after reading
+     * the given change generation. The matrix becomes stale if roles, permissions or user roles have been written
+     * since then.
+     *
+     * @param roleIds    ids of roles
+     * @param generation change generation, read before role ids were loaded
+     * @return immutable matrix, shared across sessions
+     */
+    public PermissionMatrix getPermissionMatrix(Collection<Long> roleIds, long generation) {
+        clearIfChanged();
+
+        Set<Long> key = Collections.unmodifiableSet(new HashSet<Long>(roleIds));
+        PermissionMatrix matrix = combinedMatrices.get(key);
+        if (matrix == null || !matrix.isCurrent()) {
+            matrix = PermissionMatrix.combine(getRoleMatrices(key), generation);
+            combinedMatrices.put(key, matrix);
+        }
+
+        return matrix;
+    }
+
+    private List<PermissionMatrix> getRoleMatrices(Set<Long> roleIds) {
+        List<PermissionMatrix> matrices = new ArrayList<PermissionMatrix>();
+        Set<Long> missingRoleIds = new HashSet<Long>();
+        for (Long roleId : roleIds) {
+            PermissionMatrix matrix = roleMatrices.get(roleId);
+            if (matrix == null || !matrix.isCurrent()) {
+                missingRoleIds.add(roleId);
+            } else {
+                matrices.add(matrix);
+            }
+        }
+
+        if (!missingRoleIds.isEmpty()) {
+            long generation = PermissionMatrix.getChangeGeneration();
+            List<Role> roles = roleDao.findWithPermissions(missingRoleIds);
+            for (Role role : roles) {
+                PermissionMatrix matrix = new PermissionMatrix(Collections.singleton(role), generation);
+                roleMatrices.put(role.getId(), matrix);
+                matrices.add(matrix);
+            }
+        }
+
+        return matrices;
+    }
+
+    private void clearIfChanged() {
+        long currentChangeGeneration = PermissionMatrix.getChangeGeneration();
+        if (changeGeneration != currentChangeGeneration) {
+            changeGeneration = currentChangeGeneration;
+            clear();
+        }
+    }
+
+    /**
+     * Clears all cached permission matrices.
+     */
+    public void clear() {
+        roleMatrices.clear();
+        combinedMatrices.clear();
+    }
+}
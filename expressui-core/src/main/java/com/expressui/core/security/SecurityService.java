@@ -57,6 +57,10 @@ import static org.springframework.web.context.WebApplicationContext.SCOPE_SESSIO
 /**
  * Service for logging in/out and getting the current user. This service is bound to the user's session.
  * The current user entity provides access to roles and permissions.
+ * <p/>
+ * The current user's permissions are precomputed into a {@link PermissionMatrix}, which is rebuilt whenever
+ * roles or permissions change. Logged-in users reference their roles only by id and share the permission matrices
+ * cached by {@link RoleCache}, so that the session does not hold the role and permission graph.
  */
 @Component
 @Scope(SCOPE_SESSION)
@@ -78,6 +82,9 @@ public class SecurityService {
     @Resource
     private UserDao userDao;
 
+    @Resource
+    private RoleCache roleCache;
+
     private User currentUser;
 
     /**
@@ -110,11 +117,24 @@ public class SecurityService {
     }
 
     /**
-     * Gets the user entity for the currently logged in user.
+     * Gets the user entity for the currently logged in user. If roles or permissions have changed since the user
+     * was loaded, the user is re-loaded from the database, so that permission checks reflect the changes.
      *
      * @return user entity with roles and permissions
      */
     public User getCurrentUser() {
+        if (currentUser != null && currentUser.getId() != null && currentUser.getPermissionMatrix() != null
+                && !currentUser.getPermissionMatrix().isCurrent()) {
+            try {
+                User user = findUser(currentUser.getLoginName());
+                setCurrentUser(user, findPermissionMatrix(user));
+            } catch (LoginNameNotFoundException e) {
+                // user was deleted, rebuild from roles already assigned
+                PermissionMatrix permissionMatrix = currentUser.getPermissionMatrix();
+                setCurrentUser(currentUser, roleCache.getPermissionMatrix(permissionMatrix.getRoleIds()));
+            }
+        }
+
         return currentUser;
     }
 
@@ -131,7 +151,7 @@ public class SecurityService {
             throw new RuntimeException(e); // should not occur after user logs in
         }
 
-        setCurrentUser(user);
+        setCurrentUser(user, findPermissionMatrix(user));
 
         return user;
     }
@@ -146,12 +166,26 @@ public class SecurityService {
         }
     }
 
+    private PermissionMatrix findPermissionMatrix(User user) {
+        long generation = PermissionMatrix.getChangeGeneration();
+        return roleCache.getPermissionMatrix(userDao.findRoleIds(user), generation);
+    }
+
     /**
      * Sets current user entity, useful in unit-test environment, where user can be set programmatically.
      *
      * @param user user to set
      */
     public void setCurrentUser(User user) {
+        if (user == null) {
+            this.currentUser = null;
+        } else {
+            setCurrentUser(user, new PermissionMatrix(user.getRoles()));
+        }
+    }
+
+    private void setCurrentUser(User user, PermissionMatrix permissionMatrix) {
+        user.setPermissionMatrix(permissionMatrix);
         this.currentUser = user;
     }
 
@@ -201,7 +235,7 @@ public class SecurityService {
 
         assertLoginAllowed(user);
 
-        setCurrentUser(user);
+        setCurrentUser(user, findPermissionMatrix(user));
         setCurrentLoginName(loginName);
 
         return user;
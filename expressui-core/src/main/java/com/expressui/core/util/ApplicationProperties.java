@@ -107,6 +107,36 @@ public class ApplicationProperties {
     @Value("${expressui.defaultSelectPageSize:10}")
     private Integer defaultSelectPageSize = 10;
 
+    @Value("${expressui.defaultResultCountLimit:}")
+    private Integer defaultResultCountLimit;
+
+    @Value("${expressui.resultCountCacheSize:1000}")
+    private Integer resultCountCacheSize = 1000;
+
+    @Value("${expressui.resultCountCacheTimeToLive:60}")
+    private Integer resultCountCacheTimeToLive = 60;
+
+    @Value("${expressui.referenceDataCacheTimeToLive:600}")
+    private Integer referenceDataCacheTimeToLive = 600;
+
+    @Value("${expressui.maxPageConversations:10}")
+    private Integer maxPageConversations = 10;
+
+    @Value("${expressui.codePopupCacheSize:100}")
+    private Integer codePopupCacheSize = 100;
+
+    @Value("${expressui.codePopupCacheTimeToLive:300}")
+    private Integer codePopupCacheTimeToLive = 300;
+
+    @Value("${expressui.codePopupTimeout:10}")
+    private Integer codePopupTimeout = 10;
+
+    @Value("${expressui.asyncQueries:false}")
+    private boolean asyncQueries;
+
+    @Value("${expressui.asyncQueryThreads:4}")
+    private Integer asyncQueryThreads = 4;
+
 
     /**
      * Gets the HTTP proxy hostname.
@@ -316,6 +346,94 @@ public class ApplicationProperties {
         return defaultSelectPageSize;
     }
 
+    /**
+     * Gets default limit beyond which query results are no longer counted exactly. Default is empty, meaning
+     * results are always counted exactly.
+     * @return default limit for counting results, null if results are always counted exactly
+     */
+    public Integer getDefaultResultCountLimit() {
+        return defaultResultCountLimit;
+    }
+
+    /**
+     * Gets maximum number of query result counts cached application-wide. Default is 1000, 0 disables caching.
+     * @return maximum number of cached result counts
+     */
+    public Integer getResultCountCacheSize() {
+        return resultCountCacheSize;
+    }
+
+    /**
+     * Gets time to live in seconds of cached query result counts. Default is 60 seconds.
+     * @return time to live in seconds of cached result counts
+     */
+    public Integer getResultCountCacheTimeToLive() {
+        return resultCountCacheTimeToLive;
+    }
+
+    /**
+     * Gets time to live in seconds of reference data shared across sessions, e.g. select items. Default is 600 seconds.
+     * @return time to live in seconds of cached reference data
+     */
+    public Integer getReferenceDataCacheTimeToLive() {
+        return referenceDataCacheTimeToLive;
+    }
+
+    /**
+     * Gets maximum number of live page conversations per session, beyond which the least recently begun
+     * conversations and their page-scoped beans are destroyed. Default is 10.
+     * @return maximum number of live page conversations per session
+     */
+    public Integer getMaxPageConversations() {
+        return maxPageConversations;
+    }
+
+    /**
+     * Gets maximum number of source files cached for display in code popups. Default is 100.
+     *
+     * @return maximum number of cached source files
+     */
+    public Integer getCodePopupCacheSize() {
+        return codePopupCacheSize;
+    }
+
+    /**
+     * Gets time in seconds after which cached source code is revalidated against the code host. Default is 300.
+     *
+     * @return time to live in seconds of cached source code
+     */
+    public Integer getCodePopupCacheTimeToLive() {
+        return codePopupCacheTimeToLive;
+    }
+
+    /**
+     * Gets timeout in seconds for connecting to and reading from the code host. Default is 10.
+     *
+     * @return timeout in seconds for fetching source code
+     */
+    public Integer getCodePopupTimeout() {
+        return codePopupTimeout;
+    }
+
+    /**
+     * Asks if results tables execute queries in the background by default, so that the UI does not freeze while
+     * queries run. Default is false.
+     *
+     * @return true if results tables execute queries asynchronously
+     */
+    public boolean isAsyncQueries() {
+        return asyncQueries;
+    }
+
+    /**
+     * Gets maximum number of queries executed in the background at the same time, application-wide. Default is 4.
+     *
+     * @return number of threads for executing queries asynchronously
+     */
+    public Integer getAsyncQueryThreads() {
+        return asyncQueryThreads;
+    }
+
     /**
      * Lifecycle method called after bean is constructed. Sets http.proxyHost and http.proxyPort system property
      * and sets a proxy authenticator if httpProxyUsername and httpProxyPassword are not empty.
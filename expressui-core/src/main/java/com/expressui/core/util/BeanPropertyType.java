@@ -50,29 +50,71 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides static reflection and contextual information about a bean property.
  * Represents type information about a bean property within a static tree structure.
  */
 public class BeanPropertyType {
-    private static Map<String, BeanPropertyType> cache = new HashMap<String, BeanPropertyType>();
+    private static final ConcurrentMap<Class, ConcurrentMap<String, BeanPropertyType>> cache =
+            new ConcurrentHashMap<Class, ConcurrentMap<String, BeanPropertyType>>();
 
     /**
      * Gets the BeanPropertyType instance from the given class and dot-delimited propertyPath.
-     * Uses caching to speed-up repeated calls for the same property.
+     * Uses caching to speed-up repeated calls for the same property. The cache is safe for concurrent access
+     * from multiple sessions, without locking.
      *
      * @param clazz        root type
      * @param propertyPath dot-delimited property path starting from the root type
      * @return BeanPropertyType representing property within the type tree
      */
     public static BeanPropertyType getBeanPropertyType(Class clazz, String propertyPath) {
-        String key = clazz.getName() + "." + propertyPath;
-        if (!cache.containsKey(key)) {
-            cache.put(key, getBeanPropertyTypeImpl(clazz, propertyPath));
+        ConcurrentMap<String, BeanPropertyType> typeCache = cache.get(clazz);
+        if (typeCache == null) {
+            ConcurrentMap<String, BeanPropertyType> newTypeCache = new ConcurrentHashMap<String, BeanPropertyType>();
+            typeCache = cache.putIfAbsent(clazz, newTypeCache);
+            if (typeCache == null) {
+                typeCache = newTypeCache;
+            }
+        }
+
+        BeanPropertyType beanPropertyType = typeCache.get(propertyPath);
+        if (beanPropertyType == null) {
+            BeanPropertyType newBeanPropertyType = getBeanPropertyTypeImpl(clazz, propertyPath);
+            beanPropertyType = typeCache.putIfAbsent(propertyPath, newBeanPropertyType);
+            if (beanPropertyType == null) {
+                beanPropertyType = newBeanPropertyType;
+            }
         }
 
-        return cache.get(key);
+        return beanPropertyType;
+    }
+
+    /**
+     * Eagerly caches BeanPropertyType instances for all readable properties declared by the given type and its
+     * supertypes, so that building field sets later does not have to use reflection.
+     * Properties that cannot be resolved, for example because their type is Object, are skipped.
+     *
+     * @param clazz type whose properties should be cached
+     * @return number of properties cached
+     */
+    public static int warmUp(Class clazz) {
+        int count = 0;
+        PropertyDescriptor[] descriptors = BeanUtils.getPropertyDescriptors(clazz);
+        for (PropertyDescriptor descriptor : descriptors) {
+            if (descriptor.getReadMethod() == null || "class".equals(descriptor.getName())) continue;
+
+            try {
+                getBeanPropertyType(clazz, descriptor.getName());
+                count++;
+            } catch (RuntimeException e) {
+                // property cannot be described statically, leave it to be resolved and reported on demand
+            }
+        }
+
+        return count;
     }
 
     private static BeanPropertyType getBeanPropertyTypeImpl(Class clazz, String propertyPath) {
@@ -104,13 +146,15 @@ public class BeanPropertyType {
         return beanPropertyType;
     }
 
-    private BeanPropertyType parent;
-    private String id;
-    private Class type;
-    private Class containerType;
-    private Class collectionValueType;
-    private BusinessType businessType;
-    private Set<Annotation> annotations = new HashSet<Annotation>();
+    private final BeanPropertyType parent;
+    private final String id;
+    private final Class type;
+    private final Class containerType;
+    private final Class collectionValueType;
+    private final BusinessType businessType;
+    private final List<Annotation> annotations = new ArrayList<Annotation>();
+    private final Map<Class<? extends Annotation>, Annotation> annotationsByType =
+            new HashMap<Class<? extends Annotation>, Annotation>();
 
     private BeanPropertyType(BeanPropertyType parent, String id, Class type, Class containerType, Class collectionValueType) {
         this.parent = parent;
@@ -120,6 +164,11 @@ public class BeanPropertyType {
         this.collectionValueType = collectionValueType;
 
         initAnnotations();
+        for (Annotation annotation : annotations) {
+            if (!annotationsByType.containsKey(annotation.annotationType())) {
+                annotationsByType.put(annotation.annotationType(), annotation);
+            }
+        }
         businessType = createBusinessType();
     }
 
@@ -167,13 +216,7 @@ public class BeanPropertyType {
      * @return true if bean property has the annotation
      */
     public boolean hasAnnotation(Class annotationClass) {
-        for (Annotation annotation : annotations) {
-            if (annotationClass.isAssignableFrom(annotation.getClass())) {
-                return true;
-            }
-        }
-
-        return false;
+        return annotationsByType.containsKey(annotationClass);
     }
 
     /**
@@ -184,13 +227,7 @@ public class BeanPropertyType {
      * @return annotation instance
      */
     public <T extends Annotation> T getAnnotation(Class<T> annotationClass) {
-        for (Annotation annotation : annotations) {
-            if (annotationClass.isAssignableFrom(annotation.getClass())) {
-                return (T) annotation;
-            }
-        }
-
-        return null;
+        return annotationClass.cast(annotationsByType.get(annotationClass));
     }
 
     /**
@@ -382,23 +419,7 @@ public class BeanPropertyType {
     public boolean isValidatable() {
         BeanPropertyType beanPropertyType = parent;
         while (beanPropertyType != null) {
-            Class containingType = beanPropertyType.getContainerType();
-            String id = beanPropertyType.getId();
-
-            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(containingType, id);
-            Method readMethod = descriptor.getReadMethod();
-            Valid validAnnotation = null;
-            if (readMethod != null) {
-                validAnnotation = readMethod.getAnnotation(Valid.class);
-            }
-            if (validAnnotation == null) {
-                Field field = ReflectionUtil.getField(containingType, id);
-                Assert.PROGRAMMING.notNull(field, "Cannot find field: " + containingType.getName() + "." + id);
-
-                validAnnotation = field.getAnnotation(Valid.class);
-            }
-
-            if (validAnnotation == null) {
+            if (!beanPropertyType.hasAnnotation(Valid.class)) {
                 return false;
             } else {
                 beanPropertyType = beanPropertyType.getParent();
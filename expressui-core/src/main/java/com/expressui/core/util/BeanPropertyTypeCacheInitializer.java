@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.ManagedType;
+
+/**
+ * Warms up the {@link BeanPropertyType} cache at startup with the properties of all JPA-managed entity and
+ * embeddable types, so that the first sessions to display forms and results do not pay for reflection.
+ */
+@Component
+public class BeanPropertyTypeCacheInitializer {
+
+    private final Logger log = Logger.getLogger(getClass());
+
+    @Resource
+    private EntityManager entityManager;
+
+    /**
+     * Lifecycle method called after this bean has been constructed.
+     */
+    @PostConstruct
+    public void postConstruct() {
+        int count = 0;
+        for (ManagedType managedType : entityManager.getMetamodel().getManagedTypes()) {
+            Class javaType = managedType.getJavaType();
+            if (javaType != null) {
+                count += BeanPropertyType.warmUp(javaType);
+            }
+        }
+
+        log.debug("Cached " + count + " bean property types");
+    }
+}
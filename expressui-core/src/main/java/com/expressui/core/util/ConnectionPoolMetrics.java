@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics on a {@link PooledDataSource}: connections currently active and idle, how long requests wait for a
+ * connection and how many requests time out waiting. Counters are cumulative since the pool was created or
+ * since metrics were last reset.
+ * <p/>
+ * JDBC statements prepared on connections from the pool are counted as well, in total and per thread, so that the
+ * number of statements an operation costs can be measured, for example the statements of each save in
+ * {@link com.expressui.core.view.form.EntityForm}.
+ */
+public class ConnectionPoolMetrics {
+
+    private final PooledDataSource dataSource;
+
+    private final AtomicLong connectionRequests = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong saveStatements = new AtomicLong();
+    private final AtomicLong maxSaveStatements = new AtomicLong();
+
+    private final ThreadLocal<long[]> threadStatements = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    ConnectionPoolMetrics(PooledDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Gets the number of connections currently borrowed from the pool.
+     *
+     * @return number of active connections
+     */
+    public int getActiveConnections() {
+        return dataSource.getNumActive();
+    }
+
+    /**
+     * Gets the number of connections currently idle in the pool.
+     *
+     * @return number of idle connections
+     */
+    public int getIdleConnections() {
+        return dataSource.getNumIdle();
+    }
+
+    /**
+     * Gets the maximum number of connections that can be active at the same time.
+     *
+     * @return maximum number of active connections
+     */
+    public int getMaxActiveConnections() {
+        return dataSource.getMaxActive();
+    }
+
+    /**
+     * Gets the number of connections requested from the pool, including those that timed out or failed.
+     *
+     * @return number of connection requests
+     */
+    public long getConnectionRequests() {
+        return connectionRequests.get();
+    }
+
+    /**
+     * Gets the average time requests waited for a connection.
+     *
+     * @return average wait time in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long requests = connectionRequests.get();
+        if (requests == 0) {
+            return 0;
+        } else {
+            return (double) totalWaitNanos.get() / requests / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * Gets the longest time a request waited for a connection.
+     *
+     * @return maximum wait time in milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    /**
+     * Gets the number of requests that timed out waiting for a connection, because all connections were active.
+     *
+     * @return number of timeouts
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Gets the number of requests that failed for reasons other than timeout, e.g. database unreachable.
+     *
+     * @return number of failures
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Gets the number of JDBC statements prepared, or created, on connections from the pool.
+     *
+     * @return number of statements
+     */
+    public long getStatements() {
+        return statements.get();
+    }
+
+    /**
+     * Gets the number of JDBC statements prepared, or created, by the current thread on connections from the pool.
+     * This counter is never reset, so callers measure an operation by the difference before and after it.
+     *
+     * @return number of statements of the current thread
+     */
+    public long getCurrentThreadStatements() {
+        return threadStatements.get()[0];
+    }
+
+    /**
+     * Records the number of statements a save took, see {@link #getCurrentThreadStatements()}.
+     *
+     * @param statementCount number of statements of the save
+     */
+    public void saveCompleted(long statementCount) {
+        saves.incrementAndGet();
+        saveStatements.addAndGet(statementCount);
+        long max = maxSaveStatements.get();
+        while (statementCount > max && !maxSaveStatements.compareAndSet(max, statementCount)) {
+            max = maxSaveStatements.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded saves.
+     *
+     * @return number of saves
+     */
+    public long getSaves() {
+        return saves.get();
+    }
+
+    /**
+     * Gets the average number of statements per recorded save.
+     *
+     * @return average statements per save
+     */
+    public double getAverageStatementsPerSave() {
+        long saveCount = saves.get();
+        if (saveCount == 0) {
+            return 0;
+        } else {
+            return (double) saveStatements.get() / saveCount;
+        }
+    }
+
+    /**
+     * Gets the largest number of statements a recorded save took.
+     *
+     * @return maximum statements per save
+     */
+    public long getMaxStatementsPerSave() {
+        return maxSaveStatements.get();
+    }
+
+    /**
+     * Resets cumulative counters, e.g. after a load test.
+     */
+    public void reset() {
+        connectionRequests.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+        timeouts.set(0);
+        failures.set(0);
+        statements.set(0);
+        saves.set(0);
+        saveStatements.set(0);
+        maxSaveStatements.set(0);
+    }
+
+    void connectionBorrowed(long waitNanos) {
+        recordWait(waitNanos);
+    }
+
+    void connectionTimedOut(long waitNanos) {
+        recordWait(waitNanos);
+        timeouts.incrementAndGet();
+    }
+
+    void connectionFailed() {
+        connectionRequests.incrementAndGet();
+        failures.incrementAndGet();
+    }
+
+    void statementPrepared() {
+        statements.incrementAndGet();
+        threadStatements.get()[0]++;
+    }
+
+    private void recordWait(long waitNanos) {
+        connectionRequests.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + getActiveConnections()
+                + ", idle=" + getIdleConnections()
+                + ", maxActive=" + getMaxActiveConnections()
+                + ", requests=" + getConnectionRequests()
+                + ", averageWaitMillis=" + String.format("%.2f", getAverageWaitMillis())
+                + ", maxWaitMillis=" + getMaxWaitMillis()
+                + ", timeouts=" + getTimeouts()
+                + ", failures=" + getFailures()
+                + ", statements=" + getStatements()
+                + ", saves=" + getSaves()
+                + ", averageStatementsPerSave=" + String.format("%.2f", getAverageStatementsPerSave())
+                + ", maxStatementsPerSave=" + getMaxStatementsPerSave();
+    }
+}
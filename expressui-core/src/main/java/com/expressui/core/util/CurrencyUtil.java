@@ -37,31 +37,72 @@
 
 package com.expressui.core.util;
 
-import java.util.ArrayList;
-import java.util.Currency;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Utility class for managing currencies.
  */
 public class CurrencyUtil {
 
+    private static final List<Currency> availableCurrencies = createAvailableCurrencies();
+
+    private static final ConcurrentMap<Locale, Map<Currency, String>> symbolsByLocale =
+            new ConcurrentHashMap<Locale, Map<Currency, String>>();
+
     /**
-     * Gets a list of available currencies from the JDK from all locales.
+     * Gets a list of available currencies from the JDK from all locales. The list is built only once, since
+     * iterating over all locales is expensive, and is shared.
      *
-     * @return list of all currencies supported by the JDK
+     * @return immutable list of all distinct currencies supported by the JDK, sorted by currency code
      */
     public static List<Currency> getAvailableCurrencies() {
-        List<Currency> currencies = new ArrayList<Currency>();
+        return availableCurrencies;
+    }
+
+    private static List<Currency> createAvailableCurrencies() {
+        Map<String, Currency> currencies = new TreeMap<String, Currency>();
         Locale[] locales = Locale.getAvailableLocales();
         for (Locale locale : locales) {
             if (!StringUtil.isEmpty(locale.getCountry())) {
-                Currency currency = Currency.getInstance(locale);
-                currencies.add(currency);
+                Currency currency;
+                try {
+                    currency = Currency.getInstance(locale);
+                } catch (IllegalArgumentException e) {
+                    // country is not supported
+                    continue;
+                }
+                if (currency != null) {
+                    currencies.put(currency.getCurrencyCode(), currency);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(new ArrayList<Currency>(currencies.values()));
+    }
+
+    /**
+     * Gets the symbols of all available currencies, as displayed in the given locale. The table is built once per
+     * locale and is shared.
+     *
+     * @param locale locale in which to display symbols
+     * @return immutable map of currency to its localized symbol, ordered like {@link #getAvailableCurrencies()}
+     */
+    public static Map<Currency, String> getSymbols(Locale locale) {
+        Map<Currency, String> symbols = symbolsByLocale.get(locale);
+        if (symbols == null) {
+            Map<Currency, String> newSymbols = new LinkedHashMap<Currency, String>();
+            for (Currency currency : availableCurrencies) {
+                newSymbols.put(currency, currency.getSymbol(locale));
+            }
+            newSymbols = Collections.unmodifiableMap(newSymbols);
+            symbols = symbolsByLocale.putIfAbsent(locale, newSymbols);
+            if (symbols == null) {
+                symbols = newSymbols;
             }
         }
 
-        return currencies;
+        return symbols;
     }
 }
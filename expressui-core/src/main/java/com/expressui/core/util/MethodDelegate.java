@@ -41,15 +41,26 @@ import com.expressui.core.util.assertion.Assert;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A type for representing a method on a specific instance.
  * Can be used for invoking method on a target.
+ * <p/>
+ * Methods are looked up and made accessible once per class, method name and parameter types, and then shared by
+ * all delegates, so that neither constructing nor executing a delegate needs to search or check access.
  */
 public class MethodDelegate {
-    private Object target;
-    private Method method;
+    private static final ConcurrentMap<Class, ConcurrentMap<String, Method>> methodCache =
+            new ConcurrentHashMap<Class, ConcurrentMap<String, Method>>();
+
+    private final Object target;
+    private final Method method;
 
     /**
      * Constructs method delegate on a given target with given method name and parameter types.
@@ -60,9 +71,33 @@ public class MethodDelegate {
      */
     public MethodDelegate(Object target, String methodName, Class<?>... parameterTypes) {
         this.target = target;
-        method = ReflectionUtil.getMethod(target.getClass(), methodName, parameterTypes);
-        Assert.PROGRAMMING.notNull(method, "Cannot find method " + target.getClass().getName()
-                + "." + methodName + (parameterTypes == null ? "" : " (" + Arrays.toString(parameterTypes) + ")"));
+        method = getAccessibleMethod(target.getClass(), methodName, parameterTypes);
+    }
+
+    private static Method getAccessibleMethod(Class type, String methodName, Class<?>... parameterTypes) {
+        ConcurrentMap<String, Method> typeCache = methodCache.get(type);
+        if (typeCache == null) {
+            ConcurrentMap<String, Method> newTypeCache = new ConcurrentHashMap<String, Method>();
+            typeCache = methodCache.putIfAbsent(type, newTypeCache);
+            if (typeCache == null) {
+                typeCache = newTypeCache;
+            }
+        }
+
+        String signature = methodName + (parameterTypes == null ? "" : Arrays.toString(parameterTypes));
+        Method method = typeCache.get(signature);
+        if (method == null) {
+            method = ReflectionUtil.getMethod(type, methodName, parameterTypes);
+            Assert.PROGRAMMING.notNull(method, "Cannot find method " + type.getName()
+                    + "." + methodName + (parameterTypes == null ? "" : " (" + Arrays.toString(parameterTypes) + ")"));
+            method.setAccessible(true);
+            Method existingMethod = typeCache.putIfAbsent(signature, method);
+            if (existingMethod != null) {
+                method = existingMethod;
+            }
+        }
+
+        return method;
     }
 
     /**
@@ -73,7 +108,6 @@ public class MethodDelegate {
      */
     public Object execute(Object... args) {
         try {
-            method.setAccessible(true);
             return method.invoke(target, args);
         } catch (IllegalAccessException e) {
             throw new RuntimeException(e);
@@ -82,6 +116,22 @@ public class MethodDelegate {
         }
     }
 
+    /**
+     * Removes all delegates for the given target from a collection of delegates, e.g. listeners.
+     *
+     * @param delegates collection of delegates to remove from
+     * @param target    target whose delegates are removed
+     */
+    public static void removeAll(Collection<MethodDelegate> delegates, Object target) {
+        List<MethodDelegate> delegatesToRemove = new ArrayList<MethodDelegate>();
+        for (MethodDelegate delegate : delegates) {
+            if (delegate.getTarget().equals(target)) {
+                delegatesToRemove.add(delegate);
+            }
+        }
+        delegates.removeAll(delegatesToRemove);
+    }
+
     /**
      * Gets the target instance on which method can be invoked.
      *
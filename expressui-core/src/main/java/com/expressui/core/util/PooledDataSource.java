@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+/**
+ * Pooled data source used when the JNDI data source lookup fails, for example when running embedded in Jetty.
+ * Extends DBCP's BasicDataSource, which pools connections and prepared statements and removes abandoned,
+ * i.e. leaked, connections, and records connection wait times, timeouts and prepared statements in
+ * {@link ConnectionPoolMetrics}.
+ * <p/>
+ * The pool is only created when the first connection is requested, so that declaring this data source as a
+ * fallback costs nothing if the JNDI lookup succeeds.
+ */
+public class PooledDataSource extends BasicDataSource {
+
+    private final Logger log = Logger.getLogger(getClass());
+
+    private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(this);
+
+    /**
+     * Gets metrics on connections borrowed from this pool.
+     *
+     * @return metrics on this pool
+     */
+    public ConnectionPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            metrics.connectionBorrowed(System.nanoTime() - start);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class[]{Connection.class}, new StatementCountingHandler(connection));
+        } catch (SQLException e) {
+            handleFailure(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private void handleFailure(SQLException e, long waitNanos) {
+        if (e.getCause() instanceof NoSuchElementException) {
+            metrics.connectionTimedOut(waitNanos);
+            log.warn("Timed out after waiting " + getMaxWait() + "ms for a pooled connection: " + metrics);
+        } else {
+            metrics.connectionFailed();
+        }
+    }
+
+    private class StatementCountingHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        private StatementCountingHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if (methodName.equals("prepareStatement") || methodName.equals("prepareCall")
+                    || methodName.equals("createStatement")) {
+                metrics.statementPrepared();
+            }
+
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
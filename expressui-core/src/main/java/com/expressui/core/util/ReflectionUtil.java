@@ -328,6 +328,22 @@ public class ReflectionUtil {
         return method;
     }
 
+    /**
+     * Asks if a method declared in a base type is overridden by the given type or one of its superclasses below the
+     * base type. Proxy subclasses generated by CGLIB are ignored.
+     *
+     * @param type           type to check, a subclass of baseType
+     * @param baseType       class that declares the method
+     * @param methodName     name of the method
+     * @param parameterTypes parameter types declared in the method signature
+     * @return true if the method is overridden
+     */
+    public static boolean isOverridden(Class type, Class baseType, String methodName, Class<?>... parameterTypes) {
+        Method method = getMethod(org.springframework.util.ClassUtils.getUserClass(type), methodName, parameterTypes);
+        Assert.PROGRAMMING.notNull(method, baseType + "." + methodName + " not found");
+        return !method.getDeclaringClass().equals(baseType);
+    }
+
     /**
      * Finds field on a given type.
      *
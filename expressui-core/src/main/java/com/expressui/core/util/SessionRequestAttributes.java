@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.springframework.web.context.request.DestructionCallbackBindingListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request attributes for work done on behalf of a user's session outside of any HTTP request, e.g. in a background
+ * thread. Session-scoped beans resolve to the beans of the given session, while request-scoped beans live until
+ * {@link #requestCompleted()} is called.
+ * <p/>
+ * Unlike the request attributes of the request that started the work, this does not hold on to the request itself,
+ * which the servlet container may recycle once the request is complete.
+ */
+public class SessionRequestAttributes implements RequestAttributes {
+
+    private final HttpSession session;
+
+    private final Map<String, Object> requestAttributes = new HashMap<String, Object>();
+
+    private final List<Runnable> requestDestructionCallbacks = new ArrayList<Runnable>();
+
+    /**
+     * Constructs attributes bound to the given session.
+     *
+     * @param session session whose scoped beans are used
+     */
+    public SessionRequestAttributes(HttpSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Captures the session of the current request, so that session-scoped beans can be used from another thread.
+     *
+     * @return attributes bound to the current session or null if there is no current request or session
+     */
+    public static SessionRequestAttributes fromCurrentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpSession session = ((ServletRequestAttributes) attributes).getRequest().getSession(false);
+            if (session != null) {
+                return new SessionRequestAttributes(session);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+        if (scope == SCOPE_REQUEST) {
+            return requestAttributes.get(name);
+        } else {
+            return session.getAttribute(name);
+        }
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+        if (scope == SCOPE_REQUEST) {
+            requestAttributes.put(name, value);
+        } else {
+            session.setAttribute(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+        if (scope == SCOPE_REQUEST) {
+            requestAttributes.remove(name);
+        } else {
+            session.removeAttribute(name);
+        }
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+        if (scope == SCOPE_REQUEST) {
+            return requestAttributes.keySet().toArray(new String[requestAttributes.size()]);
+        } else {
+            List<String> names = Collections.list(session.getAttributeNames());
+            return names.toArray(new String[names.size()]);
+        }
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+        if (scope == SCOPE_REQUEST) {
+            requestDestructionCallbacks.add(callback);
+        } else {
+            session.setAttribute(ServletRequestAttributes.DESTRUCTION_CALLBACK_NAME_PREFIX + name,
+                    new DestructionCallbackBindingListener(callback));
+        }
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+        if (REFERENCE_SESSION.equals(key)) {
+            return session;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public String getSessionId() {
+        return session.getId();
+    }
+
+    @Override
+    public Object getSessionMutex() {
+        return WebUtils.getSessionMutex(session);
+    }
+
+    /**
+     * Destroys request-scoped beans created while these attributes were bound.
+     */
+    public void requestCompleted() {
+        for (Runnable callback : requestDestructionCallbacks) {
+            callback.run();
+        }
+        requestDestructionCallbacks.clear();
+        requestAttributes.clear();
+    }
+}
@@ -39,13 +39,21 @@ package com.expressui.core.util;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Wraps Spring's Application Context, providing some extra features for finding beans and autowiring a non-bean.
@@ -55,6 +63,8 @@ public class SpringApplicationContext implements ApplicationContextAware {
 
     private static ApplicationContext applicationContext;
 
+    private static final ConcurrentMap<Class, Boolean> autowireRequiredTypes = new ConcurrentHashMap<Class, Boolean>();
+
     /**
      * Sets Spring's application context.
      *
@@ -86,6 +96,70 @@ public class SpringApplicationContext implements ApplicationContextAware {
         }
     }
 
+    /**
+     * Autowires the given target, only if its class declares any injection points, that is fields or methods
+     * annotated with {@code @Resource}, {@code @Autowired}, {@code @Value} or {@code @Inject}. Whether a class
+     * declares injection points is determined once and cached, so that autowiring objects that have nothing to
+     * inject is practically free.
+     *
+     * @param target non-Spring bean to be injected
+     */
+    public static void autowireIfRequired(Object target) {
+        if (isAutowireRequired(target.getClass())) {
+            autowire(target);
+        }
+    }
+
+    /**
+     * Asks if the given class or any of its superclasses declares fields or methods annotated with
+     * {@code @Resource}, {@code @Autowired}, {@code @Value} or {@code @Inject}.
+     *
+     * @param type class to check
+     * @return true if instances of this class need to be autowired
+     */
+    public static boolean isAutowireRequired(Class type) {
+        Boolean autowireRequired = autowireRequiredTypes.get(type);
+        if (autowireRequired == null) {
+            Boolean newAutowireRequired = hasInjectionPoints(type);
+            autowireRequired = autowireRequiredTypes.putIfAbsent(type, newAutowireRequired);
+            if (autowireRequired == null) {
+                autowireRequired = newAutowireRequired;
+            }
+        }
+
+        return autowireRequired;
+    }
+
+    private static boolean hasInjectionPoints(Class type) {
+        for (Class currentType = type; currentType != null && !Object.class.equals(currentType);
+             currentType = currentType.getSuperclass()) {
+            for (Field field : currentType.getDeclaredFields()) {
+                if (isInjectionPoint(field.getAnnotations())) {
+                    return true;
+                }
+            }
+            for (Method method : currentType.getDeclaredMethods()) {
+                if (isInjectionPoint(method.getAnnotations())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isInjectionPoint(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            Class annotationType = annotation.annotationType();
+            if (Resource.class.equals(annotationType) || Autowired.class.equals(annotationType)
+                    || Value.class.equals(annotationType) || "javax.inject.Inject".equals(annotationType.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Looks up a single bean in the context by name.
      *
@@ -40,25 +40,89 @@ package com.expressui.core.util;
 import org.hibernate.MappingException;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.id.PersistentIdentifierGenerator;
-import org.hibernate.id.SequenceGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.hibernate.type.Type;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 
 /**
- * Generates database table names that contain sequences.
+ * Generates ids from a sequence per table, named SEQ_[table name], e.g. SEQ_ACCOUNT.
+ * <p/>
+ * Ids are allocated in blocks using a pooled-lo optimizer, so that only one database round trip is needed for every
+ * block of ids rather than for every inserted entity, which also allows inserts to be batched by JDBC. For
+ * databases without sequences, such as MySQL, a table named SEQ_[table name] with a single row is used instead.
+ * <p/>
+ * The optimizer and the size of each block can be configured in application.properties:
+ * <ul>
+ * <li>expressui.sequenceOptimizer - pooled-lo (default), pooled or none</li>
+ * <li>expressui.sequenceIncrementSize - default block size for all tables, 50 by default</li>
+ * <li>expressui.sequenceIncrementSize.[table name] - block size for a specific table</li>
+ * </ul>
+ * Since the block size is also the increment of the sequence, changing it requires altering existing sequences.
+ * <p/>
+ * Databases whose ids were generated by identity columns need these sequences or tables before upgrading, starting
+ * above the highest existing id of each table, rounded up to the block size, or else new ids collide with existing
+ * ones. See migrate-sequences.dev.sql and migrate-sequences.prod.sql in the sample application.
  */
-public class TableNameSequenceGenerator extends SequenceGenerator {
+public class TableNameSequenceGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Default optimizer, if not configured in application.properties.
+     */
+    public static final String DEFAULT_OPTIMIZER = "pooled-lo";
+
+    /**
+     * Default number of ids allocated per database round trip, if not configured in application.properties.
+     */
+    public static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    private static Properties applicationProperties;
+
     @Override
     public void configure(Type type, Properties params, Dialect dialect) throws MappingException {
-        if (params.getProperty(SEQUENCE) == null || params.getProperty(SEQUENCE).length() == 0
-                && dialect.supportsSequences()) {
-            String tableName = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        String tableName = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        String sequenceName = params.getProperty(SEQUENCE_PARAM);
+        if ((sequenceName == null || sequenceName.length() == 0) && tableName != null) {
+            params.setProperty(SEQUENCE_PARAM, "SEQ_" + tableName);
+        }
+
+        Properties properties = getApplicationProperties();
+        if (params.getProperty(OPT_PARAM) == null) {
+            params.setProperty(OPT_PARAM, properties.getProperty("expressui.sequenceOptimizer", DEFAULT_OPTIMIZER));
+        }
+        if (params.getProperty(INCREMENT_PARAM) == null) {
+            String incrementSize = properties.getProperty("expressui.sequenceIncrementSize",
+                    String.valueOf(DEFAULT_INCREMENT_SIZE));
             if (tableName != null) {
-                String seqName = "SEQ_" + tableName;
-                params.setProperty(SEQUENCE, seqName);
+                incrementSize = properties.getProperty("expressui.sequenceIncrementSize." + tableName, incrementSize);
             }
+            params.setProperty(INCREMENT_PARAM, incrementSize.trim());
         }
+
         super.configure(type, params, dialect);
     }
+
+    private static synchronized Properties getApplicationProperties() {
+        if (applicationProperties == null) {
+            applicationProperties = new Properties();
+            InputStream inputStream = TableNameSequenceGenerator.class.getResourceAsStream("/application.properties");
+            if (inputStream != null) {
+                try {
+                    applicationProperties.load(inputStream);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    try {
+                        inputStream.close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+
+        return applicationProperties;
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Utility class for running tasks at transaction boundaries.
+ */
+public class TransactionUtil {
+
+    /**
+     * Runs a task once the current transaction completes, whether it is committed or rolled back, or immediately
+     * if no transaction is active. This is useful for invalidating application-wide caches, since other sessions
+     * may otherwise cache data read before the transaction is committed. Equal tasks registered within the same
+     * transaction are only run once.
+     *
+     * @param task task to run
+     */
+    public static void afterCompletion(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingTasks pendingTasks =
+                    (PendingTasks) TransactionSynchronizationManager.getResource(PendingTasks.class);
+            if (pendingTasks == null) {
+                pendingTasks = new PendingTasks();
+                TransactionSynchronizationManager.bindResource(PendingTasks.class, pendingTasks);
+                TransactionSynchronizationManager.registerSynchronization(pendingTasks);
+            }
+            pendingTasks.tasks.add(task);
+        } else {
+            task.run();
+        }
+    }
+
+    private static class PendingTasks extends TransactionSynchronizationAdapter {
+        private final Set<Runnable> tasks = new LinkedHashSet<Runnable>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PendingTasks.class);
+            List<Runnable> completedTasks = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable task : completedTasks) {
+                task.run();
+            }
+        }
+    }
+}
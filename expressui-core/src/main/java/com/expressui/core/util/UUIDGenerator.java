@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs without contending for a single, synchronized source of randomness,
+ * as {@link UUID#randomUUID()} does. Each thread gets its own SecureRandom, which is seeded once from the
+ * platform's default SecureRandom and never blocks afterwards.
+ */
+public class UUIDGenerator {
+
+    private static final SecureRandom seedSource = new SecureRandom();
+
+    private static final ThreadLocal<SecureRandom> random = new ThreadLocal<SecureRandom>() {
+        @Override
+        protected SecureRandom initialValue() {
+            byte[] seed = new byte[32];
+            seedSource.nextBytes(seed);
+            SecureRandom secureRandom;
+            try {
+                secureRandom = SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException e) {
+                secureRandom = new SecureRandom();
+            }
+            secureRandom.setSeed(seed);
+            return secureRandom;
+        }
+    };
+
+    private UUIDGenerator() {
+    }
+
+    /**
+     * Generates a random UUID.
+     *
+     * @return random UUID
+     */
+    public static UUID randomUUID() {
+        byte[] bytes = new byte[16];
+        random.get().nextBytes(bytes);
+        bytes[6] &= 0x0f;  // clear version
+        bytes[6] |= 0x40;  // set to version 4
+        bytes[8] &= 0x3f;  // clear variant
+        bytes[8] |= 0x80;  // set to IETF variant
+
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        for (int i = 0; i < 8; i++) {
+            mostSignificantBits = (mostSignificantBits << 8) | (bytes[i] & 0xff);
+        }
+        for (int i = 8; i < 16; i++) {
+            leastSignificantBits = (leastSignificantBits << 8) | (bytes[i] & 0xff);
+        }
+
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -78,4 +78,13 @@ public @interface AssertTrueForProperties {
      * @return property associated with error, from UI perspective
      */
     String errorProperty();
+
+    /**
+     * Specifies the properties read by the assertion method, so that EntityForm can re-validate this assertion
+     * only when one of them changes, rather than re-validating the whole bean. If empty, the assertion is assumed
+     * to depend on every property of the bean and is re-validated whenever any property changes.
+     *
+     * @return properties read by the assertion method
+     */
+    String[] dependsOn() default {};
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.validation;
+
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+import java.util.*;
+
+/**
+ * Dependencies between the properties of a bean type and its {@link AssertTrueForProperties} assertions, built
+ * from constraint metadata. Used to re-validate only the constraints affected by a changed property, rather than
+ * the whole bean.
+ * <p/>
+ * Instances are immutable and are cached by {@link Validation#getPropertyDependencies(Class)}.
+ */
+public class PropertyDependencies {
+
+    private final Class beanType;
+    private final boolean hasClassLevelConstraints;
+    private final Set<String> assertionsDependingOnAnyProperty = new LinkedHashSet<String>();
+    private final Map<String, Set<String>> assertionsByDependency = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> assertionsByErrorProperty = new HashMap<String, Set<String>>();
+
+    PropertyDependencies(BeanDescriptor beanDescriptor) {
+        beanType = beanDescriptor.getElementClass();
+        hasClassLevelConstraints = !beanDescriptor.getConstraintDescriptors().isEmpty();
+
+        for (PropertyDescriptor propertyDescriptor : beanDescriptor.getConstrainedProperties()) {
+            String assertion = propertyDescriptor.getPropertyName();
+            for (ConstraintDescriptor constraintDescriptor : propertyDescriptor.getConstraintDescriptors()) {
+                if (constraintDescriptor.getAnnotation() instanceof AssertTrueForProperties) {
+                    AssertTrueForProperties annotation =
+                            (AssertTrueForProperties) constraintDescriptor.getAnnotation();
+                    add(assertionsByErrorProperty, annotation.errorProperty(), assertion);
+                    if (annotation.dependsOn().length == 0) {
+                        assertionsDependingOnAnyProperty.add(assertion);
+                    } else {
+                        for (String dependency : annotation.dependsOn()) {
+                            add(assertionsByDependency, dependency, assertion);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void add(Map<String, Set<String>> map, String key, String value) {
+        Set<String> values = map.get(key);
+        if (values == null) {
+            values = new LinkedHashSet<String>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Gets the bean type these dependencies are built for.
+     *
+     * @return bean type
+     */
+    public Class getBeanType() {
+        return beanType;
+    }
+
+    /**
+     * Asks if the bean type declares class-level constraints. Since these may depend on any property,
+     * a change to any property requires the whole bean to be re-validated.
+     *
+     * @return true if bean type declares class-level constraints
+     */
+    public boolean hasClassLevelConstraints() {
+        return hasClassLevelConstraints;
+    }
+
+    /**
+     * Gets the assertions that must be re-validated when the given property changes, i.e. the assertions that
+     * declare the property in {@link AssertTrueForProperties#dependsOn()} or declare no dependencies at all.
+     *
+     * @param propertyName name of changed property, relative to the bean type
+     * @return names of assertion properties
+     */
+    public Set<String> getDependentAssertions(String propertyName) {
+        Set<String> assertions = new LinkedHashSet<String>(assertionsDependingOnAnyProperty);
+        Set<String> dependentAssertions = assertionsByDependency.get(propertyName);
+        if (dependentAssertions != null) {
+            assertions.addAll(dependentAssertions);
+        }
+
+        return assertions;
+    }
+
+    /**
+     * Gets the assertions whose errors are reported on the given property,
+     * see {@link AssertTrueForProperties#errorProperty()}.
+     *
+     * @param errorProperty name of property, relative to the bean type
+     * @return names of assertion properties
+     */
+    public Set<String> getAssertionsReportedOn(String errorProperty) {
+        Set<String> assertions = assertionsByErrorProperty.get(errorProperty);
+        if (assertions == null) {
+            return Collections.emptySet();
+        } else {
+            return Collections.unmodifiableSet(assertions);
+        }
+    }
+
+    /**
+     * Gets the property that errors of the given assertion are reported on.
+     *
+     * @param assertion name of assertion property
+     * @return name of error property or null if given property is not an assertion
+     */
+    public String getErrorProperty(String assertion) {
+        for (Map.Entry<String, Set<String>> entry : assertionsByErrorProperty.entrySet()) {
+            if (entry.getValue().contains(assertion)) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+}
@@ -51,6 +51,8 @@ import javax.validation.metadata.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Service for validating beans against JSR-303 validator implementation.
@@ -59,6 +61,9 @@ import java.util.Set;
 public class Validation {
     private Validator validator;
 
+    private final ConcurrentMap<Class, PropertyDependencies> propertyDependencies =
+            new ConcurrentHashMap<Class, PropertyDependencies>();
+
     @PostConstruct
     public void postConstruct() {
         Configuration<?> configuration = javax.validation.Validation.byDefaultProvider().configure();
@@ -189,6 +194,26 @@ public class Validation {
         return validator.getConstraintsForClass(clazz);
     }
 
+    /**
+     * Gets the dependencies between properties and {@link AssertTrueForProperties} assertions of the given class,
+     * built from constraint metadata and cached.
+     *
+     * @param clazz bean type
+     * @return dependencies between properties and assertions
+     */
+    public PropertyDependencies getPropertyDependencies(Class<?> clazz) {
+        PropertyDependencies dependencies = propertyDependencies.get(clazz);
+        if (dependencies == null) {
+            PropertyDependencies newDependencies = new PropertyDependencies(getConstraintsForClass(clazz));
+            dependencies = propertyDependencies.putIfAbsent(clazz, newDependencies);
+            if (dependencies == null) {
+                dependencies = newDependencies;
+            }
+        }
+
+        return dependencies;
+    }
+
     /**
      * Returns an instance of the specified type allowing access to
      * provider-specific APIs.  If the Bean Validation provider
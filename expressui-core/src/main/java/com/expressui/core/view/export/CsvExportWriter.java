@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Writes entities as comma-separated values, one line per entity after a header line, quoting values as
+ * described in RFC 4180.
+ */
+public class CsvExportWriter implements ExportWriter {
+
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    private Writer writer;
+    private List<ExportColumn> columns;
+
+    @Override
+    public String getMimeType() {
+        return "text/csv";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "csv";
+    }
+
+    @Override
+    public void open(OutputStream outputStream, List<ExportColumn> columns, ExportParameters exportParameters)
+            throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+        this.columns = columns;
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) writer.write(',');
+            writeValue(columns.get(i).getHeader());
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void write(Object entity) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) writer.write(',');
+
+            ExportColumn column = columns.get(i);
+            Object value = column.getValue(entity);
+            if (value instanceof BigDecimal) {
+                writer.write(((BigDecimal) value).toPlainString());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else if (value != null) {
+                writeValue(column.format(value));
+            }
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (value == null) return;
+
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import com.expressui.core.view.field.DisplayField;
+import com.expressui.core.view.field.format.EmptyPropertyFormatter;
+import com.expressui.core.view.results.Results;
+import com.expressui.core.view.results.ResultsTable;
+import com.vaadin.data.util.PropertyFormatter;
+import org.apache.commons.beanutils.NestedNullException;
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Column to be exported, defined by a results field and its property formatter.
+ */
+public class ExportColumn {
+
+    private static final String ISO_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+
+    private final String propertyId;
+    private final String header;
+    private final DisplayField displayField;
+
+    /**
+     * Construct column.
+     *
+     * @param propertyId   property path within entity, may be nested
+     * @param header       column header
+     * @param displayField field whose property formatter is used to format values
+     */
+    public ExportColumn(String propertyId, String header, DisplayField displayField) {
+        this.propertyId = propertyId;
+        this.header = header;
+        this.displayField = displayField;
+    }
+
+    /**
+     * Creates columns for the visible, non-collapsed columns of the results table, in the order displayed.
+     *
+     * @param results results to export
+     * @return columns to export
+     */
+    public static List<ExportColumn> createColumns(Results results) {
+        ResultsTable resultsTable = results.getResultsTable();
+        List<ExportColumn> columns = new ArrayList<ExportColumn>();
+        for (Object propertyId : resultsTable.getVisibleColumns()) {
+            if (!resultsTable.isColumnCollapsed(propertyId)) {
+                columns.add(new ExportColumn(propertyId.toString(), resultsTable.getColumnHeader(propertyId),
+                        results.getResultsFieldSet().getField(propertyId.toString())));
+            }
+        }
+
+        return columns;
+    }
+
+    /**
+     * Gets property path within entity.
+     *
+     * @return property id
+     */
+    public String getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Gets column header.
+     *
+     * @return column header
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Gets value of this column's property from given entity.
+     *
+     * @param entity entity to read
+     * @return value or null if property or any property in its path is null
+     */
+    public Object getValue(Object entity) {
+        try {
+            return PropertyUtils.getProperty(entity, propertyId);
+        } catch (NestedNullException e) {
+            return null;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Formats value as text, using the field's property formatter, if one is configured.
+     *
+     * @param value non-null value to format
+     * @return formatted value
+     */
+    public String format(Object value) {
+        PropertyFormatter propertyFormatter = displayField.getPropertyFormatter();
+        if (!EmptyPropertyFormatter.class.equals(propertyFormatter.getClass())) {
+            return propertyFormatter.format(value);
+        } else if (value instanceof Date) {
+            return new SimpleDateFormat(ISO_DATE_FORMAT).format((Date) value);
+        } else {
+            return value.toString();
+        }
+    }
+}
@@ -49,11 +49,13 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
 
 /**
- * Form for configuring excel export parameters.
+ * Form for configuring export parameters.
  */
 @Component
 @Scope(SCOPE_PROTOTYPE)
@@ -66,6 +68,9 @@ public class ExportForm extends TypedForm<ExportParameters> {
     @Resource
     private ExportParameters exportParameters;
 
+    @Resource
+    private ExportWriterRegistry exportWriterRegistry;
+
     @Override
     public void postConstruct() {
         super.postConstruct();
@@ -111,9 +116,11 @@ public class ExportForm extends TypedForm<ExportParameters> {
 
         formFields.setCoordinates("dateFormat", 2, 1);
         formFields.setCoordinates("doubleFormat", 2, 2);
+        formFields.setCoordinates("exportFormat", 2, 3);
 
         formFields.setCoordinates("displayRowHeaders", 3, 1);
         formFields.setCoordinates("displayTotals", 3, 2);
+        formFields.setCoordinates("exportAllResults", 3, 3);
 
         formFields.setLabel("exportFilename", uiMessageSource.getMessage("exportForm.exportFilename"));
         formFields.setLabel("workbookName", uiMessageSource.getMessage("exportForm.workbookName"));
@@ -122,6 +129,15 @@ public class ExportForm extends TypedForm<ExportParameters> {
         formFields.setLabel("doubleFormat", uiMessageSource.getMessage("exportForm.doubleFormat"));
         formFields.setLabel("displayRowHeaders", uiMessageSource.getMessage("exportForm.displayRowHeaders"));
         formFields.setLabel("displayTotals", uiMessageSource.getMessage("exportForm.displayTotals"));
+        formFields.setLabel("exportFormat", uiMessageSource.getMessage("exportForm.exportFormat"));
+        formFields.setLabel("exportAllResults", uiMessageSource.getMessage("exportForm.exportAllResults"));
+
+        Map<Object, String> exportFormats = new LinkedHashMap<Object, String>();
+        for (ExportWriterFactory exportWriterFactory : exportWriterRegistry.getFactories()) {
+            exportFormats.put(exportWriterFactory.getId(), uiMessageSource.getMessage(
+                    "exportForm.exportFormat." + exportWriterFactory.getId(), exportWriterFactory.getId()));
+        }
+        formFields.setSelectItems("exportFormat", exportFormats);
     }
 
     @Override
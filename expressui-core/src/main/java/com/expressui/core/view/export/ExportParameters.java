@@ -43,7 +43,7 @@ import org.springframework.stereotype.Component;
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
 
 /**
- * Parameters for exporting to excel. See <a href="https://vaadin.com/directory#addon/tableexport">TableExport Add-On</a>.
+ * Parameters for exporting to excel, CSV or JSON Lines. See <a href="https://vaadin.com/directory#addon/tableexport">TableExport Add-On</a>.
  * Defaults can be customized in application.properties.
  */
 @Component
@@ -56,6 +56,8 @@ public class ExportParameters {
     private String doubleFormat = "#0.00";
     private boolean displayRowHeaders = false;
     private boolean displayTotals;
+    private boolean exportAllResults = false;
+    private String exportFormat = ExportFormat.EXCEL.getId();
 
     /**
      * Gets the filename to be export to.
@@ -182,4 +184,42 @@ public class ExportParameters {
     public void setDisplayTotals(boolean displayTotals) {
         this.displayTotals = displayTotals;
     }
+
+    /**
+     * Asks whether to export all results of the query, rather than only the page displayed. Default is false.
+     *
+     * @return true to export all results
+     */
+    public boolean isExportAllResults() {
+        return exportAllResults;
+    }
+
+    /**
+     * Sets whether to export all results of the query, rather than only the page displayed. All results are
+     * fetched in chunks and streamed to the selected export format, see {@link #getExportFormat()}.
+     *
+     * @param exportAllResults true to export all results
+     */
+    public void setExportAllResults(boolean exportAllResults) {
+        this.exportAllResults = exportAllResults;
+    }
+
+    /**
+     * Gets id of the format to export to. Default is EXCEL.
+     *
+     * @return id of export format
+     * @see ExportWriterRegistry
+     */
+    public String getExportFormat() {
+        return exportFormat;
+    }
+
+    /**
+     * Sets id of the format to export to.
+     *
+     * @param exportFormat id of export format
+     */
+    public void setExportFormat(String exportFormat) {
+        this.exportFormat = exportFormat;
+    }
 }
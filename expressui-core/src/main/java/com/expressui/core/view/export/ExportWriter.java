@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writer for an export format, which streams entities to an output stream one at a time, without holding
+ * exported rows in memory. A new writer is used for each export.
+ * <p/>
+ * Implement this interface and register an {@link ExportWriterFactory} bean to add export formats.
+ */
+public interface ExportWriter {
+
+    /**
+     * Gets mime type of the exported file.
+     *
+     * @return mime type
+     */
+    String getMimeType();
+
+    /**
+     * Gets file extension of the exported file, without leading dot.
+     *
+     * @return file extension
+     */
+    String getFileExtension();
+
+    /**
+     * Starts export, for example by writing headers.
+     *
+     * @param outputStream     stream to write to
+     * @param columns          columns to export
+     * @param exportParameters parameters configured by the user
+     * @throws IOException if writing fails
+     */
+    void open(OutputStream outputStream, List<ExportColumn> columns, ExportParameters exportParameters)
+            throws IOException;
+
+    /**
+     * Writes one entity.
+     *
+     * @param entity entity to write
+     * @throws IOException if writing fails
+     */
+    void write(Object entity) throws IOException;
+
+    /**
+     * Flushes anything buffered by this writer to the output stream. Invoked after each chunk of entities.
+     *
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException;
+
+    /**
+     * Finishes export, writing anything remaining to the output stream. Does not close the output stream.
+     *
+     * @throws IOException if writing fails
+     */
+    void close() throws IOException;
+
+    /**
+     * Releases any resources held by this writer, such as temporary files. Invoked after the export is closed
+     * or abandoned, for example if the user cancels the download.
+     */
+    void dispose();
+}
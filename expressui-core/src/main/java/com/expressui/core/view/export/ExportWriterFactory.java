@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+/**
+ * Factory for the writers of an export format. Spring beans implementing this interface are discovered by
+ * {@link ExportWriterRegistry} and offered to the user in {@link ExportForm}, in addition to the built-in
+ * {@link ExportFormat}s. Captions are defined in the UI message bundle, e.g. exportForm.exportFormat.XML for a
+ * format with id XML.
+ * <p/>
+ * Implement {@link org.springframework.core.Ordered} to control the order in which formats are offered.
+ */
+public interface ExportWriterFactory {
+
+    /**
+     * Gets id that uniquely identifies this format. A factory with the same id as a built-in format replaces it.
+     *
+     * @return id of this format
+     */
+    String getId();
+
+    /**
+     * Creates a new writer for this format.
+     *
+     * @return new writer
+     */
+    ExportWriter createWriter();
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import com.expressui.core.util.SpringApplicationContext;
+import org.springframework.core.OrderComparator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of export formats, consisting of the built-in {@link ExportFormat}s followed by all Spring beans
+ * that implement {@link ExportWriterFactory}. Beans are discovered the first time formats are requested.
+ */
+@Component
+public class ExportWriterRegistry {
+
+    private Map<String, ExportWriterFactory> factories;
+
+    /**
+     * Gets all registered export formats, in the order they are offered to the user.
+     *
+     * @return unmodifiable collection of factories
+     */
+    public synchronized Collection<ExportWriterFactory> getFactories() {
+        if (factories == null) {
+            factories = discoverFactories();
+        }
+
+        return Collections.unmodifiableCollection(factories.values());
+    }
+
+    /**
+     * Gets the export format with the given id.
+     *
+     * @param id id of the format
+     * @return factory for the format or null if none is registered with the given id
+     */
+    public ExportWriterFactory getFactory(String id) {
+        for (ExportWriterFactory factory : getFactories()) {
+            if (factory.getId().equals(id)) {
+                return factory;
+            }
+        }
+
+        return null;
+    }
+
+    private Map<String, ExportWriterFactory> discoverFactories() {
+        Map<String, ExportWriterFactory> discoveredFactories = new LinkedHashMap<String, ExportWriterFactory>();
+        for (ExportFormat exportFormat : ExportFormat.values()) {
+            discoveredFactories.put(exportFormat.getId(), exportFormat);
+        }
+
+        List<ExportWriterFactory> beans = new ArrayList<ExportWriterFactory>(
+                SpringApplicationContext.getBeansByType(ExportWriterFactory.class));
+        Collections.sort(beans, new OrderComparator());
+        for (ExportWriterFactory bean : beans) {
+            discoveredFactories.put(bean.getId(), bean);
+        }
+
+        return discoveredFactories;
+    }
+}
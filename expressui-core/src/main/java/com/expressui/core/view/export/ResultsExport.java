@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import com.expressui.core.dao.GenericDao;
+import com.expressui.core.dao.query.StructuredEntityQuery;
+import com.expressui.core.view.results.Results;
+import com.vaadin.Application;
+import com.vaadin.terminal.StreamResource;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Exports results using a pluggable ExportWriter, either the page displayed in the results table or all results
+ * of the query. Rows are produced while the download is streamed to the browser: all results are fetched in
+ * chunks as the servlet reads the download stream, so no export file or in-memory table is built up front.
+ */
+public class ResultsExport {
+
+    /**
+     * Default number of entities fetched from the database per chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private final Results results;
+    private final ExportParameters exportParameters;
+    private final ExportWriter exportWriter;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Construct export.
+     *
+     * @param results          results to export
+     * @param exportParameters parameters configured by the user
+     * @param exportWriter     writer for the export format, used for a single export
+     */
+    public ResultsExport(Results results, ExportParameters exportParameters, ExportWriter exportWriter) {
+        this.results = results;
+        this.exportParameters = exportParameters;
+        this.exportWriter = exportWriter;
+    }
+
+    /**
+     * Gets the number of entities fetched from the database per chunk.
+     *
+     * @return chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of entities fetched from the database per chunk.
+     *
+     * @param chunkSize chunk size
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Asks if all results of the query are exported, which requires a StructuredEntityQuery.
+     *
+     * @return true if all results are exported, false if only the displayed page is exported
+     */
+    public boolean isExportAllResults() {
+        return exportParameters.isExportAllResults() && results.getEntityQuery() instanceof StructuredEntityQuery;
+    }
+
+    /**
+     * Opens the export as a download in the user's browser.
+     */
+    public void export() {
+        final List<ExportColumn> columns = ExportColumn.createColumns(results);
+        final Application application = results.getMainApplication();
+
+        StreamResource resource = new StreamResource(new StreamResource.StreamSource() {
+            @Override
+            public InputStream getStream() {
+                return new ExportInputStream(application, columns);
+            }
+        }, getExportFilename(), application);
+        resource.setMIMEType(exportWriter.getMimeType());
+        resource.setCacheTime(0);
+
+        application.getMainWindow().open(resource);
+    }
+
+    /**
+     * Writes export directly to given output stream.
+     *
+     * @param outputStream stream to write to, for example a servlet output stream
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        List<ExportColumn> columns = ExportColumn.createColumns(results);
+        try {
+            exportWriter.open(outputStream, columns, exportParameters);
+
+            ChunkSource chunkSource = new ChunkSource();
+            try {
+                while (chunkSource.hasNext()) {
+                    for (Object entity : chunkSource.next()) {
+                        exportWriter.write(entity);
+                    }
+                    exportWriter.flush();
+                }
+            } finally {
+                chunkSource.close();
+            }
+
+            exportWriter.close();
+        } finally {
+            exportWriter.dispose();
+        }
+    }
+
+    private String getExportFilename() {
+        String filename = exportParameters.getExportFilename();
+        String extension = "." + exportWriter.getFileExtension();
+        if (filename.matches(".*\\.\\w+\"?$")) {
+            return filename.replaceFirst("\\.\\w+(\"?)$", extension + "$1");
+        } else if (filename.endsWith("\"")) {
+            return filename.substring(0, filename.length() - 1) + extension + "\"";
+        } else {
+            return filename + extension;
+        }
+    }
+
+    /**
+     * Source of chunks to export, either all results of the query or just the displayed page.
+     */
+    private class ChunkSource {
+        private GenericDao.ChunkIterator chunkIterator;
+        private Iterator<List> pageIterator;
+
+        private ChunkSource() {
+            if (isExportAllResults()) {
+                chunkIterator = results.genericDao.scroll((StructuredEntityQuery) results.getEntityQuery(),
+                        chunkSize);
+            } else {
+                List page = new ArrayList(results.getResultsTable().getContainerDataSource().getItemIds());
+                pageIterator = Collections.<List>singletonList(page).iterator();
+            }
+        }
+
+        public boolean hasNext() {
+            return chunkIterator == null ? pageIterator.hasNext() : chunkIterator.hasNext();
+        }
+
+        public List next() {
+            return chunkIterator == null ? pageIterator.next() : chunkIterator.next();
+        }
+
+        public void close() {
+            if (chunkIterator != null) {
+                chunkIterator.close();
+            }
+        }
+    }
+
+    /**
+     * Stream that produces the next chunk of export whenever its buffer has been read. Chunks are produced while
+     * holding the application lock, since the download may be read concurrently with other requests of the session.
+     * <p/>
+     * Whatever the writer writes when closed, e.g. an entire xlsx workbook, goes to a temporary file rather than
+     * the buffer and is then streamed from that file, so that it is never held in memory.
+     */
+    private class ExportInputStream extends InputStream {
+
+        private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+        private final Application application;
+        private final List<ExportColumn> columns;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final RedirectableOutputStream output = new RedirectableOutputStream(buffer);
+
+        private ChunkSource chunkSource;
+        private File closedExportFile;
+        private InputStream closedExportInput;
+        private boolean isFinished;
+        private byte[] bytes = new byte[0];
+        private int position;
+
+        private ExportInputStream(Application application, List<ExportColumn> columns) {
+            this.application = application;
+            this.columns = columns;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) return -1;
+
+            return bytes[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+
+            int count = Math.min(len, bytes.length - position);
+            System.arraycopy(bytes, position, b, off, count);
+            position += count;
+
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            while (position == bytes.length) {
+                if (isFinished) return false;
+
+                if (closedExportInput == null) {
+                    buffer.reset();
+                    synchronized (application) {
+                        produce();
+                    }
+                    bytes = buffer.toByteArray();
+                } else {
+                    readClosedExport();
+                }
+                position = 0;
+            }
+
+            return true;
+        }
+
+        private void produce() throws IOException {
+            if (chunkSource == null) {
+                exportWriter.open(output, columns, exportParameters);
+                chunkSource = new ChunkSource();
+            } else if (chunkSource.hasNext()) {
+                for (Object entity : chunkSource.next()) {
+                    exportWriter.write(entity);
+                }
+            } else {
+                chunkSource.close();
+                closeExportWriter();
+                return;
+            }
+            exportWriter.flush();
+        }
+
+        private void closeExportWriter() throws IOException {
+            closedExportFile = File.createTempFile("export", "." + exportWriter.getFileExtension());
+            OutputStream fileOutput = new FileOutputStream(closedExportFile);
+            output.setTarget(fileOutput);
+            try {
+                exportWriter.close();
+            } finally {
+                fileOutput.close();
+                output.setTarget(buffer);
+                exportWriter.dispose();
+            }
+            closedExportInput = new FileInputStream(closedExportFile);
+        }
+
+        private void readClosedExport() throws IOException {
+            byte[] fileBytes = new byte[FILE_BUFFER_SIZE];
+            int count = closedExportInput.read(fileBytes);
+            if (count < 0) {
+                bytes = new byte[0];
+                deleteClosedExport();
+                isFinished = true;
+            } else {
+                bytes = Arrays.copyOf(fileBytes, count);
+            }
+        }
+
+        private void deleteClosedExport() throws IOException {
+            if (closedExportInput != null) {
+                closedExportInput.close();
+                closedExportInput = null;
+            }
+            if (closedExportFile != null) {
+                closedExportFile.delete();
+                closedExportFile = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!isFinished) {
+                isFinished = true;
+                try {
+                    if (chunkSource != null && closedExportFile == null) {
+                        synchronized (application) {
+                            chunkSource.close();
+                        }
+                    }
+                } finally {
+                    exportWriter.dispose();
+                    deleteClosedExport();
+                }
+            }
+        }
+    }
+
+    /**
+     * Output stream whose target can be changed while a writer is writing to it.
+     */
+    private static class RedirectableOutputStream extends OutputStream {
+        private OutputStream target;
+
+        private RedirectableOutputStream(OutputStream target) {
+            this.target = target;
+        }
+
+        private void setTarget(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes entities to an xlsx workbook, using a streaming workbook that only keeps a small window of rows
+ * in memory and flushes other rows to temporary files. The workbook itself is written to the output stream when
+ * the export is closed, and the temporary files are deleted when the writer is disposed.
+ */
+public class XlsxExportWriter implements ExportWriter {
+
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    private OutputStream outputStream;
+    private List<ExportColumn> columns;
+    private ExportParameters exportParameters;
+
+    private SXSSFWorkbook workbook;
+    private Sheet sheet;
+    private CellStyle boldStyle;
+    private CellStyle dateStyle;
+    private CellStyle doubleStyle;
+    private int firstDataRowIndex;
+    private int nextRowIndex;
+    private boolean[] isNumericColumn;
+
+    @Override
+    public String getMimeType() {
+        return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "xlsx";
+    }
+
+    @Override
+    public void open(OutputStream outputStream, List<ExportColumn> columns, ExportParameters exportParameters)
+            throws IOException {
+        this.outputStream = outputStream;
+        this.columns = columns;
+        this.exportParameters = exportParameters;
+
+        nextRowIndex = 0;
+        workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        sheet = workbook.createSheet(exportParameters.getSheetName());
+
+        boldStyle = workbook.createCellStyle();
+        Font boldFont = workbook.createFont();
+        boldFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
+        boldStyle.setFont(boldFont);
+
+        DataFormat dataFormat = workbook.createDataFormat();
+        dateStyle = workbook.createCellStyle();
+        if (exportParameters.getDateFormat() != null) {
+            dateStyle.setDataFormat(dataFormat.getFormat(exportParameters.getDateFormat()));
+        }
+        doubleStyle = workbook.createCellStyle();
+        if (exportParameters.getDoubleFormat() != null) {
+            doubleStyle.setDataFormat(dataFormat.getFormat(exportParameters.getDoubleFormat()));
+        }
+
+        if (exportParameters.getWorkbookName() != null) {
+            Cell titleCell = sheet.createRow(nextRowIndex++).createCell(0);
+            titleCell.setCellValue(exportParameters.getWorkbookName());
+            titleCell.setCellStyle(boldStyle);
+        }
+
+        Row headerRow = sheet.createRow(nextRowIndex++);
+        for (int i = 0; i < columns.size(); i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(columns.get(i).getHeader());
+            cell.setCellStyle(boldStyle);
+        }
+
+        firstDataRowIndex = nextRowIndex;
+        isNumericColumn = new boolean[columns.size()];
+    }
+
+    @Override
+    public void write(Object entity) throws IOException {
+        Row row = sheet.createRow(nextRowIndex++);
+        for (int i = 0; i < columns.size(); i++) {
+            ExportColumn column = columns.get(i);
+            Object value = column.getValue(entity);
+            if (value == null) continue;
+
+            Cell cell = row.createCell(i);
+            if (value instanceof Number) {
+                cell.setCellValue(((Number) value).doubleValue());
+                cell.setCellStyle(doubleStyle);
+                isNumericColumn[i] = true;
+            } else if (value instanceof Date) {
+                cell.setCellValue((Date) value);
+                cell.setCellStyle(dateStyle);
+            } else if (value instanceof Boolean) {
+                cell.setCellValue((Boolean) value);
+            } else {
+                cell.setCellValue(column.format(value));
+            }
+
+            if (i == 0 && exportParameters.isDisplayRowHeaders()) {
+                cell.setCellStyle(boldStyle);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (exportParameters.isDisplayTotals() && nextRowIndex > firstDataRowIndex) {
+            Row totalsRow = sheet.createRow(nextRowIndex);
+            for (int i = 0; i < columns.size(); i++) {
+                if (isNumericColumn[i]) {
+                    String column = CellReference.convertNumToColString(i);
+                    Cell cell = totalsRow.createCell(i);
+                    cell.setCellFormula("SUM(" + column + (firstDataRowIndex + 1) + ":" + column + nextRowIndex + ")");
+                    cell.setCellStyle(doubleStyle);
+                }
+            }
+        }
+
+        try {
+            workbook.write(outputStream);
+        } finally {
+            dispose();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (workbook != null) {
+            workbook.dispose();
+            workbook = null;
+        }
+    }
+}
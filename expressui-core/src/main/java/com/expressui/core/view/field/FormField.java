@@ -38,8 +38,7 @@
 package com.expressui.core.view.field;
 
 import com.expressui.core.MainApplication;
-import com.expressui.core.dao.EntityDao;
-import com.expressui.core.dao.ReferenceEntityDao;
+import com.expressui.core.dao.ReferenceDataCache;
 import com.expressui.core.entity.ReferenceEntity;
 import com.expressui.core.util.*;
 import com.expressui.core.util.assertion.Assert;
@@ -95,7 +94,7 @@ public class FormField extends DisplayField {
     private boolean hasConversionError;
 
     @Resource
-    private ReferenceEntityDao referenceEntityDao;
+    private ReferenceDataCache referenceDataCache;
 
     /**
      * Constructs with reference to fieldSet this field belongs to and the property name this field is bound to, often
@@ -1019,23 +1018,20 @@ public class FormField extends DisplayField {
             List referenceEntities = null;
             if (Currency.class.isAssignableFrom(valueType)) {
                 referenceEntities = CurrencyUtil.getAvailableCurrencies();
-                ((AbstractSelect) field).setItemCaptionPropertyId("currencyCode");
             } else if (valueType.isEnum()) {
                 Object[] enumConstants = valueType.getEnumConstants();
                 referenceEntities = Arrays.asList(enumConstants);
             } else if (ReferenceEntity.class.isAssignableFrom(valueType)) {
-                EntityDao propertyDao = SpringApplicationContext.getBeanByTypeAndGenericArgumentType(EntityDao.class,
-                        valueType);
-                if (propertyDao != null) {
-                    referenceEntities = propertyDao.findAll();
-                } else {
-                    referenceEntities = referenceEntityDao.findAll(valueType);
-                }
+                referenceEntities = referenceDataCache.findAll(valueType);
             }
 
             if (referenceEntities != null) {
                 setSelectItems(referenceEntities);
             }
+
+            if (Currency.class.isAssignableFrom(valueType)) {
+                initCurrencyCaptions((AbstractSelect) field);
+            }
         }
 
 
@@ -1055,6 +1051,19 @@ public class FormField extends DisplayField {
         isVisible = field.isVisible();
     }
 
+    private void initCurrencyCaptions(AbstractSelect selectField) {
+        selectField.setItemCaptionMode(AbstractSelect.ITEM_CAPTION_MODE_EXPLICIT_DEFAULTS_ID);
+        Map<Currency, String> symbols = CurrencyUtil.getSymbols(MainApplication.getInstance().getLocale());
+        for (Map.Entry<Currency, String> symbol : symbols.entrySet()) {
+            String currencyCode = symbol.getKey().getCurrencyCode();
+            if (currencyCode.equals(symbol.getValue())) {
+                selectField.setItemCaption(symbol.getKey(), currencyCode);
+            } else {
+                selectField.setItemCaption(symbol.getKey(), currencyCode + " (" + symbol.getValue() + ")");
+            }
+        }
+    }
+
     private void initializeValidators() {
         if (field instanceof AbstractTextField) {
             if (getBeanPropertyType().getBusinessType() != null &&
@@ -1178,7 +1187,7 @@ public class FormField extends DisplayField {
             EntityForm entityForm = (EntityForm) getFormFieldSet().getForm();
 
             if (entityForm.isValidationEnabled()) {
-                entityForm.validate(false);
+                entityForm.validateChangedProperty(getPropertyId());
             }
         }
     }
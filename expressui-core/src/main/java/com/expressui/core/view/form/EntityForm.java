@@ -39,8 +39,12 @@ package com.expressui.core.view.form;
 
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.security.User;
+import com.expressui.core.util.BeanPropertyType;
+import com.expressui.core.util.ConnectionPoolMetrics;
 import com.expressui.core.util.MethodDelegate;
+import com.expressui.core.util.PooledDataSource;
 import com.expressui.core.validation.AssertTrueForProperties;
+import com.expressui.core.validation.PropertyDependencies;
 import com.expressui.core.validation.Validation;
 import com.expressui.core.view.field.FormField;
 import com.expressui.core.view.field.SelectField;
@@ -52,15 +56,18 @@ import com.vaadin.terminal.ErrorMessage;
 import com.vaadin.terminal.ThemeResource;
 import com.vaadin.terminal.UserError;
 import com.vaadin.ui.*;
+import org.apache.log4j.Logger;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.persistence.EntityNotFoundException;
 import javax.persistence.OptimisticLockException;
+import javax.sql.DataSource;
 import javax.validation.ConstraintViolation;
 import javax.validation.metadata.ConstraintDescriptor;
 import java.lang.annotation.Annotation;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * A form bound to a JPA entity, providing save, refresh and cancel actions.
@@ -74,9 +81,14 @@ import java.util.*;
  */
 public abstract class EntityForm<T> extends TypedForm<T> {
 
+    private final Logger log = Logger.getLogger(getClass());
+
     @Resource
     private Validation validation;
 
+    @Resource(name = "dataSource")
+    private DataSource dataSource;
+
     private boolean isViewMode;
 
     private TabSheet toManyRelationshipTabs;
@@ -92,9 +104,10 @@ public abstract class EntityForm<T> extends TypedForm<T> {
     private com.vaadin.terminal.Resource saveAndCloseButtonIconBackup;
     private com.vaadin.terminal.Resource saveAndStayOpenButtonIconBackup;
 
-    private Set<MethodDelegate> closeListeners = new LinkedHashSet<MethodDelegate>();
-    private Set<MethodDelegate> cancelListeners = new LinkedHashSet<MethodDelegate>();
-    private Set<MethodDelegate> saveListeners = new LinkedHashSet<MethodDelegate>();
+    private Set<MethodDelegate> closeListeners = new CopyOnWriteArraySet<MethodDelegate>();
+    private Set<MethodDelegate> cancelListeners = new CopyOnWriteArraySet<MethodDelegate>();
+    private Set<MethodDelegate> saveListeners = new CopyOnWriteArraySet<MethodDelegate>();
+    private Set<ToManyRelationship> staleToManyRelationships = new HashSet<ToManyRelationship>();
 
     @PostConstruct
     @Override
@@ -116,6 +129,13 @@ public abstract class EntityForm<T> extends TypedForm<T> {
                         "Relationship", toManyRelationship.getTypeCaption());
             }
 
+            toManyRelationshipTabs.addListener(new TabSheet.SelectedTabChangeListener() {
+                @Override
+                public void selectedTabChange(TabSheet.SelectedTabChangeEvent event) {
+                    loadSelectedToManyRelationship();
+                }
+            });
+
             HorizontalLayout toManyRelationshipLayout = new HorizontalLayout();
             setDebugId(toManyRelationshipLayout, "toManyRelationshipLayout");
             toManyRelationshipLayout.setSizeUndefined();
@@ -373,6 +393,10 @@ public abstract class EntityForm<T> extends TypedForm<T> {
         if (loadedEntity == null) {
             throw new EntityNotFoundException(entity.toString());
         }
+        bind(loadedEntity, selectFirstTab);
+    }
+
+    private void bind(T loadedEntity, boolean selectFirstTab) {
         postLoad(loadedEntity);
         BeanItem beanItem = createBeanItem(loadedEntity);
         setItemDataSource(beanItem, getFormFieldSet().getPropertyIds());
@@ -380,8 +404,9 @@ public abstract class EntityForm<T> extends TypedForm<T> {
 
         validate(true);
 
-        loadToManyRelationships();
+        resetToManyRelationships();
         resetTabs(selectFirstTab);
+        loadSelectedToManyRelationship();
 
         refreshButton.setCaption(uiMessageSource.getMessage("entityForm.refresh"));
         requestRepaintAll();
@@ -396,20 +421,37 @@ public abstract class EntityForm<T> extends TypedForm<T> {
         return beanItem;
     }
 
-    private void loadToManyRelationships() {
+    /**
+     * Sets the parent of all to-many relationships to the currently loaded entity and marks them as stale,
+     * without searching. Relationships are searched lazily, once their tab is selected.
+     */
+    private void resetToManyRelationships() {
         List<ToManyRelationship> toManyRelationships = getViewableToManyRelationships();
         if (toManyRelationships.size() > 0) {
             for (ToManyRelationship toManyRelationship : toManyRelationships) {
                 Object parent = getBean();
                 toManyRelationship.getEntityQuery().setParent(parent);
-                toManyRelationship.search();
-                toManyRelationship.syncCrudActions();
-
+                staleToManyRelationships.add(toManyRelationship);
             }
             toManyRelationshipTabs.setVisible(true);
         }
     }
 
+    /**
+     * Searches the to-many relationship in the currently selected tab, if it is stale, i.e. if it has not been
+     * searched since the current entity was loaded.
+     */
+    private void loadSelectedToManyRelationship() {
+        if (toManyRelationshipTabs == null) return;
+
+        Component selectedTab = toManyRelationshipTabs.getSelectedTab();
+        if (selectedTab instanceof ToManyRelationship && staleToManyRelationships.remove(selectedTab)) {
+            ToManyRelationship toManyRelationship = (ToManyRelationship) selectedTab;
+            toManyRelationship.search();
+            toManyRelationship.syncCrudActions();
+        }
+    }
+
     /**
      * Clears the form of data and all errors.
      */
@@ -423,6 +465,7 @@ public abstract class EntityForm<T> extends TypedForm<T> {
      * save an entity and then to-many relationships will appear.
      */
     public void create() {
+        staleToManyRelationships.clear();
         createImpl();
 
         if (toManyRelationshipTabs != null) {
@@ -557,37 +600,9 @@ public abstract class EntityForm<T> extends TypedForm<T> {
      * @param target all listeners defined on this target are removed
      */
     public void removeListeners(Object target) {
-        Set<MethodDelegate> listenersToRemove;
-
-        listenersToRemove = new HashSet<MethodDelegate>();
-        for (MethodDelegate closeListener : closeListeners) {
-            if (closeListener.getTarget().equals(target)) {
-                listenersToRemove.add(closeListener);
-            }
-        }
-        for (MethodDelegate listener : listenersToRemove) {
-            closeListeners.remove(listener);
-        }
-
-        listenersToRemove = new HashSet<MethodDelegate>();
-        for (MethodDelegate cancelListener : cancelListeners) {
-            if (cancelListener.getTarget().equals(target)) {
-                listenersToRemove.add(cancelListener);
-            }
-        }
-        for (MethodDelegate listener : listenersToRemove) {
-            cancelListeners.remove(listener);
-        }
-
-        listenersToRemove = new HashSet<MethodDelegate>();
-        for (MethodDelegate saveListener : saveListeners) {
-            if (saveListener.getTarget().equals(target)) {
-                listenersToRemove.add(saveListener);
-            }
-        }
-        for (MethodDelegate listener : listenersToRemove) {
-            saveListeners.remove(listener);
-        }
+        MethodDelegate.removeAll(closeListeners, target);
+        MethodDelegate.removeAll(cancelListeners, target);
+        MethodDelegate.removeAll(saveListeners, target);
     }
 
     /**
@@ -614,9 +629,7 @@ public abstract class EntityForm<T> extends TypedForm<T> {
             }
         }
 
-        Set<MethodDelegate> listenersToExecute;
-        listenersToExecute = (Set<MethodDelegate>) ((LinkedHashSet) cancelListeners).clone();
-        for (MethodDelegate listener : listenersToExecute) {
+        for (MethodDelegate listener : cancelListeners) {
             listener.execute();
         }
     }
@@ -637,13 +650,7 @@ public abstract class EntityForm<T> extends TypedForm<T> {
      * @return true if save was successful
      */
     public boolean saveAndStayOpen() {
-        boolean successful = save(false);
-
-        if (successful) {
-            loadToManyRelationships();
-        }
-
-        return successful;
+        return save(false);
     }
 
     /**
@@ -661,6 +668,20 @@ public abstract class EntityForm<T> extends TypedForm<T> {
         }
     }
 
+    /**
+     * Gets metrics of the data source in use, if it counts statements. A data source looked up from JNDI
+     * does not, in which case saves are not recorded.
+     *
+     * @return metrics of the pooled data source or null if another data source is in use
+     */
+    private ConnectionPoolMetrics getConnectionPoolMetrics() {
+        if (dataSource instanceof PooledDataSource) {
+            return ((PooledDataSource) dataSource).getMetrics();
+        } else {
+            return null;
+        }
+    }
+
     private boolean saveImpl(boolean executeCloseListeners) throws OptimisticLockException {
         boolean isValid = validate(false);
         if (getForm().isValid() && isValid) {
@@ -669,13 +690,10 @@ public abstract class EntityForm<T> extends TypedForm<T> {
             preSave(getBean());
 
             T entity = getBean();
-            checkThatToOneSelectionsExist();
+            ConnectionPoolMetrics connectionPoolMetrics = getConnectionPoolMetrics();
+            long statementCount = connectionPoolMetrics == null ? 0 : connectionPoolMetrics.getCurrentThreadStatements();
+            checkThatEntityAndToOneSelectionsExist();
             if (genericDao.getId(entity) != null) {
-                T foundEntity = genericDao.find(getType(), genericDao.getId(entity));
-                if (foundEntity == null) {
-                    throw new EntityNotFoundException(entity.toString());
-                }
-
                 T mergedEntity;
                 if (getEntityDao() == null) {
                     mergedEntity = genericDao.merge(entity);
@@ -684,7 +702,7 @@ public abstract class EntityForm<T> extends TypedForm<T> {
                 }
 
                 postSave(mergedEntity);
-                load(mergedEntity, false);
+                bind(mergedEntity, false);
             } else {
                 if (getEntityDao() == null) {
                     genericDao.persist(entity);
@@ -692,23 +710,25 @@ public abstract class EntityForm<T> extends TypedForm<T> {
                     getEntityDao().persist(entity);
                 }
                 postSave(entity);
-                load(entity, false);
+                bind(entity, false);
+            }
 
-                if (!executeCloseListeners) {
-                    loadToManyRelationships();
+            if (connectionPoolMetrics != null) {
+                statementCount = connectionPoolMetrics.getCurrentThreadStatements() - statementCount;
+                connectionPoolMetrics.saveCompleted(statementCount);
+                if (log.isDebugEnabled()) {
+                    log.debug("Saved " + getType().getSimpleName() + " with " + statementCount + " statements");
                 }
             }
 
             showSaveSuccessfulMessage();
 
-            Set<MethodDelegate> listenersToExecute = (Set<MethodDelegate>) ((LinkedHashSet) saveListeners).clone();
-            for (MethodDelegate listener : listenersToExecute) {
+            for (MethodDelegate listener : saveListeners) {
                 listener.execute();
             }
 
             if (executeCloseListeners) {
-                listenersToExecute = (Set<MethodDelegate>) ((LinkedHashSet) closeListeners).clone();
-                for (MethodDelegate listener : listenersToExecute) {
+                for (MethodDelegate listener : closeListeners) {
                     listener.execute();
                 }
             }
@@ -719,20 +739,33 @@ public abstract class EntityForm<T> extends TypedForm<T> {
         }
     }
 
-    private void checkThatToOneSelectionsExist() {
+    /**
+     * Checks that the entity being saved, if not new, and all entities selected in to-one select fields still exist,
+     * checking all entities of the same type with a single query. Concurrent changes to the entity itself are
+     * detected by optimistic locking, when merged.
+     */
+    private void checkThatEntityAndToOneSelectionsExist() {
+        List<Object> entities = new ArrayList<Object>();
+        T entity = getBean();
+        if (genericDao.getId(entity) != null) {
+            entities.add(entity);
+        }
+
         Set<FormField> formFields = getFormFieldSet().getFormFields();
         for (FormField formField : formFields) {
             if (formField.getField() instanceof SelectField) {
                 SelectField selectField = (SelectField) formField.getField();
                 Object selectedValue = selectField.getBean();
                 if (selectedValue != null) {
-                    Object reFoundValue = genericDao.reFind(selectedValue);
-                    if (reFoundValue == null) {
-                        throw new EntityNotFoundException(selectedValue.toString());
-                    }
+                    entities.add(selectedValue);
                 }
             }
         }
+
+        List<Object> nonexistentEntities = genericDao.findNonexistent(entities);
+        if (!nonexistentEntities.isEmpty()) {
+            throw new EntityNotFoundException(nonexistentEntities.get(0).toString());
+        }
     }
 
     /**
@@ -807,38 +840,117 @@ public abstract class EntityForm<T> extends TypedForm<T> {
 
         Set<ConstraintViolation<Object>> constraintViolations = validation.validate(entity);
         for (ConstraintViolation constraintViolation : constraintViolations) {
-            String propertyPath = constraintViolation.getPropertyPath().toString();
+            showConstraintViolation(constraintViolation, null);
+        }
 
-            ConstraintDescriptor descriptor = constraintViolation.getConstraintDescriptor();
-            Annotation annotation = descriptor.getAnnotation();
+        syncTabAndSaveButtonErrors();
 
-            if (propertyPath.isEmpty()) {
-                Validator.InvalidValueException error = new Validator.InvalidValueException(constraintViolation.getMessage());
-                getForm().setComponentError(error);
-            } else {
-                FormField field;
-                if (annotation instanceof AssertTrueForProperties) {
-                    if (propertyPath.lastIndexOf(".") > 0) {
-                        propertyPath = propertyPath.substring(0, propertyPath.lastIndexOf(".") + 1);
-                    } else {
-                        propertyPath = "";
-                    }
-                    AssertTrueForProperties assertTrueForProperties = (AssertTrueForProperties) annotation;
-                    propertyPath += assertTrueForProperties.errorProperty();
-                }
-                if (getFormFieldSet().containsPropertyId(propertyPath)) {
-                    field = getFormFieldSet().getFormField(propertyPath);
-                    if (!field.hasIsRequiredError()) {
-                        Validator.InvalidValueException error = new Validator.InvalidValueException(constraintViolation.getMessage());
-                        field.addError(error);
-                    }
+        return constraintViolations.isEmpty();
+    }
+
+    /**
+     * Incrementally validates this form after a property has changed. Re-validates only the changed property,
+     * the {@link AssertTrueForProperties} assertions that depend on it or on any bean containing it, including
+     * assertions of these beans that declare no dependencies, and fields that currently show errors,
+     * and only updates the errors of these fields and their tabs. Falls back to validating the whole entity,
+     * if the entity or any nested bean on the property path declares class-level constraints.
+     *
+     * @param propertyId id of changed property
+     */
+    public void validateChangedProperty(String propertyId) {
+        BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), propertyId);
+        for (BeanPropertyType ancestor : beanPropertyType.getAncestors()) {
+            if (validation.getPropertyDependencies(ancestor.getContainerType()).hasClassLevelConstraints()) {
+                validate(false);
+                return;
+            }
+        }
+
+        Set<FormField> affectedFields = new LinkedHashSet<FormField>();
+        affectedFields.add(getFormFieldSet().getFormField(propertyId));
+
+        // a nested property change also changes the beans containing it, so assertions of ancestors are affected
+        for (BeanPropertyType ancestor : beanPropertyType.getAncestors()) {
+            PropertyDependencies dependencies = validation.getPropertyDependencies(ancestor.getContainerType());
+            String pathPrefix = getPathPrefix(ancestor);
+            Set<String> assertions = dependencies.getDependentAssertions(ancestor.getLeafId());
+            assertions.addAll(dependencies.getDependentAssertions(propertyId.substring(pathPrefix.length())));
+            for (String assertion : assertions) {
+                String errorPropertyId = pathPrefix + dependencies.getErrorProperty(assertion);
+                if (getFormFieldSet().containsPropertyId(errorPropertyId)) {
+                    affectedFields.add(getFormFieldSet().getFormField(errorPropertyId));
                 }
             }
         }
 
-        syncTabAndSaveButtonErrors();
+        // errors may also be cleared by setters that change other properties
+        for (FormField formField : getFormFieldSet().getFormFields()) {
+            if (formField.hasError()) {
+                affectedFields.add(formField);
+            }
+        }
 
-        return constraintViolations.isEmpty();
+        Set<String> affectedTabNames = new HashSet<String>();
+        for (FormField formField : affectedFields) {
+            formField.clearError(false);
+            validateFormField(formField, affectedFields);
+            affectedTabNames.add(formField.getTabName());
+        }
+
+        syncTabAndSaveButtonErrors(affectedTabNames);
+    }
+
+    private void validateFormField(FormField formField, Set<FormField> affectedFields) {
+        Object entity = getBean();
+        String propertyId = formField.getPropertyId();
+        BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), propertyId);
+        String pathPrefix = getPathPrefix(beanPropertyType);
+        PropertyDependencies dependencies = validation.getPropertyDependencies(beanPropertyType.getContainerType());
+
+        Set<ConstraintViolation<Object>> constraintViolations = new LinkedHashSet<ConstraintViolation<Object>>();
+        constraintViolations.addAll(validation.validateProperty(entity, propertyId));
+        for (String assertion : dependencies.getAssertionsReportedOn(beanPropertyType.getLeafId())) {
+            constraintViolations.addAll(validation.validateProperty(entity, pathPrefix + assertion));
+        }
+
+        for (ConstraintViolation constraintViolation : constraintViolations) {
+            showConstraintViolation(constraintViolation, affectedFields);
+        }
+    }
+
+    private String getPathPrefix(BeanPropertyType beanPropertyType) {
+        String propertyId = beanPropertyType.getId();
+        return propertyId.substring(0, propertyId.length() - beanPropertyType.getLeafId().length());
+    }
+
+    private void showConstraintViolation(ConstraintViolation constraintViolation, Set<FormField> affectedFields) {
+        String propertyPath = constraintViolation.getPropertyPath().toString();
+
+        ConstraintDescriptor descriptor = constraintViolation.getConstraintDescriptor();
+        Annotation annotation = descriptor.getAnnotation();
+
+        if (propertyPath.isEmpty()) {
+            Validator.InvalidValueException error = new Validator.InvalidValueException(constraintViolation.getMessage());
+            getForm().setComponentError(error);
+        } else {
+            FormField field;
+            if (annotation instanceof AssertTrueForProperties) {
+                if (propertyPath.lastIndexOf(".") > 0) {
+                    propertyPath = propertyPath.substring(0, propertyPath.lastIndexOf(".") + 1);
+                } else {
+                    propertyPath = "";
+                }
+                AssertTrueForProperties assertTrueForProperties = (AssertTrueForProperties) annotation;
+                propertyPath += assertTrueForProperties.errorProperty();
+            }
+            if (getFormFieldSet().containsPropertyId(propertyPath)) {
+                field = getFormFieldSet().getFormField(propertyPath);
+                if ((affectedFields == null || affectedFields.contains(field)) && !field.hasIsRequiredError()) {
+                    Validator.InvalidValueException error = new Validator.InvalidValueException(constraintViolation.getMessage());
+                    field.addError(error);
+                }
+            }
+        }
     }
 
     private void clearAllErrors(boolean clearConversionErrors) {
@@ -865,14 +977,22 @@ public abstract class EntityForm<T> extends TypedForm<T> {
      * any validation errors currently exist in any fields.
      */
     public void syncTabAndSaveButtonErrors() {
+        syncTabAndSaveButtonErrors(getFormFieldSet().getViewableTabNames());
+    }
+
+    private void syncTabAndSaveButtonErrors(Set<String> tabNamesToSync) {
         Set<String> tabNames = getFormFieldSet().getViewableTabNames();
         boolean formHasErrors = false;
         for (String tabName : tabNames) {
-            if (getFormFieldSet().hasError(tabName)) {
-                setTabError(tabName, new UserError(uiMessageSource.getMessage("entityForm.tabWithInvalidValues")));
+            if (tabNamesToSync.contains(tabName)) {
+                if (getFormFieldSet().hasError(tabName)) {
+                    setTabError(tabName, new UserError(uiMessageSource.getMessage("entityForm.tabWithInvalidValues")));
+                    formHasErrors = true;
+                } else {
+                    setTabError(tabName, null);
+                }
+            } else if (hasTabError(tabName)) {
                 formHasErrors = true;
-            } else {
-                setTabError(tabName, null);
             }
         }
 
@@ -893,6 +1013,15 @@ public abstract class EntityForm<T> extends TypedForm<T> {
         }
     }
 
+    private boolean hasTabError(String tabName) {
+        TabSheet.Tab tab = getTabByName(tabName);
+        if (tab == null) {
+            return getFormFieldSet().hasError(tabName);
+        } else {
+            return tab.getComponentError() != null;
+        }
+    }
+
     private void backupSaveButtonIcons() {
         saveAndCloseButtonIconBackup = saveAndCloseButton.getIcon();
         saveAndStayOpenButtonIconBackup = saveAndStayOpenButton.getIcon();
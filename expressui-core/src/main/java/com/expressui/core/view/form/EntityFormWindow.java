@@ -42,8 +42,8 @@ import com.expressui.core.util.MethodDelegate;
 import com.vaadin.ui.VerticalLayout;
 import com.vaadin.ui.Window;
 
-import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Popup window for displaying entity form.
@@ -53,7 +53,7 @@ public class EntityFormWindow extends Window {
     private ResultsConnectedEntityForm resultsConnectedEntityForm;
     private EntityForm entityForm;
 
-    private Set<MethodDelegate> closeListeners = new LinkedHashSet<MethodDelegate>();
+    private Set<MethodDelegate> closeListeners = new CopyOnWriteArraySet<MethodDelegate>();
 
     /**
      * Constructs window to display entity form that is not connected to results, in other words, where the
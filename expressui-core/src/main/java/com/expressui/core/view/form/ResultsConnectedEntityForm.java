@@ -43,9 +43,8 @@ import com.expressui.core.view.results.WalkableResults;
 import com.vaadin.terminal.ThemeResource;
 import com.vaadin.ui.*;
 
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * An entity form connected to results, allowing user to walk through the current
@@ -58,7 +57,7 @@ public class ResultsConnectedEntityForm<T> extends CustomComponent {
     private EntityForm<T> entityForm;
     private WalkableResults results;
 
-    private Set<MethodDelegate> walkListeners = new LinkedHashSet<MethodDelegate>();
+    private Set<MethodDelegate> walkListeners = new CopyOnWriteArraySet<MethodDelegate>();
 
     public ResultsConnectedEntityForm(EntityForm<T> entityForm, WalkableResults results) {
         this.entityForm = entityForm;
@@ -195,16 +194,6 @@ public class ResultsConnectedEntityForm<T> extends CustomComponent {
      * @param target target object from which to remove all listeners
      */
     public void removeListeners(Object target) {
-        Set<MethodDelegate> listenersToRemove;
-
-        listenersToRemove = new HashSet<MethodDelegate>();
-        for (MethodDelegate walkListener : walkListeners) {
-            if (walkListener.getTarget().equals(target)) {
-                listenersToRemove.add(walkListener);
-            }
-        }
-        for (MethodDelegate listener : listenersToRemove) {
-            walkListeners.remove(listener);
-        }
+        MethodDelegate.removeAll(walkListeners, target);
     }
 }
@@ -37,15 +37,26 @@
 
 package com.expressui.core.view.page;
 
-import java.util.HashMap;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Place for storing beans during a page conversation, which exists for as long as user remains on a single page.
+ * When the conversation is destroyed, the destruction callbacks registered by Spring, e.g. for methods annotated
+ * with {@link javax.annotation.PreDestroy}, are run and the beans are released.
  */
 public class PageConversation {
+    private final Logger log = Logger.getLogger(getClass());
+
     private String id;
-    private Map<String, Object> beans = new HashMap<String, Object>();
+    private Map<String, Object> beans = new LinkedHashMap<String, Object>();
+    private Map<String, Runnable> destructionCallbacks = new LinkedHashMap<String, Runnable>();
+    private boolean destroyed;
 
     public PageConversation(String id) {
         this.id = id;
@@ -81,12 +92,13 @@ public class PageConversation {
     }
 
     /**
-     * Removes a bean from this conversation's storage.
+     * Removes a bean from this conversation's storage, along with its destruction callback, which is not run.
      *
      * @param key key
      * @return removed bean
      */
     public Object remove(String key) {
+        destructionCallbacks.remove(key);
         return beans.remove(key);
     }
 
@@ -99,4 +111,74 @@ public class PageConversation {
     public boolean containsKey(String key) {
         return beans.containsKey(key);
     }
+
+    /**
+     * Asks if this conversation contains the given bean instance.
+     *
+     * @param bean bean instance
+     * @return true if this conversation contains the bean instance
+     */
+    public boolean containsBean(Object bean) {
+        for (Object value : beans.values()) {
+            if (value == bean) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the keys of all beans in this conversation's storage.
+     *
+     * @return unmodifiable list of bean keys
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(new ArrayList<String>(beans.keySet()));
+    }
+
+    /**
+     * Registers a callback to be run when this conversation is destroyed.
+     *
+     * @param key                 key of the bean to be destroyed
+     * @param destructionCallback callback that destroys the bean
+     */
+    public void registerDestructionCallback(String key, Runnable destructionCallback) {
+        destructionCallbacks.put(key, destructionCallback);
+    }
+
+    /**
+     * Asks if this conversation has been destroyed.
+     *
+     * @return true if destroyed
+     */
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Destroys this conversation, running destruction callbacks in the reverse order of registration and
+     * releasing all beans. Failing callbacks are logged, so that remaining beans are still destroyed.
+     */
+    public void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+
+        List<Map.Entry<String, Runnable>> callbacks =
+                new ArrayList<Map.Entry<String, Runnable>>(destructionCallbacks.entrySet());
+        Collections.reverse(callbacks);
+        for (Map.Entry<String, Runnable> callback : callbacks) {
+            try {
+                callback.getValue().run();
+            } catch (RuntimeException e) {
+                log.error("Failed to destroy page-scoped bean " + callback.getKey()
+                        + " in conversation " + id, e);
+            }
+        }
+
+        destructionCallbacks.clear();
+        beans.clear();
+    }
 }
@@ -44,8 +44,9 @@ import org.springframework.beans.factory.config.Scope;
 
 /**
  * Beans in PageScope live as long as the user remains on a single Page.
- * When user changes Pages, a new PageConversation is started and the previous one is discarded,
- * meaning all beans in the old conversation are also discarded.
+ * When user changes Pages, a new PageConversation is started and the previous one is destroyed,
+ * meaning all beans in the old conversation are also destroyed and discarded. The number of live conversations
+ * per session is also bounded, see {@link com.expressui.core.util.ApplicationProperties#getMaxPageConversations()}.
  * <p/>
  * Using SCOPE_PAGE instead of SCOPE_SESSION results in a small delay but lower memory consumption, since
  * page-scoped beans are discarded from the session when the user switches pages.
@@ -79,6 +80,9 @@ public class PageScope implements Scope {
 
     @Override
     public void registerDestructionCallback(String key, Runnable destructionCallback) {
+        Assert.PROGRAMMING.notNull(currentPageConversation());
+
+        currentPageConversation().registerDestructionCallback(key, destructionCallback);
     }
 
     @Override
@@ -43,6 +43,7 @@ import com.expressui.core.view.results.Results;
 import com.vaadin.ui.Alignment;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 /**
  * A page consisting of a SearchForm and Results for working with entities of a particular type.
@@ -78,6 +79,15 @@ public abstract class SearchPage<T> extends TypedComponent<T> implements Page {
         addCodePopupButtonIfEnabled(Alignment.TOP_LEFT, SearchPage.class);
     }
 
+    /**
+     * Lifecycle method called when this page is destroyed, e.g. when its page conversation ends, and releases
+     * entities held by the results.
+     */
+    @PreDestroy
+    public void preDestroy() {
+        getResults().releaseResults();
+    }
+
     @Override
     public void postWire() {
         super.postWire();
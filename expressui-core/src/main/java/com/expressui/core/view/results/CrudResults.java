@@ -55,7 +55,9 @@ import org.vaadin.dialogs.ConfirmDialog;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Results with CRUD buttons to create, view, edit and delete selected items in the results.
@@ -248,11 +250,7 @@ public abstract class CrudResults<T> extends Results<T> implements WalkableResul
     public void editOrViewPreviousItem() {
         Object previousItemId = getResultsTable().getContainerDataSource().prevItemId(currentItemId);
         if (previousItemId == null) {
-            if (getEntityQuery().hasPreviousPage()) {
-                getResultsTable().previousPage();
-            } else {
-                getResultsTable().lastPage();
-            }
+            turnPageSynchronously(false);
             previousItemId = getResultsTable().getContainerDataSource().lastItemId();
         }
         if (previousItemId != null) {
@@ -268,11 +266,7 @@ public abstract class CrudResults<T> extends Results<T> implements WalkableResul
     public void editOrViewNextItem() {
         Object nextItemId = getResultsTable().getContainerDataSource().nextItemId(currentItemId);
         if (nextItemId == null) {
-            if (getEntityQuery().hasNextPage()) {
-                getResultsTable().nextPage();
-            } else {
-                getResultsTable().firstPage();
-            }
+            turnPageSynchronously(true);
             nextItemId = getResultsTable().getContainerDataSource().firstItemId();
         }
 
@@ -285,17 +279,47 @@ public abstract class CrudResults<T> extends Results<T> implements WalkableResul
         }
     }
 
+    /**
+     * Goes to the next or previous page, wrapping around, and executes the query synchronously even if async
+     * query is enabled, since the item to load must be in the results table right away.
+     */
+    private void turnPageSynchronously(boolean isNext) {
+        ResultsTable resultsTable = getResultsTable();
+        boolean isAsyncQuery = resultsTable.isAsyncQuery();
+        resultsTable.setAsyncQuery(false);
+        try {
+            if (isNext) {
+                if (getEntityQuery().hasNextPage()) {
+                    resultsTable.nextPage();
+                } else {
+                    resultsTable.firstPage();
+                }
+            } else {
+                if (getEntityQuery().hasPreviousPage()) {
+                    resultsTable.previousPage();
+                } else {
+                    resultsTable.lastPage();
+                }
+            }
+        } finally {
+            resultsTable.setAsyncQuery(isAsyncQuery);
+        }
+    }
+
     private void deleteConfirmed() {
         Collection itemIds = (Collection) getResultsTable().getValue();
+        List<T> entities = new ArrayList<T>(itemIds.size());
         for (Object itemId : itemIds) {
             BeanItem<T> beanItem = getResultsTable().getContainerDataSource().getItem(itemId);
             T entity = beanItem.getBean();
             preDelete(entity);
-            if (getEntityDao() == null) {
-                genericDao.remove(entity);
-            } else {
-                getEntityDao().remove(entity);
-            }
+            entities.add(entity);
+        }
+
+        if (getEntityDao() == null) {
+            genericDao.remove(entities);
+        } else {
+            getEntityDao().remove(entities);
         }
 
         showDeleteSuccessfulMessage();
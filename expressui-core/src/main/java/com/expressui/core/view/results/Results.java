@@ -37,10 +37,15 @@
 
 package com.expressui.core.view.results;
 
+import com.expressui.core.dao.query.AsyncQueryExecutor;
 import com.expressui.core.dao.query.EntityQuery;
 import com.expressui.core.view.TypedComponent;
 import com.expressui.core.view.export.ExportForm;
+import com.expressui.core.view.export.ExportFormat;
 import com.expressui.core.view.export.ExportParameters;
+import com.expressui.core.view.export.ExportWriterFactory;
+import com.expressui.core.view.export.ExportWriterRegistry;
+import com.expressui.core.view.export.ResultsExport;
 import com.vaadin.addon.tableexport.ExcelExport;
 import com.vaadin.data.Property;
 import com.vaadin.data.util.MethodProperty;
@@ -67,12 +72,19 @@ public abstract class Results<T> extends TypedComponent<T> {
     @Resource
     private ExportForm exportForm;
 
+    @Resource
+    private ExportWriterRegistry exportWriterRegistry;
+
     @Resource
     private ResultsFieldSet resultsFieldSet;
 
+    @Resource
+    private AsyncQueryExecutor asyncQueryExecutor;
+
     private ResultsTable resultsTable;
     private TextField firstResultTextField;
     private Label resultCountLabel;
+    private ProgressIndicator executingQueryIndicator;
 
     private Select pageSizeMenu;
     private Button firstButton;
@@ -120,6 +132,10 @@ public abstract class Results<T> extends TypedComponent<T> {
         return resultsTable;
     }
 
+    AsyncQueryExecutor getAsyncQueryExecutor() {
+        return asyncQueryExecutor;
+    }
+
     /**
      * Gets horizontal layout of CRUD buttons.
      *
@@ -167,6 +183,20 @@ public abstract class Results<T> extends TypedComponent<T> {
         exportForm.postWire();
     }
 
+    /**
+     * Releases the entities held by the results table and the query criteria, e.g. when the page containing these
+     * results is destroyed.
+     */
+    public void releaseResults() {
+        if (resultsTable != null) {
+            resultsTable.cancelCurrentQuery();
+        }
+        if (resultsTable != null && resultsTable.getContainerDataSource() != null) {
+            resultsTable.getContainerDataSource().removeAllItems();
+        }
+        getEntityQuery().clear();
+    }
+
     /**
      * Configures the results table. Maybe overridden to make any configuration changes to the Vaadin table component.
      *
@@ -204,6 +234,14 @@ public abstract class Results<T> extends TypedComponent<T> {
         refreshButton.setIcon(new ThemeResource("../expressui/icons/16/refresh-blue.png"));
         resultCountDisplay.addComponent(refreshButton);
 
+        executingQueryIndicator = new ProgressIndicator();
+        executingQueryIndicator.setIndeterminate(true);
+        executingQueryIndicator.setPollingInterval(500);
+        executingQueryIndicator.setDescription(uiMessageSource.getMessage("results.loading"));
+        executingQueryIndicator.setVisible(false);
+        resultCountDisplay.addComponent(executingQueryIndicator);
+        resultCountDisplay.setComponentAlignment(executingQueryIndicator, Alignment.MIDDLE_LEFT);
+
         HorizontalLayout navigationButtons = new HorizontalLayout();
         setDebugId(navigationButtons, "navigationButtons");
         navigationButtons.setMargin(false, true, false, false);
@@ -308,6 +346,15 @@ public abstract class Results<T> extends TypedComponent<T> {
         return firstResultTextField;
     }
 
+    /**
+     * Shows the loading indicator, which also polls for results, while a query is executed in the background.
+     *
+     * @param isExecutingQuery true if a query is being executed in the background
+     */
+    void setExecutingQuery(boolean isExecutingQuery) {
+        executingQueryIndicator.setVisible(isExecutingQuery);
+    }
+
     void refreshNavigationButtonStates() {
         firstButton.setEnabled(getEntityQuery().hasPreviousPage());
         previousButton.setEnabled(getEntityQuery().hasPreviousPage());
@@ -343,7 +390,10 @@ public abstract class Results<T> extends TypedComponent<T> {
      * @param pageSize new page size
      */
     public void setPageSize(int pageSize) {
-        getEntityQuery().setPageSize(pageSize);
+        EntityQuery query = getResultsTable().cancelCurrentQuery();
+        synchronized (query) {
+            query.setPageSize(pageSize);
+        }
     }
 
     /**
@@ -412,7 +462,10 @@ public abstract class Results<T> extends TypedComponent<T> {
      * @param clearSelection true if row selection should be cleared
      */
     protected void searchImpl(boolean clearSelection) {
-        getEntityQuery().firstPage();
+        EntityQuery query = getResultsTable().cancelCurrentQuery();
+        synchronized (query) {
+            query.firstPage();
+        }
         getResultsTable().executeCurrentQuery();
 
         if (clearSelection) {
@@ -442,10 +495,18 @@ public abstract class Results<T> extends TypedComponent<T> {
      */
     protected void refreshFirstResultAndCount() {
         EntityQuery query = getEntityQuery();
-        String caption = uiMessageSource.getMessage("results.caption",
-                new Object[]{
-                        query.getResultCount() == 0 ? 0 : query.getLastResult(),
-                        query.getResultCount()});
+        String caption;
+        if (query.isResultCountEstimated()) {
+            caption = uiMessageSource.getMessage("results.caption.estimated",
+                    new Object[]{
+                            query.getLastResult(),
+                            query.getResultCount() - 1});
+        } else {
+            caption = uiMessageSource.getMessage("results.caption",
+                    new Object[]{
+                            query.getResultCount() == 0 ? 0 : query.getLastResult(),
+                            query.getResultCount()});
+        }
 
         PropertyFormatter propertyFormatter = defaultFormats.getNumberFormat(0, 1);
         propertyFormatter.setPropertyDataSource(new MethodProperty(getResultsTable(), "firstResult"));
@@ -480,10 +541,21 @@ public abstract class Results<T> extends TypedComponent<T> {
 
     /**
      * Exports the single page of displayed data to Excel, using parameters configured by the user in the popup form.
+     * If user chose to export all results or another format, streams the export instead, see ResultsExport.
      */
     public void exportToExcel() {
         ExportParameters exportParameters = exportForm.getExportParameters();
 
+        ExportWriterFactory exportWriterFactory = exportWriterRegistry.getFactory(exportParameters.getExportFormat());
+        if (exportWriterFactory == null) {
+            exportWriterFactory = ExportFormat.EXCEL;
+        }
+        ResultsExport resultsExport = new ResultsExport(this, exportParameters, exportWriterFactory.createWriter());
+        if (exportWriterFactory != ExportFormat.EXCEL || resultsExport.isExportAllResults()) {
+            resultsExport.export();
+            return;
+        }
+
         ExcelExport excelExport = new ExcelExport(getResultsTable(), exportParameters.getWorkbookName(),
                 exportParameters.getSheetName());
         if (exportParameters.getDateFormat() != null) {
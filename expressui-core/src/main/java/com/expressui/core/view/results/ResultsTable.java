@@ -37,6 +37,7 @@
 
 package com.expressui.core.view.results;
 
+import com.expressui.core.dao.query.AsyncQueryExecutor;
 import com.expressui.core.dao.query.EntityQuery;
 import com.expressui.core.util.MethodDelegate;
 import com.expressui.core.view.field.DisplayField;
@@ -45,6 +46,7 @@ import com.expressui.core.view.field.ResultsField;
 import com.expressui.core.view.field.format.EmptyPropertyFormatter;
 import com.expressui.core.view.form.EntityForm;
 import com.expressui.core.view.form.EntityFormWindow;
+import com.vaadin.Application;
 import com.vaadin.data.Container;
 import com.vaadin.data.Property;
 import com.vaadin.data.util.BeanItem;
@@ -54,22 +56,31 @@ import com.vaadin.data.util.PropertyFormatter;
 import com.vaadin.terminal.Sizeable;
 import com.vaadin.ui.*;
 import com.vaadin.ui.themes.BaseTheme;
+import org.apache.commons.beanutils.NestedNullException;
 import org.apache.commons.beanutils.PropertyUtils;
+import org.hibernate.Hibernate;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Table for displaying results.
+ * <p/>
+ * If async query is enabled, see {@link #setAsyncQuery(boolean)}, queries are executed in the background and
+ * results are added to the table once found, while a loading indicator polls for them. Executing another query,
+ * e.g. when the user pages again, cancels the query in progress, so fast paging does not pile up database work.
  */
 public class ResultsTable extends Table {
 
     private Results results;
-    private Set<MethodDelegate> executeQueryListeners = new LinkedHashSet<MethodDelegate>();
+    private Set<MethodDelegate> executeQueryListeners = new CopyOnWriteArraySet<MethodDelegate>();
 
+    private boolean isAsyncQuery;
+    private AsyncQueryExecutor.Execution currentExecution;
+    private boolean isSelectFirstItemWhenExecuted;
 
     protected ResultsTable(Results results) {
         this.results = results;
@@ -80,6 +91,7 @@ public class ResultsTable extends Table {
     private void initialize() {
         setSizeUndefined();
         alwaysRecalculateColumnWidths = true;
+        isAsyncQuery = results.applicationProperties.isAsyncQueries();
         setEditable(true); // set to enable Form links
         setTableFieldFactory(new TableButtonLinkFactory());
 
@@ -135,6 +147,34 @@ public class ResultsTable extends Table {
         enableContentRefreshing(true);
     }
 
+    /**
+     * Asks if queries are executed in the background. Default is configured in application properties.
+     *
+     * @return true if queries are executed in the background
+     * @see com.expressui.core.util.ApplicationProperties#isAsyncQueries()
+     */
+    public boolean isAsyncQuery() {
+        return isAsyncQuery;
+    }
+
+    /**
+     * Sets whether queries are executed in the background.
+     *
+     * @param isAsyncQuery true if queries should be executed in the background
+     */
+    public void setAsyncQuery(boolean isAsyncQuery) {
+        this.isAsyncQuery = isAsyncQuery;
+    }
+
+    /**
+     * Asks if a query is being executed in the background.
+     *
+     * @return true if results are being loaded
+     */
+    public boolean isExecutingQuery() {
+        return currentExecution != null;
+    }
+
     @Override
     public BeanItemContainer getContainerDataSource() {
         return (BeanItemContainer) super.getContainerDataSource();
@@ -146,11 +186,14 @@ public class ResultsTable extends Table {
             throw new RuntimeException("Cannot sort on more than one column");
         } else if (propertyId.length == 1) {
             if (results.getResultsFieldSet().getResultsField(propertyId[0].toString()).isSortable()) {
-                results.getEntityQuery().setOrderByPropertyId(propertyId[0].toString());
-                if (ascending[0]) {
-                    results.getEntityQuery().setOrderDirection(EntityQuery.OrderDirection.ASC);
-                } else {
-                    results.getEntityQuery().setOrderDirection(EntityQuery.OrderDirection.DESC);
+                EntityQuery query = cancelCurrentQuery();
+                synchronized (query) {
+                    query.setOrderByPropertyId(propertyId[0].toString());
+                    if (ascending[0]) {
+                        query.setOrderDirection(EntityQuery.OrderDirection.ASC);
+                    } else {
+                        query.setOrderDirection(EntityQuery.OrderDirection.DESC);
+                    }
                 }
                 firstPage();
             } else {
@@ -187,7 +230,10 @@ public class ResultsTable extends Table {
      */
     public void setFirstResult(int firstResult) {
         clearSelection();
-        results.getEntityQuery().setFirstResult(firstResult - 1);
+        EntityQuery query = cancelCurrentQuery();
+        synchronized (query) {
+            query.setFirstResult(firstResult - 1);
+        }
         executeCurrentQuery();
         selectFirstItemInCurrentPage();
     }
@@ -206,7 +252,10 @@ public class ResultsTable extends Table {
      */
     public void firstPage() {
         clearSelection();
-        results.getEntityQuery().firstPage();
+        EntityQuery query = cancelCurrentQuery();
+        synchronized (query) {
+            query.firstPage();
+        }
         executeCurrentQuery();
         selectFirstItemInCurrentPage();
     }
@@ -216,7 +265,10 @@ public class ResultsTable extends Table {
      */
     public void previousPage() {
         clearSelection();
-        results.getEntityQuery().previousPage();
+        EntityQuery query = cancelCurrentQuery();
+        synchronized (query) {
+            query.previousPage();
+        }
         executeCurrentQuery();
         selectFirstItemInCurrentPage();
     }
@@ -226,7 +278,10 @@ public class ResultsTable extends Table {
      */
     public void nextPage() {
         clearSelection();
-        results.getEntityQuery().nextPage();
+        EntityQuery query = cancelCurrentQuery();
+        synchronized (query) {
+            query.nextPage();
+        }
         executeCurrentQuery();
         selectFirstItemInCurrentPage();
     }
@@ -236,16 +291,57 @@ public class ResultsTable extends Table {
      */
     public void lastPage() {
         clearSelection();
-        results.getEntityQuery().lastPage();
+        EntityQuery query = cancelCurrentQuery();
+        synchronized (query) {
+            query.lastPage();
+        }
         executeCurrentQuery();
         selectFirstItemInCurrentPage();
     }
 
     /**
-     * Executes the current query.
+     * Executes the current query. If async query is enabled and this table is attached to an application,
+     * the query is executed in the background and this method returns right away.
      */
     public void executeCurrentQuery() {
-        List entities = results.getEntityQuery().execute();
+        cancelCurrentQuery();
+
+        Application application = getApplication();
+        if (!isAsyncQuery || application == null) {
+            List entities;
+            EntityQuery query = results.getEntityQuery();
+            synchronized (query) {
+                entities = query.execute();
+            }
+            showResults(entities);
+            return;
+        }
+
+        getContainerDataSource().removeAllItems();
+        isSelectFirstItemWhenExecuted = false;
+        results.setExecutingQuery(true);
+
+        ExecutionCallback callback = new ExecutionCallback(application);
+        currentExecution = results.getAsyncQueryExecutor().execute(results.getEntityQuery(), callback);
+        callback.execution = currentExecution;
+    }
+
+    /**
+     * Cancels the query being executed in the background, if any, so that its results are discarded.
+     *
+     * @return the current query, which callers should synchronize on while changing its paging state
+     */
+    public EntityQuery cancelCurrentQuery() {
+        if (currentExecution != null) {
+            currentExecution.cancel();
+            currentExecution = null;
+            results.setExecutingQuery(false);
+        }
+
+        return results.getEntityQuery();
+    }
+
+    private void showResults(List entities) {
         getContainerDataSource().removeAllItems();
         getContainerDataSource().addAll(entities);
 
@@ -253,12 +349,34 @@ public class ResultsTable extends Table {
         results.refreshNavigationButtonStates();
         setPageLength(Math.min(entities.size(), results.getPageSize()));
 
-        Set<MethodDelegate> listenersToExecute = (Set<MethodDelegate>) ((LinkedHashSet) executeQueryListeners).clone();
-        for (MethodDelegate listener : listenersToExecute) {
+        for (MethodDelegate listener : executeQueryListeners) {
             listener.execute();
         }
     }
 
+    /**
+     * Initializes lazy properties displayed in the table while the EntityManager used for querying is still open,
+     * since results loaded in the background are only rendered in a later request.
+     */
+    private void initializeViewableProperties(List entities) {
+        String[] propertyIds = results.getResultsFieldSet().getViewablePropertyIdsAsArray();
+        for (Object entity : entities) {
+            for (String propertyId : propertyIds) {
+                try {
+                    Hibernate.initialize(PropertyUtils.getProperty(entity, propertyId));
+                } catch (NestedNullException e) {
+                    // nothing to initialize
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                } catch (InvocationTargetException e) {
+                    throw new RuntimeException(e);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
     /**
      * Clears any selected rows.
      */
@@ -275,7 +393,9 @@ public class ResultsTable extends Table {
      * Selects the first row in the current page.
      */
     public void selectFirstItemInCurrentPage() {
-        if (firstItemId() != null) {
+        if (isExecutingQuery()) {
+            isSelectFirstItemWhenExecuted = true;
+        } else if (firstItemId() != null) {
             select(firstItemId());
         }
     }
@@ -297,6 +417,55 @@ public class ResultsTable extends Table {
         }
     }
 
+    /**
+     * Shows results of a query executed in the background, unless another query has been executed since.
+     * Results are shown while holding the application lock, since they arrive outside of any request.
+     */
+    private class ExecutionCallback implements AsyncQueryExecutor.Callback {
+        private final Application application;
+        private final String failedMessage;
+        private AsyncQueryExecutor.Execution execution;
+
+        private ExecutionCallback(Application application) {
+            this.application = application;
+            failedMessage = results.uiMessageSource.getMessage("results.queryFailed");
+        }
+
+        @Override
+        public void executed(List entities) {
+            initializeViewableProperties(entities);
+            synchronized (application) {
+                if (isCurrent()) {
+                    finish();
+                    showResults(entities);
+                    if (isSelectFirstItemWhenExecuted) {
+                        selectFirstItemInCurrentPage();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void failed(RuntimeException e) {
+            synchronized (application) {
+                if (isCurrent()) {
+                    finish();
+                    application.getMainWindow().showNotification(failedMessage,
+                            Window.Notification.TYPE_ERROR_MESSAGE);
+                }
+            }
+        }
+
+        private boolean isCurrent() {
+            return execution != null && execution == currentExecution;
+        }
+
+        private void finish() {
+            currentExecution = null;
+            results.setExecutingQuery(false);
+        }
+    }
+
     private class TableButtonLinkFactory implements TableFieldFactory {
         @Override
         public Field createField(Container container, Object itemId,
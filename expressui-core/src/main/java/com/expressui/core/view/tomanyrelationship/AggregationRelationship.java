@@ -38,6 +38,7 @@
 package com.expressui.core.view.tomanyrelationship;
 
 import com.expressui.core.util.CollectionsUtil;
+import com.expressui.core.util.ReflectionUtil;
 import com.expressui.core.view.entityselect.EntitySelect;
 import com.vaadin.terminal.ThemeResource;
 import com.vaadin.ui.Alignment;
@@ -47,8 +48,11 @@ import org.apache.commons.beanutils.PropertyUtils;
 import org.vaadin.dialogs.ConfirmDialog;
 
 import javax.annotation.PostConstruct;
+import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Results containing entities in a to-many aggregation relationship.
@@ -138,26 +142,43 @@ public abstract class AggregationRelationship<T> extends ToManyRelationship<T> {
 
     /**
      * Invoked when user confirms that she really wants to remove values.
+     * <p/>
+     * Unless {@link #preRemove} is overridden, references to the parent are removed with a set-based update, which
+     * bypasses entity listeners such as @PreUpdate callbacks and detaches any managed instances of the values.
      *
      * @param values values to be removed
      */
     public void removeConfirmed(T... values) {
-        for (T value : values) {
-            value = genericDao.getReference(value);
-            preRemove(value);
-            try {
-                PropertyUtils.setProperty(value, getParentPropertyId(), null);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException(e);
-            } catch (NoSuchMethodException e) {
-                throw new RuntimeException(e);
+        if (ReflectionUtil.isOverridden(getClass(), AggregationRelationship.class, "preRemove", Object.class)) {
+            List<T> referenceValues = new ArrayList<T>(values.length);
+            for (T value : values) {
+                T referenceValue = genericDao.getReference(value);
+                preRemove(referenceValue);
+                try {
+                    PropertyUtils.setProperty(referenceValue, getParentPropertyId(), null);
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                } catch (InvocationTargetException e) {
+                    throw new RuntimeException(e);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException(e);
+                }
+                referenceValues.add(referenceValue);
             }
             if (getEntityDao() == null) {
-                genericDao.persist(value);
+                genericDao.persist(referenceValues);
             } else {
-                getEntityDao().persist(value);
+                getEntityDao().persist(referenceValues);
+            }
+        } else {
+            List<Serializable> ids = new ArrayList<Serializable>(values.length);
+            for (T value : values) {
+                ids.add(genericDao.getId(value));
+            }
+            if (getEntityDao() == null) {
+                genericDao.updateParentReference(getType(), ids, getParentPropertyId(), null);
+            } else {
+                getEntityDao().updateParentReference(ids, getParentPropertyId(), null);
             }
         }
         showRemoveSuccessful();
@@ -43,6 +43,8 @@ import com.expressui.core.util.ReflectionUtil;
 import com.expressui.core.util.assertion.Assert;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Results of related entities in a many-to-many, aggregation relationship.
@@ -78,16 +80,19 @@ public abstract class ManyToManyRelationship<T, A> extends AggregationRelationsh
 
     @Override
     public void setReferencesToParentAndPersist(T... values) {
+        BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), getParentPropertyId());
+        Assert.PROGRAMMING.isTrue(beanPropertyType.isCollectionType(),
+                "Parent property id (" + getType() + "." + getParentPropertyId() + ") must be a collection type");
+
+        List<A> associationEntities = new ArrayList<A>(values.length);
         for (T value : values) {
-            BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), getParentPropertyId());
-            Assert.PROGRAMMING.isTrue(beanPropertyType.isCollectionType(),
-                    "Parent property id (" + getType() + "." + getParentPropertyId() + ") must be a collection type");
             A associationEntity = createAssociationEntity(value);
             if (!getAssociationDao().isPersistent(associationEntity)) {
-                getAssociationDao().persist(associationEntity);
+                associationEntities.add(associationEntity);
             }
-            searchImpl(false);
         }
+        getAssociationDao().persist(associationEntities);
+        searchImpl(false);
     }
 
     @Override
@@ -96,14 +101,15 @@ public abstract class ManyToManyRelationship<T, A> extends AggregationRelationsh
 
     @Override
     public void removeConfirmed(T... values) {
-        for (T value : values) {
-            BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), getParentPropertyId());
-            Assert.PROGRAMMING.isTrue(beanPropertyType.isCollectionType(),
-                    "Parent property id (" + getType() + "." + getParentPropertyId() + ") must be a collection type");
+        BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), getParentPropertyId());
+        Assert.PROGRAMMING.isTrue(beanPropertyType.isCollectionType(),
+                "Parent property id (" + getType() + "." + getParentPropertyId() + ") must be a collection type");
 
-            A associationEntity = createAssociationEntity(value);
-            getAssociationDao().remove(associationEntity);
+        List<A> associationEntities = new ArrayList<A>(values.length);
+        for (T value : values) {
+            associationEntities.add(createAssociationEntity(value));
         }
+        getAssociationDao().remove(associationEntities);
         searchImpl(false);
         clearSelection();
         syncCrudActions();
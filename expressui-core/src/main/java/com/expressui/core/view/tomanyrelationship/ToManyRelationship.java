@@ -39,11 +39,15 @@ package com.expressui.core.view.tomanyrelationship;
 
 import com.expressui.core.dao.query.ToManyRelationshipQuery;
 import com.expressui.core.util.BeanPropertyType;
+import com.expressui.core.util.ReflectionUtil;
 import com.expressui.core.util.assertion.Assert;
 import com.expressui.core.view.results.CrudResults;
 import org.apache.commons.beanutils.PropertyUtils;
 
+import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Results containing entities in a to-many relationship.
@@ -87,18 +91,41 @@ public abstract class ToManyRelationship<T> extends CrudResults<T> {
     }
 
     /**
-     * Sets references inside given values to the parent and then persists all values.
+     * Sets references inside given persistent values to the parent and persists all values in one transaction.
+     * <p/>
+     * Unless {@link #setReferenceToParent} is overridden, this uses a set-based update, which bypasses entity
+     * listeners such as @PreUpdate callbacks and detaches any managed instances of the values. Given values are
+     * stale afterwards and results are reloaded. Override setReferenceToParent to have each value loaded, updated
+     * and merged through JPA instead.
      *
      * @param values values in which to set reference
      */
     public void setReferencesToParentAndPersist(T... values) {
-        for (T value : values) {
-            T referenceValue = genericDao.getReference(value);
-            setReferenceToParent(referenceValue);
+        BeanPropertyType beanPropertyType = BeanPropertyType.getBeanPropertyType(getType(), getParentPropertyId());
+        Assert.PROGRAMMING.isTrue(!beanPropertyType.isCollectionType(),
+                "Parent property id (" + getType() + "." + getParentPropertyId() + ") must not be a collection type");
+
+        if (ReflectionUtil.isOverridden(getClass(), ToManyRelationship.class, "setReferenceToParent", Object.class)) {
+            List<T> referenceValues = new ArrayList<T>(values.length);
+            for (T value : values) {
+                T referenceValue = genericDao.getReference(value);
+                setReferenceToParent(referenceValue);
+                referenceValues.add(referenceValue);
+            }
+            if (getEntityDao() == null) {
+                genericDao.persist(referenceValues);
+            } else {
+                getEntityDao().persist(referenceValues);
+            }
+        } else {
+            List<Serializable> ids = new ArrayList<Serializable>(values.length);
+            for (T value : values) {
+                ids.add(genericDao.getId(value));
+            }
             if (getEntityDao() == null) {
-                genericDao.persist(referenceValue);
+                genericDao.updateParentReference(getType(), ids, getParentPropertyId(), getEntityQuery().getParent());
             } else {
-                getEntityDao().persist(referenceValue);
+                getEntityDao().updateParentReference(ids, getParentPropertyId(), getEntityQuery().getParent());
             }
         }
         searchImpl(false);
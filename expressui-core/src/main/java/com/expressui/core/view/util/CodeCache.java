@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.util;
+
+import com.expressui.core.util.ApplicationProperties;
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Application-wide cache of source code fetched for display in code popups. Holds at most
+ * {@link ApplicationProperties#getCodePopupCacheSize()} snippets, evicting the least recently used.
+ * Snippets older than {@link ApplicationProperties#getCodePopupCacheTimeToLive()} are revalidated with a
+ * conditional request, using the ETag and Last-Modified headers of the previous response, so that unchanged code
+ * is not downloaded again. If the code host cannot be reached, a stale snippet is used rather than failing.
+ * <p/>
+ * Fetches time out after {@link ApplicationProperties#getCodePopupTimeout()} and can run in the background,
+ * see {@link #fetch(String, Callback)}, so that a slow code host never blocks the UI.
+ */
+@Component
+public class CodeCache {
+
+    private final Logger log = Logger.getLogger(getClass());
+
+    @Resource
+    private ApplicationProperties applicationProperties;
+
+    private Map<String, Snippet> snippets;
+
+    private ExecutorService fetchExecutor;
+
+    @PostConstruct
+    public void postConstruct() {
+        final int maxSize = applicationProperties.getCodePopupCacheSize();
+        snippets = new LinkedHashMap<String, Snippet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snippet> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        fetchExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "code-popup-fetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Gets code from the cache without fetching, if it was fetched or revalidated recently enough.
+     *
+     * @param url URL of source file
+     * @return cached code or null if not cached or due for revalidation
+     */
+    public String getIfFresh(String url) {
+        Snippet snippet = getSnippet(url);
+        if (snippet != null && !isStale(snippet)) {
+            return snippet.code;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Fetches code in the background and notifies the given callback, from a background thread, once code has
+     * been fetched or fetching failed.
+     *
+     * @param url      URL of source file
+     * @param callback callback to notify
+     */
+    public void fetch(final String url, final Callback callback) {
+        fetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String code;
+                try {
+                    code = get(url);
+                } catch (IOException e) {
+                    log.warn("Failed to fetch code from " + url + ": " + e.getMessage());
+                    callback.failed(e);
+                    return;
+                }
+                callback.fetched(code);
+            }
+        });
+    }
+
+    /**
+     * Gets code, fetching or revalidating it if it is not cached or is due for revalidation. Blocks until code
+     * is fetched or the fetch times out.
+     *
+     * @param url URL of source file
+     * @return code, starting with the first annotation or class declaration
+     * @throws IOException if code could not be fetched and is not cached
+     */
+    public String get(String url) throws IOException {
+        Snippet snippet = getSnippet(url);
+        if (snippet != null && !isStale(snippet)) {
+            return snippet.code;
+        }
+
+        try {
+            Snippet fetchedSnippet = fetchSnippet(url, snippet);
+            putSnippet(url, fetchedSnippet);
+            return fetchedSnippet.code;
+        } catch (IOException e) {
+            if (snippet == null) {
+                throw e;
+            } else {
+                log.warn("Failed to revalidate " + url + ", using cached code: " + e.getMessage());
+                return snippet.code;
+            }
+        }
+    }
+
+    /**
+     * Clears all cached code.
+     */
+    public synchronized void clear() {
+        snippets.clear();
+    }
+
+    private synchronized Snippet getSnippet(String url) {
+        return snippets.get(url);
+    }
+
+    private synchronized void putSnippet(String url, Snippet snippet) {
+        snippets.put(url, snippet);
+    }
+
+    private boolean isStale(Snippet snippet) {
+        return System.currentTimeMillis() - snippet.fetched > applicationProperties.getCodePopupCacheTimeToLive() * 1000L;
+    }
+
+    private Snippet fetchSnippet(String url, Snippet cachedSnippet) throws IOException {
+        int timeout = applicationProperties.getCodePopupTimeout() * 1000;
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        if (cachedSnippet != null) {
+            if (cachedSnippet.eTag != null) {
+                connection.setRequestProperty("If-None-Match", cachedSnippet.eTag);
+            }
+            if (cachedSnippet.lastModified > 0) {
+                connection.setIfModifiedSince(cachedSnippet.lastModified);
+            }
+        }
+
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            int responseCode = httpConnection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedSnippet != null) {
+                httpConnection.disconnect();
+                return new Snippet(cachedSnippet.code, cachedSnippet.eTag, cachedSnippet.lastModified);
+            } else if (responseCode != HttpURLConnection.HTTP_OK) {
+                httpConnection.disconnect();
+                throw new IOException("Unexpected response " + responseCode + " for " + url);
+            }
+        }
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        try {
+            String code = extractCode(in);
+            return new Snippet(code, connection.getHeaderField("ETag"), connection.getLastModified());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Extracts code starting with the first annotation or class declaration, skipping license headers,
+     * package and import declarations.
+     *
+     * @param in reader of source file
+     * @return extracted code
+     * @throws IOException if source file cannot be read
+     */
+    static String extractCode(BufferedReader in) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        boolean startBuilder = false;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (startBuilder) {
+                builder.append(line);
+                builder.append("\n");
+            } else if (line.matches("^\\s*@.*$") || line.matches("^.*\\s+class\\s+.*$")) {
+                startBuilder = true;
+                builder.append(line);
+                builder.append("\n");
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Callback notified when background fetch completes.
+     */
+    public static interface Callback {
+        /**
+         * Called when code has been fetched.
+         *
+         * @param code fetched code
+         */
+        void fetched(String code);
+
+        /**
+         * Called when code could not be fetched.
+         *
+         * @param e cause of failure
+         */
+        void failed(IOException e);
+    }
+
+    private static class Snippet {
+        private final String code;
+        private final String eTag;
+        private final long lastModified;
+        private final long fetched = System.currentTimeMillis();
+
+        private Snippet(String code, String eTag, long lastModified) {
+            this.code = code;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+    }
+}
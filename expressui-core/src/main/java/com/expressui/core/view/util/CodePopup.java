@@ -40,6 +40,7 @@ package com.expressui.core.view.util;
 import com.expressui.core.MainApplication;
 import com.expressui.core.util.ApplicationProperties;
 import com.expressui.core.util.StringUtil;
+import com.vaadin.Application;
 import com.vaadin.terminal.ExternalResource;
 import com.vaadin.terminal.Sizeable;
 import com.vaadin.terminal.ThemeResource;
@@ -49,16 +50,16 @@ import org.springframework.stereotype.Component;
 import org.vaadin.codelabel.CodeLabel;
 
 import javax.annotation.Resource;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
- * Used in demo applications for popping up sample code associated with UI components.
+ * Used in demo applications for popping up sample code associated with UI components. Source code is fetched
+ * through {@link CodeCache}. Code that is not cached is fetched in the background, while its tab shows a
+ * placeholder.
  */
 @Component
 public class CodePopup {
@@ -69,6 +70,9 @@ public class CodePopup {
     @Resource
     public MessageSource uiMessageSource;
 
+    @Resource
+    private CodeCache codeCache;
+
     /**
      * Creates a popup code button.
      *
@@ -128,9 +132,14 @@ public class CodePopup {
                 url = applicationProperties.getCodeUrl(clazz);
                 if (shownUrls.contains(url)) continue;
                 tabCaption = clazz.getSimpleName() + ".java";
-                String code = getCodeContents(url);
-                Label label = new CodeLabel(code);
-                codePopupTabSheet.addTab(label, tabCaption);
+                String code = codeCache.getIfFresh(url);
+                if (code == null) {
+                    Component placeholder = createPlaceholder();
+                    codePopupTabSheet.addTab(placeholder, tabCaption);
+                    fetchCode(url, codePopupTabSheet, placeholder);
+                } else {
+                    codePopupTabSheet.addTab(new CodeLabel(code), tabCaption);
+                }
             }
             shownUrls.add(url);
             if (windowCaption.length() > 0)
@@ -143,33 +152,39 @@ public class CodePopup {
         MainApplication.getInstance().getMainWindow().addWindow(codeWindow);
     }
 
-    private String getCodeContents(String urlStr) {
-        try {
-            URL url = new URL(urlStr);
-            BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
-
-            StringBuilder builder = new StringBuilder();
-            boolean startBuilder = false;
-            String line;
-            while ((line = in.readLine()) != null) {
-                if (startBuilder) {
-                    builder.append(line);
-                    builder.append("\n");
-                } else if (line.matches("^\\s*@.*$") || line.matches("^.*\\s+class\\s+.*$")) {
-                    startBuilder = true;
-                    builder.append(line);
-                    builder.append("\n");
+    private Component createPlaceholder() {
+        VerticalLayout placeholder = new VerticalLayout();
+        placeholder.setMargin(true);
+        placeholder.setSpacing(true);
+
+        ProgressIndicator progressIndicator = new ProgressIndicator();
+        progressIndicator.setIndeterminate(true);
+        progressIndicator.setPollingInterval(500);
+        placeholder.addComponent(progressIndicator);
+        placeholder.addComponent(new Label(uiMessageSource.getMessage("codePopup.loading")));
+
+        return placeholder;
+    }
+
+    private void fetchCode(String url, final TabSheet tabSheet, final Component placeholder) {
+        final Application application = MainApplication.getInstance();
+        final String errorMessage = uiMessageSource.getMessage("codePopup.loadError", new Object[]{url});
+
+        codeCache.fetch(url, new CodeCache.Callback() {
+            @Override
+            public void fetched(String code) {
+                synchronized (application) {
+                    tabSheet.replaceComponent(placeholder, new CodeLabel(code));
                 }
             }
 
-
-            in.close();
-            return builder.toString();
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+            @Override
+            public void failed(IOException e) {
+                synchronized (application) {
+                    tabSheet.replaceComponent(placeholder, new Label(errorMessage));
+                }
+            }
+        });
     }
 
     private Embedded getEmbeddedDoc(String u) {
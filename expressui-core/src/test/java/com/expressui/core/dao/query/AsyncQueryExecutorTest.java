@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import com.expressui.core.security.SecurityService;
+import com.expressui.core.util.ApplicationProperties;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.SessionScope;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.*;
+
+public class AsyncQueryExecutorTest {
+
+    private Session session;
+    private AsyncQueryExecutor asyncQueryExecutor;
+
+    @Before
+    public void setUp() {
+        ApplicationProperties applicationProperties = mock(ApplicationProperties.class);
+        when(applicationProperties.getAsyncQueryThreads()).thenReturn(1);
+
+        session = mock(Session.class);
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+
+        asyncQueryExecutor = new AsyncQueryExecutor();
+        ReflectionTestUtils.setField(asyncQueryExecutor, "applicationProperties", applicationProperties);
+        ReflectionTestUtils.setField(asyncQueryExecutor, "entityManagerFactory", entityManagerFactory);
+        asyncQueryExecutor.postConstruct();
+    }
+
+    @After
+    public void tearDown() {
+        asyncQueryExecutor.preDestroy();
+        RequestContextHolder.resetRequestAttributes();
+        SecurityService.removeCurrentLoginName();
+    }
+
+    @Test
+    public void executeInBackground() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback();
+        asyncQueryExecutor.execute(new StubQuery(null), callback);
+
+        Assert.assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("a", "b"), callback.results.get());
+        Assert.assertFalse(Thread.currentThread().getName().equals(callback.threadName.get()));
+    }
+
+    @Test
+    public void executeWithSessionOfSubmittingThread() throws InterruptedException {
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("guestRestriction", "beanOfSession");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(session);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        SecurityService.setCurrentLoginName("guest");
+
+        SessionAwareQuery query = new SessionAwareQuery();
+        RecordingCallback callback = new RecordingCallback();
+        asyncQueryExecutor.execute(query, callback);
+        Assert.assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("beanOfSession", "guest"), callback.results.get());
+
+        RequestContextHolder.resetRequestAttributes();
+        SecurityService.removeCurrentLoginName();
+        query = new SessionAwareQuery();
+        callback = new RecordingCallback();
+        asyncQueryExecutor.execute(query, callback);
+        Assert.assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("noSession", SecurityService.DEFAULT_USER), callback.results.get());
+    }
+
+    @Test
+    public void cancelQueuedExecution() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        StubQuery blockingQuery = new StubQuery(release);
+        RecordingCallback blockingCallback = new RecordingCallback();
+        asyncQueryExecutor.execute(blockingQuery, blockingCallback);
+        Assert.assertTrue(blockingQuery.started.await(10, TimeUnit.SECONDS));
+
+        StubQuery queuedQuery = new StubQuery(null);
+        RecordingCallback queuedCallback = new RecordingCallback();
+        AsyncQueryExecutor.Execution execution = asyncQueryExecutor.execute(queuedQuery, queuedCallback);
+        Assert.assertEquals(1, asyncQueryExecutor.getQueuedCount());
+
+        execution.cancel();
+        Assert.assertEquals(0, asyncQueryExecutor.getQueuedCount());
+
+        release.countDown();
+        Assert.assertTrue(blockingCallback.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, queuedQuery.executions.get());
+        Assert.assertEquals(1, queuedCallback.done.getCount());
+    }
+
+    @Test
+    public void cancelRunningExecution() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        StubQuery blockingQuery = new StubQuery(release);
+        RecordingCallback callback = new RecordingCallback();
+        AsyncQueryExecutor.Execution execution = asyncQueryExecutor.execute(blockingQuery, callback);
+        Assert.assertTrue(blockingQuery.started.await(10, TimeUnit.SECONDS));
+
+        execution.cancel();
+        verify(session).cancelQuery();
+        Assert.assertTrue(execution.isCancelled());
+
+        release.countDown();
+        Assert.assertFalse(callback.done.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    private static class StubQuery extends EntityQuery<String> {
+        private final CountDownLatch release;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger executions = new AtomicInteger();
+
+        private StubQuery(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public List<String> execute() {
+            executions.incrementAndGet();
+            started.countDown();
+            if (release != null) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            return Arrays.asList("a", "b");
+        }
+    }
+
+    private static class SessionAwareQuery extends EntityQuery<String> {
+        @Override
+        public List<String> execute() {
+            Object guestRestriction;
+            if (RequestContextHolder.getRequestAttributes() == null) {
+                guestRestriction = "noSession";
+            } else {
+                guestRestriction = new SessionScope().get("guestRestriction", new ObjectFactory<Object>() {
+                    @Override
+                    public Object getObject() {
+                        return "newBean";
+                    }
+                });
+            }
+
+            return Arrays.asList(guestRestriction.toString(), SecurityService.getCurrentLoginName());
+        }
+    }
+
+    private static class RecordingCallback implements AsyncQueryExecutor.Callback<String> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<List<String>> results = new AtomicReference<List<String>>();
+        private final AtomicReference<String> threadName = new AtomicReference<String>();
+
+        @Override
+        public void executed(List<String> results) {
+            this.results.set(results);
+            threadName.set(Thread.currentThread().getName());
+            done.countDown();
+        }
+
+        @Override
+        public void failed(RuntimeException e) {
+            done.countDown();
+        }
+    }
+}
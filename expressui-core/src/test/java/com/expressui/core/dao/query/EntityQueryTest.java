@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import com.expressui.core.entity.IdentifiableEntity;
+import com.expressui.core.util.ApplicationProperties;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EntityQueryTest {
+
+    private TestQuery query;
+
+    @Before
+    public void setUp() {
+        ApplicationProperties applicationProperties = mock(ApplicationProperties.class);
+        when(applicationProperties.getDefaultPageSize()).thenReturn(10);
+        when(applicationProperties.getDefaultResultCountLimit()).thenReturn(1000);
+
+        query = new TestQuery();
+        ReflectionTestUtils.setField(query, "applicationProperties", applicationProperties);
+        query.postConstruct();
+    }
+
+    @Test
+    public void fingerprintUnaffectedByLaterChangesToCriteria() {
+        Set<String> states = new HashSet<String>();
+        states.add("NC");
+        query.setStates(states);
+        List<Object> fingerprint = query.buildCriteriaFingerprint();
+        int hashCode = fingerprint.hashCode();
+
+        states.add("SC");
+
+        Assert.assertEquals(hashCode, fingerprint.hashCode());
+        Assert.assertFalse(fingerprint.equals(query.buildCriteriaFingerprint()));
+    }
+
+    @Test
+    public void fingerprintIdentifiesEntitiesByTypeAndId() {
+        query.setOwner(new TestEntity(1L, "first"));
+        List<Object> fingerprint = query.buildCriteriaFingerprint();
+
+        query.setOwner(new TestEntity(1L, "second"));
+        Assert.assertEquals(fingerprint, query.buildCriteriaFingerprint());
+
+        query.setOwner(new TestEntity(2L, "first"));
+        Assert.assertFalse(fingerprint.equals(query.buildCriteriaFingerprint()));
+    }
+
+    @Test
+    public void copyPagesIndependently() {
+        Set<String> states = new HashSet<String>();
+        states.add("NC");
+        query.setStates(states);
+        query.setFirstResult(20);
+
+        TestQuery copy = (TestQuery) query.copy();
+        copy.setFirstResult(50);
+        copy.setPageSize(100);
+        states.add("SC");
+
+        Assert.assertEquals(Integer.valueOf(20), query.getFirstResult());
+        Assert.assertEquals(Integer.valueOf(10), query.getPageSize());
+        Assert.assertEquals(1, copy.getStates().size());
+        Assert.assertEquals(query.getOrderByPropertyId(), copy.getOrderByPropertyId());
+    }
+
+    public static class TestEntity implements IdentifiableEntity {
+        private Long id;
+        private String name;
+
+        public TestEntity(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public Serializable getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class TestQuery extends EntityQuery<TestEntity> {
+        private Set<String> states;
+        private TestEntity owner;
+
+        public Set<String> getStates() {
+            return states;
+        }
+
+        public void setStates(Set<String> states) {
+            this.states = states;
+        }
+
+        public TestEntity getOwner() {
+            return owner;
+        }
+
+        public void setOwner(TestEntity owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public List<TestEntity> execute() {
+            return null;
+        }
+    }
+}
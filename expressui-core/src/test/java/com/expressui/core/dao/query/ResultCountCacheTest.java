@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import com.expressui.core.util.ApplicationProperties;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResultCountCacheTest {
+
+    private ResultCountCache resultCountCache;
+
+    @Before
+    public void setUp() {
+        ApplicationProperties applicationProperties = mock(ApplicationProperties.class);
+        when(applicationProperties.getResultCountCacheSize()).thenReturn(10);
+        when(applicationProperties.getResultCountCacheTimeToLive()).thenReturn(60);
+
+        resultCountCache = new ResultCountCache();
+        ReflectionTestUtils.setField(resultCountCache, "applicationProperties", applicationProperties);
+        resultCountCache.postConstruct();
+    }
+
+    @Test
+    public void invalidatedByWriteOutsideTransaction() {
+        List<Object> fingerprint = Arrays.<Object>asList(Child.class, "outside");
+        resultCountCache.put(fingerprint, 3L, resultCountCache.getWriteGeneration(Child.class));
+        Assert.assertEquals(Long.valueOf(3), resultCountCache.get(Child.class, fingerprint));
+
+        ResultCountCache.entityWritten(Child.class);
+        Assert.assertNull(resultCountCache.get(Child.class, fingerprint));
+    }
+
+    @Test
+    public void invalidatedOnceTransactionCompletes() {
+        List<Object> fingerprint = Arrays.<Object>asList(Parent.class, "transaction");
+        long parentGeneration = resultCountCache.getWriteGeneration(Parent.class);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ResultCountCache.entityWritten(Child.class);
+            ResultCountCache.entityWritten(Child.class);
+            Assert.assertEquals(parentGeneration, resultCountCache.getWriteGeneration(Parent.class));
+
+            resultCountCache.put(fingerprint, 5L, parentGeneration);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Assert.assertEquals(parentGeneration + 1, resultCountCache.getWriteGeneration(Parent.class));
+        Assert.assertNull(resultCountCache.get(Parent.class, fingerprint));
+    }
+
+    private static class Parent {
+    }
+
+    private static class Child extends Parent {
+    }
+}
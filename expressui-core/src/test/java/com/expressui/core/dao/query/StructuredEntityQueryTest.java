@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.dao.query;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StructuredEntityQueryTest {
+
+    private StructuredEntityQuery<Object> query;
+
+    @Before
+    public void setUp() {
+        query = new StructuredEntityQuery<Object>() {
+        };
+        query.setKeysetPaging(true);
+        query.setOrderByPropertyId("lastModified");
+        query.setOrderDirection(EntityQuery.OrderDirection.DESC);
+        query.setPageSize(10);
+        query.setResultCount(100L);
+    }
+
+    @Test
+    public void firstPageNeedsNoBoundary() {
+        query.firstPage();
+
+        StructuredEntityQuery.KeysetSeek seek = query.getKeysetSeek();
+        Assert.assertEquals(StructuredEntityQuery.SeekDirection.FIRST, seek.getDirection());
+        Assert.assertFalse(seek.hasBoundary());
+    }
+
+    @Test
+    public void nextPageSeeksAfterLastRow() {
+        query.firstPage();
+        query.rememberKeysetBoundaries("first", 1L, "last", 10L);
+        query.nextPage();
+
+        StructuredEntityQuery.KeysetSeek seek = query.getKeysetSeek();
+        Assert.assertEquals(StructuredEntityQuery.SeekDirection.AFTER, seek.getDirection());
+        Assert.assertEquals("last", seek.getOrderByValue());
+        Assert.assertEquals(10L, seek.getId());
+    }
+
+    @Test
+    public void previousPageSeeksBeforeFirstRow() {
+        query.setFirstResult(50);
+        query.rememberKeysetBoundaries("first", 51L, "last", 60L);
+        query.previousPage();
+
+        StructuredEntityQuery.KeysetSeek seek = query.getKeysetSeek();
+        Assert.assertEquals(StructuredEntityQuery.SeekDirection.BEFORE, seek.getDirection());
+        Assert.assertEquals("first", seek.getOrderByValue());
+        Assert.assertEquals(51L, seek.getId());
+        Assert.assertTrue(seek.isReversed());
+    }
+
+    @Test
+    public void lastPageIsFetchedInReverse() {
+        query.lastPage();
+
+        StructuredEntityQuery.KeysetSeek seek = query.getKeysetSeek();
+        Assert.assertEquals(StructuredEntityQuery.SeekDirection.LAST, seek.getDirection());
+        Assert.assertTrue(seek.isReversed());
+    }
+
+    @Test
+    public void arbitraryJumpFallsBackToOffset() {
+        query.firstPage();
+        query.rememberKeysetBoundaries("first", 1L, "last", 10L);
+        query.setFirstResult(40);
+
+        Assert.assertNull(query.getKeysetSeek());
+    }
+
+    @Test
+    public void changedOrderingFallsBackToOffset() {
+        query.firstPage();
+        query.rememberKeysetBoundaries("first", 1L, "last", 10L);
+        query.setOrderDirection(EntityQuery.OrderDirection.ASC);
+        query.nextPage();
+
+        Assert.assertNull(query.getKeysetSeek());
+    }
+
+    @Test
+    public void disabledKeysetPagingUsesOffset() {
+        query.setKeysetPaging(false);
+        query.firstPage();
+
+        Assert.assertNull(query.getKeysetSeek());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.security;
+
+import com.expressui.core.entity.security.AllowOrDeny;
+import com.expressui.core.entity.security.Permission;
+import com.expressui.core.entity.security.Role;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+
+public class PermissionMatrixTest {
+
+    private Role reader;
+    private Role editor;
+
+    @Before
+    public void setUp() {
+        reader = new Role("reader");
+        reader.setAllowOrDenyByDefault(AllowOrDeny.DENY);
+        Permission viewAccounts = new Permission("Account");
+        viewAccounts.setViewAllowed(true);
+        reader.getPermissions().add(viewAccounts);
+        Permission hideSalary = new Permission("Account");
+        hideSalary.setField("salary");
+        reader.getPermissions().add(hideSalary);
+
+        editor = new Role("editor");
+        editor.setAllowOrDenyByDefault(AllowOrDeny.DENY);
+        Permission editContacts = new Permission("Contact");
+        editContacts.setViewAllowed(true);
+        editContacts.setEditAllowed(true);
+        editor.getPermissions().add(editContacts);
+    }
+
+    @Test
+    public void matchesRoles() {
+        PermissionMatrix matrix = new PermissionMatrix(Arrays.asList(reader, editor));
+        for (String type : Arrays.asList("Account", "Contact", "Opportunity")) {
+            Assert.assertEquals(reader.isViewAllowed(type) || editor.isViewAllowed(type), matrix.isViewAllowed(type));
+            Assert.assertEquals(reader.isEditAllowed(type) || editor.isEditAllowed(type), matrix.isEditAllowed(type));
+            Assert.assertEquals(reader.isCreateAllowed(type) || editor.isCreateAllowed(type),
+                    matrix.isCreateAllowed(type));
+            Assert.assertEquals(reader.isDeleteAllowed(type) || editor.isDeleteAllowed(type),
+                    matrix.isDeleteAllowed(type));
+            for (String field : Arrays.asList("salary", "name")) {
+                Assert.assertEquals(reader.isViewAllowed(type, field) || editor.isViewAllowed(type, field),
+                        matrix.isViewAllowed(type, field));
+                Assert.assertEquals(reader.isEditAllowed(type, field) || editor.isEditAllowed(type, field),
+                        matrix.isEditAllowed(type, field));
+            }
+        }
+        Assert.assertFalse(matrix.isViewAllowed("Account", "salary"));
+        Assert.assertTrue(matrix.isViewAllowed("Account", "name"));
+        Assert.assertTrue(matrix.isEditAllowed("Contact", "name"));
+    }
+
+    @Test
+    public void allowByDefault() {
+        PermissionMatrix matrix = new PermissionMatrix(Arrays.asList(reader, new Role("system")));
+        Assert.assertTrue(matrix.isDeleteAllowed("Opportunity"));
+        Assert.assertTrue(matrix.isEditAllowed("Account", "name"));
+    }
+
+    @Test
+    public void staleAfterChange() {
+        PermissionMatrix matrix = new PermissionMatrix(Arrays.asList(reader));
+        Assert.assertTrue(matrix.isCurrent());
+        new PermissionMatrix.ChangeListener().onPostWrite(reader);
+        Assert.assertFalse(matrix.isCurrent());
+        Assert.assertTrue(new PermissionMatrix(Arrays.asList(reader)).isCurrent());
+    }
+
+    @Test
+    public void combineMatchesRoles() {
+        PermissionMatrix matrix = new PermissionMatrix(Arrays.asList(reader, editor));
+        PermissionMatrix combined = PermissionMatrix.combine(Arrays.asList(
+                new PermissionMatrix(Arrays.asList(reader)), new PermissionMatrix(Arrays.asList(editor))));
+        for (String type : Arrays.asList("Account", "Contact", "Opportunity")) {
+            Assert.assertEquals(matrix.isViewAllowed(type), combined.isViewAllowed(type));
+            Assert.assertEquals(matrix.isEditAllowed(type), combined.isEditAllowed(type));
+            Assert.assertEquals(matrix.isCreateAllowed(type), combined.isCreateAllowed(type));
+            Assert.assertEquals(matrix.isDeleteAllowed(type), combined.isDeleteAllowed(type));
+            for (String field : Arrays.asList("salary", "name")) {
+                Assert.assertEquals(matrix.isViewAllowed(type, field), combined.isViewAllowed(type, field));
+                Assert.assertEquals(matrix.isEditAllowed(type, field), combined.isEditAllowed(type, field));
+            }
+        }
+        Assert.assertEquals(matrix.getRoleNames(), combined.getRoleNames());
+        Assert.assertTrue(combined.getRoleNames().contains("reader"));
+    }
+
+    @Test
+    public void combinedStaleAfterChange() {
+        PermissionMatrix combined = PermissionMatrix.combine(Arrays.asList(new PermissionMatrix(Arrays.asList(reader))));
+        Assert.assertTrue(combined.isCurrent());
+        PermissionMatrix.permissionsChanged();
+        Assert.assertFalse(combined.isCurrent());
+    }
+
+    @Test
+    public void staleAfterTransactionCompletes() {
+        PermissionMatrix matrix = new PermissionMatrix(Arrays.asList(reader));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            new PermissionMatrix.ChangeListener().onPostWrite(reader);
+            new PermissionMatrix.ChangeListener().onPostWrite(editor);
+            Assert.assertTrue(matrix.isCurrent());
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assert.assertFalse(matrix.isCurrent());
+    }
+
+    @Test
+    public void staleIfChangedWhileLoading() {
+        long generation = PermissionMatrix.getChangeGeneration();
+        PermissionMatrix.permissionsChanged();
+        Assert.assertFalse(new PermissionMatrix(Arrays.asList(reader), generation).isCurrent());
+        Assert.assertFalse(PermissionMatrix.combine(Arrays.asList(new PermissionMatrix(Arrays.asList(reader))),
+                generation).isCurrent());
+    }
+}
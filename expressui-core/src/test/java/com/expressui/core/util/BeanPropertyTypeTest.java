@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import com.expressui.core.validation.NestedBean;
+import com.expressui.core.validation.RootBean;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.concurrent.*;
+
+public class BeanPropertyTypeTest {
+
+    @Test
+    public void annotations() {
+        BeanPropertyType property = BeanPropertyType.getBeanPropertyType(RootBean.class, "nestedBean.property");
+        Assert.assertTrue(property.hasAnnotation(NotNull.class));
+        Assert.assertFalse(property.hasAnnotation(Valid.class));
+        Assert.assertEquals(1, property.getAnnotation(Size.class).max());
+        Assert.assertNull(property.getAnnotation(Valid.class));
+        Assert.assertEquals(NestedBean.class, property.getContainerType());
+        Assert.assertTrue(property.isValidatable());
+
+        BeanPropertyType ignored = BeanPropertyType.getBeanPropertyType(RootBean.class, "ignoredNestedBean.property");
+        Assert.assertFalse(ignored.isValidatable());
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        final String[] propertyPaths = {"nestedBean", "nestedBean.property", "ignoredNestedBean.optionalProperty",
+                "notNullNestedBean.property"};
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<BeanPropertyType[]>[] futures = new Future[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(new Callable<BeanPropertyType[]>() {
+                    @Override
+                    public BeanPropertyType[] call() throws Exception {
+                        start.await();
+                        BeanPropertyType[] beanPropertyTypes = new BeanPropertyType[propertyPaths.length];
+                        for (int j = 0; j < propertyPaths.length; j++) {
+                            beanPropertyTypes[j] = BeanPropertyType.getBeanPropertyType(RootBean.class,
+                                    propertyPaths[j]);
+                        }
+                        return beanPropertyTypes;
+                    }
+                });
+            }
+            start.countDown();
+
+            BeanPropertyType[] expected = futures[0].get(10, TimeUnit.SECONDS);
+            for (Future<BeanPropertyType[]> future : futures) {
+                Assert.assertArrayEquals(expected, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void warmUp() {
+        Assert.assertEquals(3, BeanPropertyType.warmUp(RootBean.class));
+        Assert.assertSame(BeanPropertyType.getBeanPropertyType(RootBean.class, "notNullNestedBean"),
+                BeanPropertyType.getBeanPropertyType(RootBean.class, "notNullNestedBean"));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+public class CurrencyUtilTest {
+
+    @Test
+    public void getAvailableCurrencies() {
+        List<Currency> currencies = CurrencyUtil.getAvailableCurrencies();
+        Assert.assertFalse(currencies.isEmpty());
+        Assert.assertEquals(currencies.size(), new HashSet<Currency>(currencies).size());
+        Assert.assertTrue(currencies.contains(Currency.getInstance("USD")));
+        for (int i = 1; i < currencies.size(); i++) {
+            Assert.assertTrue(currencies.get(i - 1).getCurrencyCode().compareTo(currencies.get(i).getCurrencyCode()) < 0);
+        }
+        Assert.assertSame(currencies, CurrencyUtil.getAvailableCurrencies());
+    }
+
+    @Test
+    public void getSymbols() {
+        Assert.assertEquals("$", CurrencyUtil.getSymbols(Locale.US).get(Currency.getInstance("USD")));
+        Assert.assertSame(CurrencyUtil.getSymbols(Locale.US), CurrencyUtil.getSymbols(Locale.US));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+public class MethodDelegateTest {
+
+    @Test
+    public void executePrivateMethod() {
+        Counter counter = new Counter();
+        MethodDelegate methodDelegate = new MethodDelegate(counter, "increment");
+        methodDelegate.execute();
+        methodDelegate.execute();
+
+        Assert.assertEquals(2, counter.count);
+    }
+
+    @Test
+    public void shareMethodAcrossDelegates() {
+        MethodDelegate first = new MethodDelegate(new Counter(), "increment");
+        MethodDelegate second = new MethodDelegate(new Counter(), "increment");
+
+        Assert.assertSame(first.getMethod(), second.getMethod());
+        Assert.assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void removeAllForTarget() {
+        Counter counter = new Counter();
+        Counter otherCounter = new Counter();
+        Set<MethodDelegate> listeners = new CopyOnWriteArraySet<MethodDelegate>();
+        listeners.add(new MethodDelegate(counter, "increment"));
+        listeners.add(new MethodDelegate(counter, "increment"));
+        listeners.add(new MethodDelegate(otherCounter, "increment"));
+        Assert.assertEquals(2, listeners.size());
+
+        MethodDelegate.removeAll(listeners, counter);
+        Assert.assertEquals(1, listeners.size());
+        Assert.assertSame(otherCounter, listeners.iterator().next().getTarget());
+    }
+
+    public static class Counter {
+        private int count;
+
+        private void increment() {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class PooledDataSourceTest {
+
+    private PooledDataSource dataSource;
+
+    @Before
+    public void createDataSource() {
+        dataSource = new PooledDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:pooledDataSourceTest");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+    }
+
+    @After
+    public void closeDataSource() throws SQLException {
+        dataSource.close();
+    }
+
+    @Test
+    public void countStatements() throws Exception {
+        ConnectionPoolMetrics metrics = dataSource.getMetrics();
+        long threadStatements = metrics.getCurrentThreadStatements();
+
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("SELECT 1");
+            statement.close();
+            connection.prepareStatement("SELECT 2").close();
+        } finally {
+            connection.close();
+        }
+
+        Assert.assertEquals(1, metrics.getConnectionRequests());
+        Assert.assertEquals(2, metrics.getStatements());
+        Assert.assertEquals(threadStatements + 2, metrics.getCurrentThreadStatements());
+        Assert.assertEquals(0, metrics.getActiveConnections());
+
+        metrics.saveCompleted(2);
+        metrics.saveCompleted(4);
+        Assert.assertEquals(2, metrics.getSaves());
+        Assert.assertEquals(3, metrics.getAverageStatementsPerSave(), 0);
+        Assert.assertEquals(4, metrics.getMaxStatementsPerSave());
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getStatements());
+        Assert.assertEquals(0, metrics.getSaves());
+    }
+}
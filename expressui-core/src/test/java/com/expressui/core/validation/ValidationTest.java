@@ -46,6 +46,8 @@ import org.springframework.test.context.ContextConfiguration;
 
 import javax.annotation.Resource;
 import javax.validation.ConstraintViolation;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
 
@@ -154,4 +156,32 @@ public class ValidationTest extends AbstractCoreTest {
         Assert.assertTrue(violations.isEmpty());
     }
 
+    @Test
+    public void dependentAssertions() {
+        PropertyDependencies dependencies = validation.getPropertyDependencies(AssertingBean.class);
+
+        Assert.assertFalse(dependencies.hasClassLevelConstraints());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("passwordRepeated", "hintValid")),
+                dependencies.getDependentAssertions("password"));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("hintValid")),
+                dependencies.getDependentAssertions("hint"));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("passwordRepeated")),
+                dependencies.getAssertionsReportedOn("repeatPassword"));
+        Assert.assertEquals("hint", dependencies.getErrorProperty("hintValid"));
+        Assert.assertSame(dependencies, validation.getPropertyDependencies(AssertingBean.class));
+    }
+
+    @Test
+    public void validateAssertion() {
+        AssertingBean assertingBean = new AssertingBean();
+        assertingBean.setPassword("secret");
+
+        Set<ConstraintViolation<AssertingBean>> violations = validation.validateProperty(assertingBean,
+                "passwordRepeated");
+        Assert.assertTrue(violations.size() == 1);
+
+        assertingBean.setRepeatPassword("secret");
+        violations = validation.validateProperty(assertingBean, "passwordRepeated");
+        Assert.assertTrue(violations.isEmpty());
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import com.expressui.core.view.field.DisplayField;
+import com.expressui.core.view.field.format.EmptyPropertyFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CsvExportWriterTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<ExportColumn> columns = Arrays.asList(
+                createColumn("name", "Name, Full"),
+                createColumn("note", "Note"),
+                createColumn("amount", "Amount"));
+
+        List<Row> rows = Arrays.asList(
+                new Row("Smith, John", "He said \"hi\"", new BigDecimal("1234.50")),
+                new Row("Multi\r\nLine", "line1\nline2", null),
+                new Row("Plain", null, new BigDecimal("-0.01")));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CsvExportWriter writer = new CsvExportWriter();
+        writer.open(outputStream, columns, new ExportParameters());
+        for (Row row : rows) {
+            writer.write(row);
+        }
+        writer.close();
+
+        List<List<String>> records = parse(outputStream.toString("UTF-8"));
+        Assert.assertEquals(4, records.size());
+        Assert.assertEquals(Arrays.asList("Name, Full", "Note", "Amount"), records.get(0));
+        Assert.assertEquals(Arrays.asList("Smith, John", "He said \"hi\"", "1234.50"), records.get(1));
+        Assert.assertEquals(Arrays.asList("Multi\r\nLine", "line1\nline2", ""), records.get(2));
+        Assert.assertEquals(Arrays.asList("Plain", "", "-0.01"), records.get(3));
+    }
+
+    private static ExportColumn createColumn(String propertyId, String header) {
+        DisplayField displayField = mock(DisplayField.class);
+        when(displayField.getPropertyFormatter()).thenReturn(new EmptyPropertyFormatter());
+        return new ExportColumn(propertyId, header, displayField);
+    }
+
+    /**
+     * Parses CSV as described in RFC 4180, with records separated by CRLF.
+     */
+    private static List<List<String>> parse(String csv) {
+        List<List<String>> records = new ArrayList<List<String>>();
+        List<String> record = new ArrayList<String>();
+        StringBuilder value = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (isQuoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    isQuoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                record.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                record.add(value.toString());
+                value.setLength(0);
+                records.add(record);
+                record = new ArrayList<String>();
+                i++;
+            } else {
+                value.append(c);
+            }
+        }
+        Assert.assertTrue("CSV must end with a line separator", record.isEmpty() && value.length() == 0);
+
+        return records;
+    }
+
+    public static class Row {
+        private String name;
+        private String note;
+        private BigDecimal amount;
+
+        public Row(String name, String note, BigDecimal amount) {
+            this.name = name;
+            this.note = note;
+            this.amount = amount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getNote() {
+            return note;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import com.expressui.core.util.SpringApplicationContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExportWriterRegistryTest {
+
+    private ApplicationContext previousApplicationContext;
+
+    @Before
+    public void setUp() {
+        previousApplicationContext = SpringApplicationContext.getApplicationContext();
+
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("xmlExportWriterFactory", new TestFactory("XML"));
+        applicationContext.getBeanFactory().registerSingleton("csvExportWriterFactory", new TestFactory("CSV"));
+        applicationContext.refresh();
+        new SpringApplicationContext().setApplicationContext(applicationContext);
+    }
+
+    @After
+    public void tearDown() {
+        new SpringApplicationContext().setApplicationContext(previousApplicationContext);
+    }
+
+    @Test
+    public void builtInFormatsFollowedByBeans() {
+        ExportWriterRegistry exportWriterRegistry = new ExportWriterRegistry();
+
+        List<String> ids = new ArrayList<String>();
+        for (ExportWriterFactory factory : exportWriterRegistry.getFactories()) {
+            ids.add(factory.getId());
+        }
+        Assert.assertEquals(Arrays.asList("EXCEL", "CSV", "JSON_LINES", "XML"), ids);
+
+        Assert.assertSame(ExportFormat.EXCEL, exportWriterRegistry.getFactory("EXCEL"));
+        Assert.assertTrue(exportWriterRegistry.getFactory("CSV") instanceof TestFactory);
+        Assert.assertTrue(exportWriterRegistry.getFactory("XML") instanceof TestFactory);
+        Assert.assertNull(exportWriterRegistry.getFactory("PDF"));
+    }
+
+    private static class TestFactory implements ExportWriterFactory {
+        private final String id;
+
+        private TestFactory(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public ExportWriter createWriter() {
+            return new CsvExportWriter();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.export;
+
+import com.expressui.core.view.field.DisplayField;
+import com.expressui.core.view.field.format.EmptyPropertyFormatter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonLinesExportWriterTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<ExportColumn> columns = Arrays.asList(
+                createColumn("name"),
+                createColumn("amount"),
+                createColumn("ratio"),
+                createColumn("active"));
+
+        String name = "Quote \" backslash \\ newline \n return \r tab \t control \u0001 separator \u2028 end";
+        List<Row> rows = Arrays.asList(
+                new Row(name, new BigDecimal("1234.50"), 0.25, true),
+                new Row(null, null, Double.NaN, null));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        JsonLinesExportWriter writer = new JsonLinesExportWriter();
+        writer.open(outputStream, columns, new ExportParameters());
+        for (Row row : rows) {
+            writer.write(row);
+        }
+        writer.close();
+
+        String[] lines = outputStream.toString("UTF-8").split("\n", -1);
+        Assert.assertEquals(3, lines.length);
+        Assert.assertEquals("", lines[2]);
+
+        Map<String, Object> first = parse(lines[0]);
+        Assert.assertEquals(Arrays.asList("name", "amount", "ratio", "active"),
+                Arrays.asList(first.keySet().toArray()));
+        Assert.assertEquals(name, first.get("name"));
+        Assert.assertEquals(new BigDecimal("1234.50"), first.get("amount"));
+        Assert.assertEquals(new BigDecimal("0.25"), first.get("ratio"));
+        Assert.assertEquals(Boolean.TRUE, first.get("active"));
+
+        Map<String, Object> second = parse(lines[1]);
+        Assert.assertEquals(4, second.size());
+        for (Object value : second.values()) {
+            Assert.assertNull(value);
+        }
+    }
+
+    private static ExportColumn createColumn(String propertyId) {
+        DisplayField displayField = mock(DisplayField.class);
+        when(displayField.getPropertyFormatter()).thenReturn(new EmptyPropertyFormatter());
+        return new ExportColumn(propertyId, propertyId, displayField);
+    }
+
+    /**
+     * Parses a flat JSON object, whose values are strings, numbers, booleans or null.
+     */
+    private static Map<String, Object> parse(String json) {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        int[] position = {0};
+        expect(json, position, '{');
+        while (json.charAt(position[0]) != '}') {
+            if (!object.isEmpty()) {
+                expect(json, position, ',');
+            }
+            String key = parseString(json, position);
+            expect(json, position, ':');
+            Object value;
+            if (json.charAt(position[0]) == '"') {
+                value = parseString(json, position);
+            } else {
+                int start = position[0];
+                while (",}".indexOf(json.charAt(position[0])) < 0) {
+                    position[0]++;
+                }
+                String literal = json.substring(start, position[0]);
+                if (literal.equals("null")) {
+                    value = null;
+                } else if (literal.equals("true") || literal.equals("false")) {
+                    value = Boolean.valueOf(literal);
+                } else {
+                    value = new BigDecimal(literal);
+                }
+            }
+            object.put(key, value);
+        }
+        Assert.assertEquals(json.length() - 1, position[0]);
+
+        return object;
+    }
+
+    private static String parseString(String json, int[] position) {
+        expect(json, position, '"');
+        StringBuilder value = new StringBuilder();
+        for (char c = json.charAt(position[0]++); c != '"'; c = json.charAt(position[0]++)) {
+            Assert.assertTrue("control characters must be escaped", c >= 0x20 && c != 0x2028 && c != 0x2029);
+            if (c == '\\') {
+                char escaped = json.charAt(position[0]++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        value.append((char) Integer.parseInt(json.substring(position[0], position[0] + 4), 16));
+                        position[0] += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+
+        return value.toString();
+    }
+
+    private static void expect(String json, int[] position, char c) {
+        Assert.assertEquals(c, json.charAt(position[0]++));
+    }
+
+    public static class Row {
+        private String name;
+        private BigDecimal amount;
+        private Double ratio;
+        private Boolean active;
+
+        public Row(String name, BigDecimal amount, Double ratio, Boolean active) {
+            this.name = name;
+            this.amount = amount;
+            this.ratio = ratio;
+            this.active = active;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public Double getRatio() {
+            return ratio;
+        }
+
+        public Boolean getActive() {
+            return active;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.core.view.util;
+
+import com.expressui.core.util.ApplicationProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CodeCacheTest {
+
+    private static final String SOURCE = "package com.example;\n\nimport java.util.List;\n\n"
+            + "@Entity\npublic class Example {\n}\n";
+
+    private HttpServer server;
+    private String url;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    private ApplicationProperties applicationProperties;
+    private CodeCache codeCache;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/Example.java", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    fullResponses.incrementAndGet();
+                    byte[] body = SOURCE.getBytes("UTF-8");
+                    exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/Example.java";
+
+        applicationProperties = mock(ApplicationProperties.class);
+        when(applicationProperties.getCodePopupCacheSize()).thenReturn(10);
+        when(applicationProperties.getCodePopupCacheTimeToLive()).thenReturn(300);
+        when(applicationProperties.getCodePopupTimeout()).thenReturn(5);
+
+        codeCache = new CodeCache();
+        ReflectionTestUtils.setField(codeCache, "applicationProperties", applicationProperties);
+        codeCache.postConstruct();
+    }
+
+    @After
+    public void tearDown() {
+        codeCache.preDestroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void fetchOnceAndExtractCode() throws IOException {
+        Assert.assertNull(codeCache.getIfFresh(url));
+
+        String code = codeCache.get(url);
+        Assert.assertEquals("@Entity\npublic class Example {\n}\n", code);
+        Assert.assertEquals(code, codeCache.get(url));
+        Assert.assertEquals(code, codeCache.getIfFresh(url));
+        Assert.assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void revalidateWithETag() throws IOException {
+        when(applicationProperties.getCodePopupCacheTimeToLive()).thenReturn(0);
+
+        String code = codeCache.get(url);
+        sleepPastTimeToLive();
+        Assert.assertEquals(code, codeCache.get(url));
+        Assert.assertEquals(1, fullResponses.get());
+        Assert.assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    public void useStaleCodeIfHostUnreachable() throws IOException {
+        when(applicationProperties.getCodePopupCacheTimeToLive()).thenReturn(0);
+
+        String code = codeCache.get(url);
+        server.stop(0);
+        sleepPastTimeToLive();
+        Assert.assertEquals(code, codeCache.get(url));
+    }
+
+    @Test
+    public void fetchInBackground() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> fetchedCode = new AtomicReference<String>();
+        codeCache.fetch(url, new CodeCache.Callback() {
+            @Override
+            public void fetched(String code) {
+                fetchedCode.set(code);
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(IOException e) {
+                latch.countDown();
+            }
+        });
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("@Entity\npublic class Example {\n}\n", fetchedCode.get());
+    }
+
+    private void sleepPastTimeToLive() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -69,7 +69,7 @@ public abstract class RestClientService {
         RestClientProxyFactoryBean restClientFactory = new RestClientProxyFactoryBean();
         restClientFactory.setBaseUri(new URI(uri));
         restClientFactory.setServiceInterface(clazz);
-        if (applicationProperties.getHttpProxyHost() != null && applicationProperties.getHttpProxyPort() != null) {
+        if (applicationProperties != null && applicationProperties.getHttpProxyHost() != null && applicationProperties.getHttpProxyPort() != null) {
 
             DefaultHttpClient httpClient = new DefaultHttpClient();
             HttpHost proxy = new HttpHost(applicationProperties.getHttpProxyHost(),
@@ -37,96 +37,420 @@
 
 package com.expressui.domain.ecbfx;
 
+import com.expressui.core.util.StringUtil;
 import com.expressui.domain.RestClientService;
 import org.apache.commons.lang.time.DateUtils;
+import org.apache.log4j.Logger;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.IllegalCurrencyException;
-import org.joda.money.Money;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ws.rs.GET;
 import javax.ws.rs.Produces;
 import javax.xml.bind.annotation.*;
+import java.io.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Service for fetching currency exchange rates from European Central Bank.
  * See http://www.ecb.int/stats/eurofxref/eurofxref-daily.xml
+ * <p/>
+ * Rates are held in an immutable snapshot that is swapped atomically, so that conversions never wait on the
+ * ECB HTTP call once rates are available. A stale snapshot is refreshed in the background, only one fetch
+ * runs at a time, and the last successfully fetched snapshot is persisted to a file, so that rates are available
+ * immediately after restart or while the ECB is unreachable. After a failed fetch, the ECB is not contacted again
+ * until the retry interval has passed.
  */
 @Configuration
 @Service
 public class EcbfxService extends RestClientService {
 
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
 
-    private Date rateDay;
-    private Date fetchDay;
-    private Map<String, BigDecimal> rates;
+    private final Logger log = Logger.getLogger(getClass());
+
+    private final AtomicReference<FXRates> fxRates = new AtomicReference<FXRates>();
+    private final Lock refreshLock = new ReentrantLock();
+    private final AtomicBoolean backgroundRefreshPending = new AtomicBoolean();
+    private ScheduledExecutorService refreshExecutor;
+    private volatile long lastFailedRefresh;
 
     @Resource
     private ECBFXClient ecbfxClient;
 
+    @Value("${ecbfxService.refreshInterval:3600}")
+    private long refreshInterval;
+
+    @Value("${ecbfxService.retryInterval:300}")
+    private long retryInterval;
+
+    @Value("${ecbfxService.snapshotFile:}")
+    private String snapshotFile;
+
+    @PostConstruct
+    void postConstruct() {
+        fxRates.set(loadSnapshot());
+
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ecbfx-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if (refreshInterval > 0) {
+            refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    refreshQuietly();
+                }
+            }, 0, refreshInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    void preDestroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Converts an amount from one currency to another.
+     *
+     * @param amount             amount to convert
+     * @param sourceCurrencyCode currency code of the amount
+     * @param targetCurrencyCode currency code to convert to
+     * @return converted amount, rounded to the target currency's decimal places
+     * @throws IllegalCurrencyException if there is no rate for either currency
+     */
     public BigDecimal convert(BigDecimal amount, String sourceCurrencyCode, String targetCurrencyCode)
             throws IllegalCurrencyException {
 
         if (sourceCurrencyCode.equals(targetCurrencyCode)) return amount;
 
-        Map<String, BigDecimal> rates = getFXRates();
-        BigDecimal inverseRate = rates.get(sourceCurrencyCode);
-        if (inverseRate == null)
-            throw new IllegalCurrencyException("Unknown currency: " + sourceCurrencyCode);
-
-        BigDecimal sourceRate = new BigDecimal(1).divide(inverseRate, 10, RoundingMode.HALF_EVEN);
-        CurrencyUnit sourceCurrencyUnit = CurrencyUnit.of(sourceCurrencyCode);
-        Money amountInSourceCurrency = Money.of(sourceCurrencyUnit, amount, RoundingMode.HALF_EVEN);
-        Money amountInEuros;
-        if (sourceCurrencyUnit.getCurrencyCode().equals("EUR")) {
-            amountInEuros = amountInSourceCurrency;
-        } else {
-            amountInEuros = amountInSourceCurrency.convertedTo(CurrencyUnit.of("EUR"), sourceRate, RoundingMode.HALF_EVEN);
+        return getCurrentFXRates().convert(amount, sourceCurrencyCode, targetCurrencyCode);
+    }
+
+    /**
+     * Converts many amounts at once, all against the same snapshot of rates. Cheaper than calling
+     * {@link #convert(java.math.BigDecimal, String, String)} for each amount, since rates are looked up
+     * only once.
+     *
+     * @param conversions amounts to convert
+     * @return converted amounts, in the same order as conversions. An element is null if its amount is null
+     *         or there is no rate for its currencies.
+     */
+    public List<BigDecimal> convert(List<Conversion> conversions) {
+        FXRates currentFXRates = getCurrentFXRates();
+
+        List<BigDecimal> convertedAmounts = new ArrayList<BigDecimal>(conversions.size());
+        for (Conversion conversion : conversions) {
+            BigDecimal convertedAmount;
+            if (conversion.getAmount() == null) {
+                convertedAmount = null;
+            } else if (conversion.getSourceCurrencyCode().equals(conversion.getTargetCurrencyCode())) {
+                convertedAmount = conversion.getAmount();
+            } else {
+                try {
+                    convertedAmount = currentFXRates.convert(conversion.getAmount(),
+                            conversion.getSourceCurrencyCode(), conversion.getTargetCurrencyCode());
+                } catch (IllegalCurrencyException e) {
+                    convertedAmount = null;
+                }
+            }
+            convertedAmounts.add(convertedAmount);
         }
 
-        BigDecimal targetRate = rates.get(targetCurrencyCode);
-        if (targetRate == null) throw new IllegalCurrencyException("Unknown currency: " + targetCurrencyCode);
+        return convertedAmounts;
+    }
+
+    /**
+     * Gets current exchange rates, keyed by currency code, relative to EUR. Only blocks on fetching rates from the
+     * ECB if no rates have ever been fetched or persisted. Stale rates are returned while a refresh runs
+     * in the background.
+     *
+     * @return unmodifiable map of currency codes to rates
+     */
+    public Map<String, BigDecimal> getFXRates() {
+        return getCurrentFXRates().getRates();
+    }
 
-        Money amountInTargetCurrency = amountInEuros.convertedTo(CurrencyUnit.of(targetCurrencyCode), targetRate, RoundingMode.HALF_EVEN);
+    private FXRates getCurrentFXRates() {
+        FXRates current = fxRates.get();
+        if (current == null) {
+            refresh();
+            current = fxRates.get();
+        } else if (current.isStale()) {
+            refreshInBackground();
+        }
 
-        return amountInTargetCurrency.getAmount();
+        return current;
     }
 
-    public Map<String, BigDecimal> getFXRates() {
-        if (rateDay == null || (DateUtils.truncatedCompareTo(rateDay, new Date(), Calendar.DAY_OF_MONTH) < 0
-                && DateUtils.truncatedCompareTo(fetchDay, new Date(), Calendar.DAY_OF_MONTH) < 0)) {
-            fetchFXRates();
+    private void refreshInBackground() {
+        if (isRetryDue() && backgroundRefreshPending.compareAndSet(false, true)) {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshQuietly();
+                    } finally {
+                        backgroundRefreshPending.set(false);
+                    }
+                }
+            });
         }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh FX rates, keeping last known rates", e);
+        }
+    }
+
+    private void refresh() {
+        refreshLock.lock();
+        try {
+            FXRates current = fxRates.get();
+            if (current == null || current.isStale()) {
+                if (!isRetryDue()) {
+                    if (current == null) {
+                        throw new IllegalStateException("FX rates are unavailable, last refresh failed less than "
+                                + retryInterval + " seconds ago");
+                    }
+                    return;
+                }
+
+                FXRates fetched;
+                try {
+                    fetched = fetchFXRates();
+                } catch (RuntimeException e) {
+                    lastFailedRefresh = System.currentTimeMillis();
+                    throw e;
+                }
+                lastFailedRefresh = 0;
+                fxRates.set(fetched);
+                saveSnapshot(fetched);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
 
-        return rates;
+    private boolean isRetryDue() {
+        return lastFailedRefresh == 0 || System.currentTimeMillis() - lastFailedRefresh >= retryInterval * 1000L;
     }
 
-    private void fetchFXRates() {
-        rates = new HashMap<String, BigDecimal>();
+    private FXRates fetchFXRates() {
+        Map<String, BigDecimal> rates = new HashMap<String, BigDecimal>();
 
         ECBFXResponse ecbfxResponse = ecbfxClient.getFXRates();
+        Date rateDay = parseDate(ecbfxResponse.mainCube.quoteDate.time);
+        Date fetchDay = DateUtils.truncate(new Date(), Calendar.DAY_OF_MONTH);
+
+        for (ECBFXResponse.MainCube.QuoteDate.Rate rate : ecbfxResponse.mainCube.quoteDate.rates) {
+            rates.put(rate.currency, new BigDecimal(rate.rate));
+        }
+        rates.put("EUR", new BigDecimal(1));
+
+        return new FXRates(rateDay, fetchDay, rates);
+    }
+
+    private File getSnapshotFile() {
+        if (StringUtil.isEmpty(snapshotFile)) {
+            return new File(System.getProperty("java.io.tmpdir"), "expressui-ecbfx-rates.properties");
+        } else {
+            return new File(snapshotFile);
+        }
+    }
+
+    private FXRates loadSnapshot() {
+        File file = getSnapshotFile();
+        if (!file.exists()) return null;
+
         try {
-            rateDay = DATE_FORMAT.parse(ecbfxResponse.mainCube.quoteDate.time);
-            fetchDay = DateUtils.truncate(new Date(), Calendar.DAY_OF_MONTH);
+            Properties properties = new Properties();
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                properties.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+            return FXRates.fromProperties(properties);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable FX rate snapshot: " + file, e);
+            return null;
+        }
+    }
 
+    private void saveSnapshot(FXRates snapshot) {
+        File file = getSnapshotFile().getAbsoluteFile();
+        try {
+            File tempFile = File.createTempFile("ecbfx", ".tmp", file.getParentFile());
+            OutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                snapshot.toProperties().store(outputStream, "Last known ECB FX rates");
+            } finally {
+                outputStream.close();
+            }
+            // rename so that other instances sharing this file never read a partially written snapshot
+            if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+                tempFile.delete();
+                log.warn("Failed to replace FX rate snapshot: " + file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to persist FX rate snapshot: " + file, e);
+        }
+    }
+
+    private static Date parseDate(String date) {
+        try {
+            return new SimpleDateFormat(DATE_PATTERN).parse(date);
         } catch (ParseException e) {
             throw new RuntimeException(e);
         }
-        for (ECBFXResponse.MainCube.QuoteDate.Rate rate : ecbfxResponse.mainCube.quoteDate.rates) {
-            rates.put(rate.currency, new BigDecimal(rate.rate));
+    }
+
+    private static String formatDate(Date date) {
+        return new SimpleDateFormat(DATE_PATTERN).format(date);
+    }
+
+    /**
+     * An amount to be converted from one currency to another.
+     *
+     * @see #convert(java.util.List)
+     */
+    public static class Conversion {
+        private final BigDecimal amount;
+        private final String sourceCurrencyCode;
+        private final String targetCurrencyCode;
+
+        public Conversion(BigDecimal amount, String sourceCurrencyCode, String targetCurrencyCode) {
+            this.amount = amount;
+            this.sourceCurrencyCode = sourceCurrencyCode;
+            this.targetCurrencyCode = targetCurrencyCode;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public String getSourceCurrencyCode() {
+            return sourceCurrencyCode;
+        }
+
+        public String getTargetCurrencyCode() {
+            return targetCurrencyCode;
+        }
+    }
+
+    /**
+     * Immutable snapshot of rates fetched on a given day, along with a precomputed table of cross rates between
+     * every pair of currencies.
+     */
+    static class FXRates {
+
+        private static final String RATE_PREFIX = "rate.";
+        private static final int CROSS_RATE_SCALE = 10;
+
+        private final Date rateDay;
+        private final Date fetchDay;
+        private final Map<String, BigDecimal> rates;
+        private final Map<String, Map<String, BigDecimal>> crossRates;
+        private final Map<String, Integer> decimalPlaces;
+
+        FXRates(Date rateDay, Date fetchDay, Map<String, BigDecimal> rates) {
+            this.rateDay = rateDay;
+            this.fetchDay = fetchDay;
+            this.rates = Collections.unmodifiableMap(new HashMap<String, BigDecimal>(rates));
+
+            crossRates = new HashMap<String, Map<String, BigDecimal>>();
+            decimalPlaces = new HashMap<String, Integer>();
+            for (Map.Entry<String, BigDecimal> source : rates.entrySet()) {
+                Map<String, BigDecimal> targetRates = new HashMap<String, BigDecimal>();
+                for (Map.Entry<String, BigDecimal> target : rates.entrySet()) {
+                    targetRates.put(target.getKey(),
+                            target.getValue().divide(source.getValue(), CROSS_RATE_SCALE, RoundingMode.HALF_EVEN));
+                }
+                crossRates.put(source.getKey(), targetRates);
+                try {
+                    decimalPlaces.put(source.getKey(), CurrencyUnit.of(source.getKey()).getDecimalPlaces());
+                } catch (IllegalCurrencyException e) {
+                    // rate is kept, but currency cannot be converted
+                }
+            }
+        }
+
+        Map<String, BigDecimal> getRates() {
+            return rates;
+        }
+
+        BigDecimal convert(BigDecimal amount, String sourceCurrencyCode, String targetCurrencyCode)
+                throws IllegalCurrencyException {
+
+            Map<String, BigDecimal> targetRates = crossRates.get(sourceCurrencyCode);
+            Integer sourceDecimalPlaces = decimalPlaces.get(sourceCurrencyCode);
+            if (targetRates == null || sourceDecimalPlaces == null)
+                throw new IllegalCurrencyException("Unknown currency: " + sourceCurrencyCode);
+
+            BigDecimal crossRate = targetRates.get(targetCurrencyCode);
+            Integer targetDecimalPlaces = decimalPlaces.get(targetCurrencyCode);
+            if (crossRate == null || targetDecimalPlaces == null)
+                throw new IllegalCurrencyException("Unknown currency: " + targetCurrencyCode);
+
+            BigDecimal amountInSourceCurrency = amount.setScale(sourceDecimalPlaces, RoundingMode.HALF_EVEN);
+            return amountInSourceCurrency.multiply(crossRate).setScale(targetDecimalPlaces, RoundingMode.HALF_EVEN);
+        }
+
+        boolean isStale() {
+            Date now = new Date();
+            return DateUtils.truncatedCompareTo(rateDay, now, Calendar.DAY_OF_MONTH) < 0
+                    && DateUtils.truncatedCompareTo(fetchDay, now, Calendar.DAY_OF_MONTH) < 0;
+        }
+
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("rateDay", formatDate(rateDay));
+            properties.setProperty("fetchDay", formatDate(fetchDay));
+            for (Map.Entry<String, BigDecimal> rate : rates.entrySet()) {
+                properties.setProperty(RATE_PREFIX + rate.getKey(), rate.getValue().toPlainString());
+            }
+
+            return properties;
+        }
+
+        static FXRates fromProperties(Properties properties) {
+            Map<String, BigDecimal> rates = new HashMap<String, BigDecimal>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(RATE_PREFIX)) {
+                    rates.put(name.substring(RATE_PREFIX.length()), new BigDecimal(properties.getProperty(name)));
+                }
+            }
+
+            return new FXRates(parseDate(properties.getProperty("rateDay")),
+                    parseDate(properties.getProperty("fetchDay")), rates);
         }
-        rates.put("EUR", new BigDecimal(1));
     }
 
     @Bean
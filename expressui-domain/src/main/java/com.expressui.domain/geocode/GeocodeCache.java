@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.domain.geocode;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded, least-recently-used cache of geocoded coordinates, keyed by normalized address and persisted to a file,
+ * so that cached coordinates survive restarts. Addresses that could not be geocoded are cached too.
+ */
+class GeocodeCache {
+
+    /**
+     * Cached result for addresses that could not be geocoded.
+     */
+    static final double[] NOT_FOUND = new double[0];
+
+    private final Logger log = Logger.getLogger(getClass());
+
+    private final File file;
+    private final Map<String, double[]> entries;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * Construct cache.
+     *
+     * @param maxSize maximum number of cached addresses, least recently used are evicted first
+     * @param file    file where cache is persisted
+     */
+    GeocodeCache(final int maxSize, File file) {
+        this.file = file;
+        entries = Collections.synchronizedMap(new LinkedHashMap<String, double[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Normalizes address, so that the same address with different spacing or case is only geocoded once.
+     *
+     * @param address address to normalize
+     * @return normalized address
+     */
+    static String normalize(String address) {
+        return address.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Gets cached coordinates.
+     *
+     * @param address address to look up
+     * @return longitude and latitude, NOT_FOUND if address could not be geocoded or null if address is not cached
+     */
+    double[] get(String address) {
+        double[] coordinates = entries.get(normalize(address));
+        if (coordinates == null || coordinates == NOT_FOUND) {
+            return coordinates;
+        } else {
+            return coordinates.clone();
+        }
+    }
+
+    /**
+     * Caches coordinates.
+     *
+     * @param address     address that was geocoded
+     * @param coordinates longitude and latitude or null if address could not be geocoded
+     */
+    void put(String address, double[] coordinates) {
+        entries.put(normalize(address), coordinates == null ? NOT_FOUND : coordinates.clone());
+        dirty.set(true);
+    }
+
+    /**
+     * Loads cache from file, if file exists.
+     */
+    void load() {
+        if (!file.exists()) return;
+
+        try {
+            Properties properties = new Properties();
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                properties.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+            for (String address : properties.stringPropertyNames()) {
+                String value = properties.getProperty(address);
+                if (value.isEmpty()) {
+                    entries.put(address, NOT_FOUND);
+                } else {
+                    String[] lngLat = value.split(",");
+                    entries.put(address, new double[]{Double.parseDouble(lngLat[0]), Double.parseDouble(lngLat[1])});
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable geocode cache: " + file, e);
+        }
+    }
+
+    /**
+     * Saves cache to file, if anything was added since last save.
+     */
+    void save() {
+        if (!dirty.compareAndSet(true, false)) return;
+
+        Properties properties = new Properties();
+        synchronized (entries) {
+            for (Map.Entry<String, double[]> entry : entries.entrySet()) {
+                double[] coordinates = entry.getValue();
+                properties.setProperty(entry.getKey(),
+                        coordinates == NOT_FOUND ? "" : coordinates[0] + "," + coordinates[1]);
+            }
+        }
+
+        File absoluteFile = file.getAbsoluteFile();
+        try {
+            File tempFile = File.createTempFile("geocode", ".tmp", absoluteFile.getParentFile());
+            OutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                properties.store(outputStream, "Geocoded addresses: longitude,latitude");
+            } finally {
+                outputStream.close();
+            }
+            if (!tempFile.renameTo(absoluteFile) && !(absoluteFile.delete() && tempFile.renameTo(absoluteFile))) {
+                tempFile.delete();
+                log.warn("Failed to replace geocode cache: " + absoluteFile);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to persist geocode cache: " + absoluteFile, e);
+        }
+    }
+}
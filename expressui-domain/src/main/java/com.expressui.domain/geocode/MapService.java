@@ -37,6 +37,7 @@
 
 package com.expressui.domain.geocode;
 
+import com.expressui.core.util.StringUtil;
 import com.expressui.domain.RestClientService;
 import com.vaadin.event.MouseEvents;
 import org.springframework.beans.factory.annotation.Value;
@@ -45,6 +46,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Service;
 import org.vaadin.vol.*;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ws.rs.GET;
 import javax.ws.rs.Produces;
@@ -52,9 +55,14 @@ import javax.ws.rs.QueryParam;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.File;
+import java.util.concurrent.*;
 
 /**
  * Service for creating maps using Open Layers and Google
+ * <p/>
+ * Geocoded coordinates are cached by normalized address, including addresses that could not be geocoded, and
+ * the cache is persisted to a file so that it survives restarts.
  */
 @Configuration
 @Service
@@ -63,6 +71,48 @@ public class MapService extends RestClientService {
     @Resource
     private GeocodeClient geocodeClient;
 
+    @Value("${geoCodeService.cacheSize:1000}")
+    private int cacheSize;
+
+    @Value("${geoCodeService.cacheFile:}")
+    private String cacheFile;
+
+    private GeocodeCache geocodeCache;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void postConstruct() {
+        File file;
+        if (StringUtil.isEmpty(cacheFile)) {
+            file = new File(System.getProperty("java.io.tmpdir"), "expressui-geocode-cache.properties");
+        } else {
+            file = new File(cacheFile);
+        }
+        geocodeCache = new GeocodeCache(cacheSize, file);
+        geocodeCache.load();
+
+        executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "geocode");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    void preDestroy() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        geocodeCache.save();
+    }
+
     /**
      * Create a map
      *
@@ -109,23 +159,67 @@ public class MapService extends RestClientService {
     }
 
     /**
-     * Get longitude and latitude coordinates for given address.
+     * Get longitude and latitude coordinates for given address. Coordinates are fetched from the geocoding service
+     * only if address is not already cached.
      *
      * @param address address to query for
-     * @return first item is longitude, second is latitude
+     * @return first item is longitude, second is latitude, or null if address could not be geocoded
      */
     public double[] getCoordinates(String address) {
+        double[] coordinates = geocodeCache.get(address);
+        if (coordinates == null) {
+            coordinates = fetchCoordinates(address);
+        }
+
+        return coordinates == GeocodeCache.NOT_FOUND ? null : coordinates;
+    }
 
+    /**
+     * Get longitude and latitude coordinates for given address, without blocking the calling thread on the
+     * geocoding service.
+     *
+     * @param address address to query for
+     * @return future whose result is the same as {@link #getCoordinates(String)}, already done if address is cached
+     */
+    public Future<double[]> getCoordinatesAsync(final String address) {
+        Callable<double[]> lookup = new Callable<double[]>() {
+            @Override
+            public double[] call() throws Exception {
+                return getCoordinates(address);
+            }
+        };
+
+        if (geocodeCache.get(address) == null) {
+            return executor.submit(lookup);
+        } else {
+            FutureTask<double[]> cached = new FutureTask<double[]>(lookup);
+            cached.run();
+            return cached;
+        }
+    }
+
+    private double[] fetchCoordinates(String address) {
         GeocodeResponse geocodeResponse = geocodeClient.getGeocode(address, false);
-        if (geocodeResponse.status.equals("ZERO_RESULTS")) {
-            return null;
+        double[] coordinates;
+        if ("ZERO_RESULTS".equals(geocodeResponse.status)) {
+            coordinates = GeocodeCache.NOT_FOUND;
+        } else if (geocodeResponse.result == null) {
+            return GeocodeCache.NOT_FOUND; // transient failure, e.g. OVER_QUERY_LIMIT, so don't cache
         } else {
-            double[] coordinates = new double[2];
+            coordinates = new double[2];
             coordinates[0] = geocodeResponse.result.geometry.location.lng;
             coordinates[1] = geocodeResponse.result.geometry.location.lat;
-
-            return coordinates;
         }
+
+        geocodeCache.put(address, coordinates == GeocodeCache.NOT_FOUND ? null : coordinates);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                geocodeCache.save();
+            }
+        });
+
+        return coordinates;
     }
 
     @Bean
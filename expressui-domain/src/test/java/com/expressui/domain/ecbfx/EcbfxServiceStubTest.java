@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.domain.ecbfx;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests EcbfxService against a local stub of the ECB daily rates endpoint.
+ */
+public class EcbfxServiceStubTest {
+
+    private static final String RATES_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<gesmes:Envelope xmlns:gesmes=\"http://www.gesmes.org/xml/2002-08-01\""
+            + " xmlns=\"http://www.ecb.int/vocabulary/2002-08-01/eurofxref\">"
+            + "<gesmes:subject>Reference rates</gesmes:subject>"
+            + "<Cube><Cube time=\"2012-09-14\">"
+            + "<Cube currency=\"USD\" rate=\"1.3093\"/>"
+            + "<Cube currency=\"JPY\" rate=\"102.50\"/>"
+            + "</Cube></Cube></gesmes:Envelope>";
+
+    private HttpServer server;
+    private AtomicInteger requestCount;
+    private volatile boolean failing;
+    private File snapshotFile;
+    private List<EcbfxService> services;
+
+    @Before
+    public void setUp() throws Exception {
+        requestCount = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                try {
+                    Thread.sleep(200); // widen window for concurrent callers
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failing) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = RATES_XML.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/xml");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        snapshotFile = File.createTempFile("ecbfx", ".properties");
+        snapshotFile.delete();
+        services = new ArrayList<EcbfxService>();
+    }
+
+    @After
+    public void tearDown() {
+        for (EcbfxService service : services) {
+            service.preDestroy();
+        }
+        server.stop(0);
+        snapshotFile.delete();
+    }
+
+    private EcbfxService createService() throws Exception {
+        EcbfxService service = new EcbfxService();
+        ReflectionTestUtils.setField(service, "snapshotFile", snapshotFile.getPath());
+        ReflectionTestUtils.setField(service, "ecbfxClient",
+                service.getEcbfxClient("http://localhost:" + server.getAddress().getPort() + "/"));
+        service.postConstruct();
+        services.add(service);
+
+        return service;
+    }
+
+    @Test
+    public void concurrentCallersFetchOnce() throws Exception {
+        final EcbfxService service = createService();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        List<Future<Map<String, BigDecimal>>> results = new ArrayList<Future<Map<String, BigDecimal>>>();
+        for (int i = 0; i < 10; i++) {
+            results.add(executor.submit(new Callable<Map<String, BigDecimal>>() {
+                @Override
+                public Map<String, BigDecimal> call() throws Exception {
+                    start.await();
+                    return service.getFXRates();
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Map<String, BigDecimal>> result : results) {
+            assertEquals(new BigDecimal("1.3093"), result.get().get("USD"));
+        }
+        executor.shutdown();
+
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void convert() throws Exception {
+        EcbfxService service = createService();
+        assertEquals(new BigDecimal("130.93"), service.convert(new BigDecimal("100.00"), "EUR", "USD"));
+        assertEquals(new BigDecimal("100.00"), service.convert(new BigDecimal("100.00"), "USD", "USD"));
+    }
+
+    @Test
+    public void convertInBatch() throws Exception {
+        EcbfxService service = createService();
+        List<BigDecimal> convertedAmounts = service.convert(Arrays.asList(
+                new EcbfxService.Conversion(new BigDecimal("100.00"), "EUR", "USD"),
+                new EcbfxService.Conversion(new BigDecimal("1309.30"), "USD", "EUR"),
+                new EcbfxService.Conversion(new BigDecimal("100.00"), "EUR", "XXX"),
+                new EcbfxService.Conversion(null, "EUR", "USD")));
+
+        assertEquals(Arrays.asList(new BigDecimal("130.93"), new BigDecimal("1000.00"), null, null),
+                convertedAmounts);
+        assertEquals(service.convert(new BigDecimal("100.00"), "USD", "JPY"), service.convert(Arrays.asList(
+                new EcbfxService.Conversion(new BigDecimal("100.00"), "USD", "JPY"))).get(0));
+    }
+
+    @Test
+    public void restoresPersistedSnapshot() throws Exception {
+        createService().getFXRates();
+        assertEquals(1, requestCount.get());
+
+        server.stop(0);
+        EcbfxService restarted = createService();
+        assertEquals(new BigDecimal("102.50"), restarted.getFXRates().get("JPY"));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void failedRefreshNotRetriedBeforeRetryInterval() throws Exception {
+        failing = true;
+        EcbfxService service = createService();
+        ReflectionTestUtils.setField(service, "retryInterval", 60L);
+        for (int i = 0; i < 3; i++) {
+            try {
+                service.getFXRates();
+                fail();
+            } catch (RuntimeException e) {
+                // expected, since no rates have been fetched
+            }
+        }
+        assertEquals(1, requestCount.get());
+
+        failing = false;
+        ReflectionTestUtils.setField(service, "retryInterval", 0L);
+        assertEquals(new BigDecimal("1.3093"), service.getFXRates().get("USD"));
+        assertEquals(2, requestCount.get());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.domain.geocode;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class GeocodeCacheTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("geocode-test", ".properties");
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void getAndPut() {
+        GeocodeCache geocodeCache = new GeocodeCache(10, file);
+        Assert.assertNull(geocodeCache.get("100 Main St"));
+
+        double[] coordinates = {-80.8, 35.2};
+        geocodeCache.put("100 Main St", coordinates);
+        coordinates[0] = 0;
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, geocodeCache.get(" 100  MAIN St"), 0);
+
+        geocodeCache.get("100 Main St")[0] = 0;
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, geocodeCache.get("100 Main St"), 0);
+
+        geocodeCache.put("Nowhere", null);
+        Assert.assertSame(GeocodeCache.NOT_FOUND, geocodeCache.get("Nowhere"));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        GeocodeCache geocodeCache = new GeocodeCache(2, file);
+        geocodeCache.put("1 First St", new double[]{1, 1});
+        geocodeCache.put("2 Second St", new double[]{2, 2});
+        geocodeCache.get("1 First St");
+        geocodeCache.put("3 Third St", new double[]{3, 3});
+
+        Assert.assertNotNull(geocodeCache.get("1 First St"));
+        Assert.assertNull(geocodeCache.get("2 Second St"));
+        Assert.assertNotNull(geocodeCache.get("3 Third St"));
+    }
+
+    @Test
+    public void saveAndLoad() {
+        GeocodeCache geocodeCache = new GeocodeCache(10, file);
+        geocodeCache.put("100 Main St", new double[]{-80.8, 35.2});
+        geocodeCache.put("Nowhere", null);
+        geocodeCache.save();
+        Assert.assertTrue(file.exists());
+
+        GeocodeCache loadedGeocodeCache = new GeocodeCache(10, file);
+        loadedGeocodeCache.load();
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, loadedGeocodeCache.get("100 Main St"), 0);
+        Assert.assertSame(GeocodeCache.NOT_FOUND, loadedGeocodeCache.get("Nowhere"));
+    }
+
+    @Test
+    public void loadUnreadableFile() throws IOException {
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write("100\\ main\\ st=not-a-number\n".getBytes("ISO-8859-1"));
+        } finally {
+            outputStream.close();
+        }
+
+        GeocodeCache geocodeCache = new GeocodeCache(10, file);
+        geocodeCache.load();
+        Assert.assertNull(geocodeCache.get("100 Main St"));
+    }
+}
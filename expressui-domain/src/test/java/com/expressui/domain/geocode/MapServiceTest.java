@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.domain.geocode;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+import static org.mockito.Mockito.*;
+
+public class MapServiceTest {
+
+    private File cacheFile;
+
+    private MapService.GeocodeClient geocodeClient;
+
+    private MapService mapService;
+
+    @Before
+    public void createMapService() throws IOException {
+        cacheFile = File.createTempFile("geocode-test", ".properties");
+        cacheFile.delete();
+        geocodeClient = mock(MapService.GeocodeClient.class);
+        mapService = createMapService(2);
+    }
+
+    @After
+    public void destroyMapService() {
+        mapService.preDestroy();
+        cacheFile.delete();
+    }
+
+    @Test
+    public void miss() {
+        when(geocodeClient.getGeocode("100 Main St", false)).thenReturn(createResponse(-80.8, 35.2));
+
+        double[] coordinates = mapService.getCoordinates("100 Main St");
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, coordinates, 0);
+        verify(geocodeClient).getGeocode("100 Main St", false);
+    }
+
+    @Test
+    public void hit() throws Exception {
+        when(geocodeClient.getGeocode("100 Main St", false)).thenReturn(createResponse(-80.8, 35.2));
+
+        mapService.getCoordinates("100 Main St");
+        double[] coordinates = mapService.getCoordinates("  100  MAIN st ");
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, coordinates, 0);
+
+        Future<double[]> future = mapService.getCoordinatesAsync("100 main st");
+        Assert.assertTrue(future.isDone());
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, future.get(), 0);
+
+        verify(geocodeClient, times(1)).getGeocode(anyString(), anyBoolean());
+    }
+
+    @Test
+    public void hitAfterRestart() {
+        when(geocodeClient.getGeocode("100 Main St", false)).thenReturn(createResponse(-80.8, 35.2));
+
+        mapService.getCoordinates("100 Main St");
+        mapService.preDestroy();
+        mapService = createMapService(2);
+
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, mapService.getCoordinates("100 Main St"), 0);
+        verify(geocodeClient, times(1)).getGeocode(anyString(), anyBoolean());
+    }
+
+    @Test
+    public void expiry() {
+        when(geocodeClient.getGeocode(anyString(), eq(false))).thenReturn(createResponse(-80.8, 35.2));
+
+        mapService.getCoordinates("1 First St");
+        mapService.getCoordinates("2 Second St");
+        mapService.getCoordinates("1 First St");
+        mapService.getCoordinates("3 Third St");
+        verify(geocodeClient, times(1)).getGeocode("1 First St", false);
+
+        mapService.getCoordinates("2 Second St");
+        verify(geocodeClient, times(2)).getGeocode("2 Second St", false);
+    }
+
+    @Test
+    public void notFound() {
+        MapService.GeocodeResponse response = new MapService.GeocodeResponse();
+        response.status = "ZERO_RESULTS";
+        when(geocodeClient.getGeocode("Nowhere", false)).thenReturn(response);
+
+        Assert.assertNull(mapService.getCoordinates("Nowhere"));
+        Assert.assertNull(mapService.getCoordinates("Nowhere"));
+        verify(geocodeClient, times(1)).getGeocode("Nowhere", false);
+    }
+
+    @Test
+    public void failedLookup() {
+        MapService.GeocodeResponse response = new MapService.GeocodeResponse();
+        response.status = "OVER_QUERY_LIMIT";
+        when(geocodeClient.getGeocode("100 Main St", false)).thenReturn(response, createResponse(-80.8, 35.2));
+
+        Assert.assertNull(mapService.getCoordinates("100 Main St"));
+        Assert.assertArrayEquals(new double[]{-80.8, 35.2}, mapService.getCoordinates("100 Main St"), 0);
+        verify(geocodeClient, times(2)).getGeocode("100 Main St", false);
+    }
+
+    private MapService createMapService(int cacheSize) {
+        MapService mapService = new MapService();
+        ReflectionTestUtils.setField(mapService, "geocodeClient", geocodeClient);
+        ReflectionTestUtils.setField(mapService, "cacheSize", cacheSize);
+        ReflectionTestUtils.setField(mapService, "cacheFile", cacheFile.getPath());
+        mapService.postConstruct();
+
+        return mapService;
+    }
+
+    private static MapService.GeocodeResponse createResponse(double lng, double lat) {
+        MapService.GeocodeResponse response = new MapService.GeocodeResponse();
+        response.status = "OK";
+        response.result = new MapService.Result();
+        response.result.geometry = new MapService.Geometry();
+        response.result.geometry.location = new MapService.Location();
+        response.result.geometry.location.lng = lng;
+        response.result.geometry.location.lat = lat;
+
+        return response;
+    }
+}
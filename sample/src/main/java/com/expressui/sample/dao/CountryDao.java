@@ -38,9 +38,12 @@
 package com.expressui.sample.dao;
 
 import com.expressui.core.dao.EntityDao;
+import com.expressui.core.dao.ReferenceDataCache;
 import com.expressui.sample.entity.Country;
+import com.expressui.sample.entity.State;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
 import javax.persistence.Query;
 import java.util.List;
 
@@ -48,11 +51,19 @@ import java.util.List;
 @SuppressWarnings("unchecked")
 public class CountryDao extends EntityDao<Country, String> {
 
+    @Resource
+    private ReferenceDataCache referenceDataCache;
+
     public List<Country> findCountriesWithStates() {
-        Query query = getEntityManager().createQuery(
-                "SELECT DISTINCT c FROM Country c, State s WHERE s.country = c ORDER BY c.name");
-        setReadOnly(query);
+        return referenceDataCache.get(Country.class, "withStates", new ReferenceDataCache.Loader<Country>() {
+            @Override
+            public List<Country> load() {
+                Query query = getEntityManager().createQuery(
+                        "SELECT DISTINCT c FROM Country c, State s WHERE s.country = c ORDER BY c.name");
+                setReadOnly(query);
 
-        return query.getResultList();
+                return query.getResultList();
+            }
+        }, State.class);
     }
 }
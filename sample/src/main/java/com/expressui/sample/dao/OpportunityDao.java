@@ -38,17 +38,82 @@
 package com.expressui.sample.dao;
 
 import com.expressui.core.dao.EntityDao;
+import com.expressui.domain.ecbfx.EcbfxService;
 import com.expressui.sample.entity.Opportunity;
 import com.expressui.sample.entity.derived.TotalSalesStage;
 import com.expressui.sample.entity.derived.TotalYearSales;
+import org.apache.log4j.Logger;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
 import javax.persistence.Query;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 @Repository
 public class OpportunityDao extends EntityDao<Opportunity, Long> {
 
+    private final Logger log = Logger.getLogger(getClass());
+
+    @Resource
+    private EcbfxService ecbfxService;
+
+    /**
+     * Converts amounts of all opportunities being persisted into USD in one batch, so that their @PrePersist
+     * callbacks need not convert them one by one.
+     *
+     * @param entities opportunities to persist
+     */
+    @Override
+    public void prePersist(Collection<Opportunity> entities) {
+        calculateUSDAmounts(entities);
+    }
+
+    /**
+     * Calculates USD amounts of many opportunities in one batch, against the same snapshot of exchange rates.
+     * Opportunities whose USD amounts are already calculated from their current amount, currency and probability
+     * are skipped. If rates are unavailable, USD amounts are cleared rather than left stale, see
+     * {@link Opportunity#setConvertedAmountInUSD(java.math.BigDecimal)}.
+     *
+     * @param opportunities opportunities to calculate
+     */
+    public void calculateUSDAmounts(Collection<Opportunity> opportunities) {
+        List<Opportunity> convertibleOpportunities = new ArrayList<Opportunity>(opportunities.size());
+        List<EcbfxService.Conversion> conversions = new ArrayList<EcbfxService.Conversion>(opportunities.size());
+        for (Opportunity opportunity : opportunities) {
+            if (!opportunity.isUSDAmountsCalculationRequired()) continue;
+
+            EcbfxService.Conversion conversion = opportunity.getUSDConversion();
+            if (conversion == null) {
+                opportunity.setConvertedAmountInUSD(null);
+            } else {
+                convertibleOpportunities.add(opportunity);
+                conversions.add(conversion);
+            }
+        }
+
+        if (!conversions.isEmpty()) {
+            List<BigDecimal> convertedAmounts;
+            try {
+                convertedAmounts = ecbfxService.convert(conversions);
+            } catch (RuntimeException e) {
+                log.warn("Failed to convert amounts of " + conversions.size() + " opportunities into USD: "
+                        + e.getMessage());
+                for (Opportunity opportunity : convertibleOpportunities) {
+                    opportunity.setConvertedAmountInUSD(null);
+                }
+                return;
+            }
+            Iterator<BigDecimal> convertedAmountIterator = convertedAmounts.iterator();
+            for (Opportunity opportunity : convertibleOpportunities) {
+                opportunity.setConvertedAmountInUSD(convertedAmountIterator.next());
+            }
+        }
+    }
+
     public List<TotalSalesStage> getSalesStageCounts() {
         Query query = getEntityManager().createQuery(
                 "select new com.expressui.sample.entity.derived.TotalSalesStage(opportunity.salesStage, count(opportunity)) " +
@@ -38,10 +38,12 @@
 package com.expressui.sample.dao;
 
 import com.expressui.core.dao.EntityDao;
+import com.expressui.core.dao.ReferenceDataCache;
 import com.expressui.sample.entity.Country;
 import com.expressui.sample.entity.State;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
 import javax.persistence.Query;
 import java.util.List;
 
@@ -49,11 +51,22 @@ import java.util.List;
 @SuppressWarnings("unchecked")
 public class StateDao extends EntityDao<State, String> {
 
-    public List<State> findByCountry(Country country) {
-        Query query = getEntityManager().createQuery("SELECT s FROM State s WHERE s.country = :country ORDER BY s.name");
-        query.setParameter("country", country);
-        setReadOnly(query);
+    @Resource
+    private ReferenceDataCache referenceDataCache;
 
-        return query.getResultList();
+    public List<State> findByCountry(final Country country) {
+        String countryId = country == null ? null : country.getId();
+        return referenceDataCache.get(State.class, countryId, new ReferenceDataCache.Loader<State>() {
+            @Override
+            public List<State> load() {
+                // fetch country, since cached states are shared detached across sessions
+                Query query = getEntityManager().createQuery("SELECT s FROM State s JOIN FETCH s.country"
+                        + " WHERE s.country = :country ORDER BY s.name");
+                query.setParameter("country", country);
+                setReadOnly(query);
+
+                return query.getResultList();
+            }
+        });
     }
 }
@@ -46,11 +46,15 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Provides advice to GenericDao.remove by clearing out
  * all references to the user so that user can be deleted without resulting in referential
- * constraint violations.
+ * constraint violations. Bulk removal of a collection of entities is advised as well, since it
+ * does not delegate to remove for each entity.
  */
 @Aspect
 @Repository
@@ -80,4 +84,33 @@ public class UserReferenceCleanupAdvice {
         query.setParameter("user", user);
         query.executeUpdate();
     }
+
+    @Before("(bean(genericDao) || bean(userDao)) && execution(* *.remove(java.util.Collection)) && args(entities)")
+    @Transactional
+    public void remove(Collection<?> entities) {
+        List<User> users = new ArrayList<User>();
+        for (Object entity : entities) {
+            if (entity instanceof User) {
+                users.add((User) entity);
+            }
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+
+        Query query = entityManager.createQuery(
+                "UPDATE Account a SET a.assignedTo = null WHERE a.assignedTo IN :users");
+        query.setParameter("users", users);
+        query.executeUpdate();
+
+        query = entityManager.createQuery(
+                "UPDATE Contact c SET c.assignedTo = null WHERE c.assignedTo IN :users");
+        query.setParameter("users", users);
+        query.executeUpdate();
+
+        query = entityManager.createQuery(
+                "UPDATE Opportunity o SET o.assignedTo = null WHERE o.assignedTo IN :users");
+        query.setParameter("users", users);
+        query.executeUpdate();
+    }
 }
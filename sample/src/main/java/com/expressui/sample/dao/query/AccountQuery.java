@@ -50,6 +50,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
@@ -93,6 +94,10 @@ public class AccountQuery extends StructuredEntityQuery<Account> {
         if (hasValue(name)) {
             ParameterExpression<String> nameExp = builder.parameter(String.class, "name");
             predicates.add(builder.like(builder.upper(account.<String>get("name")), nameExp));
+            Predicate nameSearch = buildTextSearch(builder, query, account, "name", name);
+            if (nameSearch != null) {
+                predicates.add(nameSearch);
+            }
         }
         if (hasValue(states)) {
             ParameterExpression<Set> statesExp = builder.parameter(Set.class, "states");
@@ -109,7 +114,7 @@ public class AccountQuery extends StructuredEntityQuery<Account> {
     @Override
     public void setParameters(TypedQuery<Serializable> typedQuery) {
         if (hasValue(name)) {
-            typedQuery.setParameter("name", "%" + name.toUpperCase() + "%");
+            typedQuery.setParameter("name", "%" + name.toUpperCase(Locale.ENGLISH) + "%");
         }
         if (hasValue(states)) {
             typedQuery.setParameter("states", states);
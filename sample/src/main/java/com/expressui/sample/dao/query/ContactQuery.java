@@ -48,6 +48,7 @@ import javax.persistence.criteria.*;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
 
@@ -81,6 +82,10 @@ public class ContactQuery extends StructuredEntityQuery<Contact> {
         if (hasValue(lastName)) {
             ParameterExpression<String> lastNameExp = builder.parameter(String.class, "lastName");
             predicates.add(builder.like(builder.upper(contact.<String>get("lastName")), lastNameExp));
+            Predicate lastNameSearch = buildTextSearch(builder, query, contact, "lastName", lastName);
+            if (lastNameSearch != null) {
+                predicates.add(lastNameSearch);
+            }
         }
         if (hasValue(account)) {
             ParameterExpression<Account> accountExp = builder.parameter(Account.class, "account");
@@ -93,7 +98,7 @@ public class ContactQuery extends StructuredEntityQuery<Contact> {
     @Override
     public void setParameters(TypedQuery<Serializable> typedQuery) {
         if (hasValue(lastName)) {
-            typedQuery.setParameter("lastName", "%" + lastName.toUpperCase() + "%");
+            typedQuery.setParameter("lastName", "%" + lastName.toUpperCase(Locale.ENGLISH) + "%");
         }
         if (hasValue(account)) {
             typedQuery.setParameter("account", account);
@@ -49,6 +49,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
@@ -83,6 +84,11 @@ public class OpportunityQuery extends StructuredEntityQuery<Opportunity> {
         if (hasValue(accountName)) {
             ParameterExpression<String> accountNameExp = builder.parameter(String.class, "accountName");
             predicates.add(builder.like(builder.upper(opportunity.get("account").<String>get("name")), accountNameExp));
+            Predicate accountNameSearch = buildTextSearch(builder, query, opportunity.get("account"), "name",
+                    accountName);
+            if (accountNameSearch != null) {
+                predicates.add(accountNameSearch);
+            }
         }
         if (hasValue(salesStages)) {
             ParameterExpression<Set> salesStagesExp = builder.parameter(Set.class, "salesStages");
@@ -95,7 +101,7 @@ public class OpportunityQuery extends StructuredEntityQuery<Opportunity> {
     @Override
     public void setParameters(TypedQuery<Serializable> typedQuery) {
         if (hasValue(accountName)) {
-            typedQuery.setParameter("accountName", "%" + accountName.toUpperCase() + "%");
+            typedQuery.setParameter("accountName", "%" + accountName.toUpperCase(Locale.ENGLISH) + "%");
         }
         if (hasValue(salesStages)) {
             typedQuery.setParameter("salesStages", salesStages);
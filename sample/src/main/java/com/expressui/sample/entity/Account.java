@@ -41,6 +41,8 @@ package com.expressui.sample.entity;
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.WritableEntity;
 import com.expressui.core.entity.security.User;
+import com.expressui.core.entity.textindex.Searchable;
+import com.expressui.core.util.SpringApplicationContext;
 import com.expressui.core.validation.ValidUrl;
 import com.expressui.domain.ecbfx.EcbfxService;
 import com.expressui.sample.validator.ValidPhone;
@@ -49,7 +51,6 @@ import org.hibernate.annotations.Index;
 import org.hibernate.validator.constraints.Email;
 import org.hibernate.validator.constraints.NotBlank;
 
-import javax.annotation.Resource;
 import javax.persistence.*;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
@@ -66,7 +67,6 @@ import static com.expressui.core.util.ObjectUtil.isEqual;
 @Table
 public class Account extends WritableEntity implements NamedEntity {
 
-    @Resource
     @Transient
     private EcbfxService ecbfxService;
 
@@ -130,6 +130,7 @@ public class Account extends WritableEntity implements NamedEntity {
     @NotBlank
     @NotNull
     @Size(min = 1, max = 64)
+    @Searchable
     @Override
     public String getName() {
         return name;
@@ -221,7 +222,7 @@ public class Account extends WritableEntity implements NamedEntity {
             return null;
         } else {
             try {
-                BigDecimal annualRevenueInUSD = ecbfxService.convert(getAnnualRevenue(), getCurrency().getId(), "USD");
+                BigDecimal annualRevenueInUSD = getEcbfxService().convert(getAnnualRevenue(), getCurrency().getId(), "USD");
                 return annualRevenueInUSD.setScale(0, RoundingMode.HALF_EVEN);
             } catch (Exception e) {
                 return null;
@@ -229,6 +230,13 @@ public class Account extends WritableEntity implements NamedEntity {
         }
     }
 
+    private EcbfxService getEcbfxService() {
+        if (ecbfxService == null) {
+            ecbfxService = SpringApplicationContext.getBean(EcbfxService.class);
+        }
+        return ecbfxService;
+    }
+
     public String getDescription() {
         return description;
     }
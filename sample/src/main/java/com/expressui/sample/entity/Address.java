@@ -121,6 +121,7 @@ public class Address extends WritableEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "zipCode",
+            dependsOn = {"zipCode", "country"},
             message = "{com.expressui.sample.entity.Address.zipCodeInvalidForUS}")
     public boolean isUsZipCodeValid() {
         if (!isEmpty(getZipCode()) && isCountryId("US")) {
@@ -131,6 +132,7 @@ public class Address extends WritableEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "zipCode",
+            dependsOn = {"zipCode", "country"},
             message = "{com.expressui.sample.entity.Address.zipCodeInvalidForCA}")
     public boolean isCaZipCodeValid() {
         if (!isEmpty(getZipCode()) && isCountryId("CA")) {
@@ -141,6 +143,7 @@ public class Address extends WritableEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "zipCode",
+            dependsOn = {"zipCode", "country"},
             message = "{com.expressui.sample.entity.Address.zipCodeInvalidForCountry}")
     public boolean isZipCodeValidForCountry() {
         if (!isEmpty(getZipCode()) && getCountry() != null && !isCountryId("US", "CA")) {
@@ -159,6 +162,7 @@ public class Address extends WritableEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "state",
+            dependsOn = {"state", "country"},
             message = "{com.expressui.sample.entity.Address.stateRequiredForCountry}")
     public boolean isStateValid() {
         if (getCountry() != null && isEqual(getCountry().getId(), "US", "CA", "MX", "AU")) {
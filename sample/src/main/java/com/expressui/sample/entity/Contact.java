@@ -41,6 +41,7 @@ package com.expressui.sample.entity;
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.WritableEntity;
 import com.expressui.core.entity.security.User;
+import com.expressui.core.entity.textindex.Searchable;
 import com.expressui.sample.validator.ValidPhone;
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.annotations.Index;
@@ -142,6 +143,7 @@ public class Contact extends WritableEntity implements NamedEntity {
     @NotBlank
     @NotNull
     @Size(min = 1, max = 64)
+    @Searchable
     public String getLastName() {
         return lastName;
     }
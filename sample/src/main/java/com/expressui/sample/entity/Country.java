@@ -39,13 +39,13 @@ package com.expressui.sample.entity;
 
 
 import com.expressui.core.entity.ReferenceEntity;
+import com.expressui.core.util.SpringApplicationContext;
 import com.expressui.core.view.util.MessageSource;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.annotations.Index;
 
-import javax.annotation.Resource;
 import javax.persistence.*;
 
 import static com.expressui.core.entity.ReferenceEntity.READ_ONLY_CACHE;
@@ -56,7 +56,6 @@ import static com.expressui.core.entity.ReferenceEntity.READ_ONLY_CACHE;
 public class Country extends ReferenceEntity {
 
 
-    @Resource
     @Transient
     private MessageSource domainMessageSource;
 
@@ -160,7 +159,7 @@ public class Country extends ReferenceEntity {
 
     public String getZipCodeToolTip() {
         if (getMinPostalCode() != null && getMaxPostalCode() != null) {
-            return domainMessageSource.getMessage("zipCode") +
+            return getDomainMessageSource().getMessage("zipCode") +
                     "<ul>" +
                     "  <li>" + getMinPostalCode() + " - " + getMaxPostalCode() + "</li>" +
                     "</ul>";
@@ -168,4 +167,11 @@ public class Country extends ReferenceEntity {
             return null;
         }
     }
+
+    private MessageSource getDomainMessageSource() {
+        if (domainMessageSource == null) {
+            domainMessageSource = SpringApplicationContext.getBean("domainMessageSource", MessageSource.class);
+        }
+        return domainMessageSource;
+    }
 }
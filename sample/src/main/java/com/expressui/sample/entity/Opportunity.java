@@ -41,19 +41,20 @@ package com.expressui.sample.entity;
 import com.expressui.core.entity.NamedEntity;
 import com.expressui.core.entity.WritableEntity;
 import com.expressui.core.entity.security.User;
+import com.expressui.core.util.SpringApplicationContext;
 import com.expressui.core.validation.AssertTrueForProperties;
 import com.expressui.domain.ecbfx.EcbfxService;
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.annotations.Index;
 import org.hibernate.validator.constraints.NotBlank;
 
-import javax.annotation.Resource;
 import javax.persistence.*;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Date;
 
 import static com.expressui.core.util.ObjectUtil.isEqual;
@@ -63,7 +64,6 @@ import static com.expressui.core.util.StringUtil.isEmpty;
 @Table
 public class Opportunity extends WritableEntity implements NamedEntity {
 
-    @Resource
     @Transient
     private EcbfxService ecbfxService;
 
@@ -91,6 +91,12 @@ public class Opportunity extends WritableEntity implements NamedEntity {
 
     private BigDecimal valueWeightedInUSD;
 
+    @Transient
+    private boolean usdAmountsStale;
+
+    @Transient
+    private String usdAmountsBasis;
+
     @Lob
     private String description;
 
@@ -158,6 +164,7 @@ public class Opportunity extends WritableEntity implements NamedEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "actualCloseDate",
+            dependsOn = {"salesStage", "actualCloseDate"},
             message = "{com.expressui.sample.entity.Opportunity.actualCloseDateRequiredIfSalesStageClosed}")
     public boolean isActualCloseDateValidIfSalesStageClosed() {
         if (getSalesStage() != null && getSalesStage().getId().startsWith("Closed")) {
@@ -168,6 +175,7 @@ public class Opportunity extends WritableEntity implements NamedEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "actualCloseDate",
+            dependsOn = {"salesStage", "actualCloseDate"},
             message = "{com.expressui.sample.entity.Opportunity.actualCloseDateEmptyIfSalesStageOpen}")
     public boolean isActualCloseDateValidIfSalesStageOpen() {
         if (getSalesStage() != null && !getSalesStage().getId().startsWith("Closed")) {
@@ -178,6 +186,7 @@ public class Opportunity extends WritableEntity implements NamedEntity {
     }
 
     @AssertTrueForProperties(errorProperty = "expectedCloseDate",
+            dependsOn = {"salesStage", "expectedCloseDate"},
             message = "{com.expressui.sample.entity.Opportunity.expectedCloseDateEmptyIfSalesStageClosed}")
     public boolean isExpectedCloseDateValidIfSalesStageClosed() {
         if (getSalesStage() != null && getSalesStage().getId().startsWith("Closed")) {
@@ -195,8 +204,7 @@ public class Opportunity extends WritableEntity implements NamedEntity {
     public void setAmount(BigDecimal amount) {
         if (!isEqual(this.amount, amount)) {
             this.amount = amount;
-            valueWeightedInUSD = calculateValueWeightedInUSD();
-            amountInUSD = calculateAmountInUSD();
+            usdAmountsStale = true;
         }
     }
 
@@ -211,8 +219,7 @@ public class Opportunity extends WritableEntity implements NamedEntity {
     public void setCurrency(Currency currency) {
         if (!isEqual(this.currency, currency)) {
             this.currency = currency;
-            valueWeightedInUSD = calculateValueWeightedInUSD();
-            amountInUSD = calculateAmountInUSD();
+            usdAmountsStale = true;
         }
     }
 
@@ -223,46 +230,121 @@ public class Opportunity extends WritableEntity implements NamedEntity {
     public void setProbability(double probability) {
         if (this.probability != probability) {
             this.probability = probability;
-            valueWeightedInUSD = calculateValueWeightedInUSD();
+            usdAmountsStale = true;
         }
     }
 
     public BigDecimal getValueWeightedInUSD() {
+        if (usdAmountsStale) {
+            calculateUSDAmounts();
+        }
         return valueWeightedInUSD;
     }
 
-    private BigDecimal calculateValueWeightedInUSD() {
+    public BigDecimal getAmountInUSD() {
+        if (usdAmountsStale) {
+            calculateUSDAmounts();
+        }
+        return amountInUSD;
+    }
+
+    /**
+     * Gets the conversion of amount into USD, so that USD amounts of many opportunities can be calculated in one
+     * batch, see EcbfxService.convert(List).
+     *
+     * @return conversion into USD or null if amount or currency is not set
+     */
+    public EcbfxService.Conversion getUSDConversion() {
         if (getAmount() == null || getCurrency() == null) {
             return null;
         } else {
-            try {
-                BigDecimal amountInUSD = ecbfxService.convert(getAmount(), getCurrency().getId(), "USD");
-                amountInUSD = amountInUSD.setScale(0, RoundingMode.HALF_EVEN);
-                BigDecimal valueWeightedInUSD = amountInUSD.multiply(new BigDecimal(getProbability()));
-                return valueWeightedInUSD.setScale(0, RoundingMode.HALF_EVEN);
-            } catch (Exception e) {
-                return null;
-            }
+            return new EcbfxService.Conversion(getAmount(), getCurrency().getId(), "USD");
         }
     }
 
-    public BigDecimal getAmountInUSD() {
-        return amountInUSD;
+    /**
+     * Sets the USD amount and value weighted by probability from amount already converted into USD. If amount or
+     * currency is not set, USD amounts are cleared. If the amount could not be converted, USD amounts are cleared
+     * as well, rather than keeping amounts calculated from previous values, and conversion is retried on the
+     * next save.
+     *
+     * @param convertedAmountInUSD amount converted into USD or null if it could not be converted
+     */
+    public void setConvertedAmountInUSD(BigDecimal convertedAmountInUSD) {
+        usdAmountsStale = false;
+        if (getUSDConversion() == null) {
+            amountInUSD = null;
+            valueWeightedInUSD = null;
+        } else if (convertedAmountInUSD == null) {
+            amountInUSD = null;
+            valueWeightedInUSD = null;
+            usdAmountsBasis = null;
+            return;
+        } else {
+            amountInUSD = convertedAmountInUSD.setScale(0, RoundingMode.HALF_EVEN);
+            BigDecimal valueWeightedInUSD = amountInUSD.multiply(new BigDecimal(getProbability()));
+            this.valueWeightedInUSD = valueWeightedInUSD.setScale(0, RoundingMode.HALF_EVEN);
+        }
+        usdAmountsBasis = getUSDAmountsBasis();
     }
 
-
-    private BigDecimal calculateAmountInUSD() {
-        if (getAmount() == null || getCurrency() == null) {
-            return null;
-        } else {
+    private void calculateUSDAmounts() {
+        EcbfxService.Conversion conversion = getUSDConversion();
+        BigDecimal convertedAmountInUSD = null;
+        if (conversion != null && getEcbfxService() != null) {
             try {
-                BigDecimal amountInUSD = ecbfxService.convert(getAmount(), getCurrency().getId(), "USD");
-                amountInUSD = amountInUSD.setScale(0, RoundingMode.HALF_EVEN);
-                return amountInUSD.setScale(0, RoundingMode.HALF_EVEN);
-            } catch (Exception e) {
-                return null;
+                convertedAmountInUSD = getEcbfxService().convert(Arrays.asList(conversion)).get(0);
+            } catch (RuntimeException e) {
+                convertedAmountInUSD = null;
             }
         }
+        setConvertedAmountInUSD(convertedAmountInUSD);
+    }
+
+    /**
+     * Gets the values that USD amounts are calculated from, so that saving only recalculates USD amounts
+     * if amount, currency or probability changed since they were loaded or calculated.
+     */
+    private String getUSDAmountsBasis() {
+        return getAmount() + "," + (getCurrency() == null ? null : getCurrency().getId()) + "," + getProbability();
+    }
+
+    private EcbfxService getEcbfxService() {
+        if (ecbfxService == null && SpringApplicationContext.getApplicationContext() != null) {
+            ecbfxService = SpringApplicationContext.getBean(EcbfxService.class);
+        }
+        return ecbfxService;
+    }
+
+    /**
+     * Remembers the amount, currency and probability that the loaded USD amounts were calculated from.
+     */
+    @PostLoad
+    public void postLoad() {
+        usdAmountsBasis = getUSDAmountsBasis();
+    }
+
+    /**
+     * Calculates USD amounts before saving, unless they were already calculated from the current amount,
+     * currency and probability, for example when loaded or in a batch by OpportunityDao. Saving changes to other
+     * properties therefore never converts historical amounts again at current rates.
+     */
+    @PrePersist
+    @PreUpdate
+    public void preSave() {
+        if (isUSDAmountsCalculationRequired()) {
+            calculateUSDAmounts();
+        }
+    }
+
+    /**
+     * Asks if USD amounts need to be calculated, because amount, currency or probability changed since they were
+     * loaded or calculated.
+     *
+     * @return true if USD amounts need to be calculated
+     */
+    public boolean isUSDAmountsCalculationRequired() {
+        return usdAmountsStale || !getUSDAmountsBasis().equals(usdAmountsBasis);
     }
 
     public String getDescription() {
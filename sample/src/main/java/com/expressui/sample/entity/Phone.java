@@ -43,9 +43,7 @@ import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.Phonenumber;
 
-import javax.annotation.Resource;
 import javax.persistence.Embeddable;
-import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 
@@ -53,20 +51,17 @@ import java.io.Serializable;
 @Embeddable
 public class Phone implements Serializable {
 
-    @Resource
-    @Transient
-    private MessageSource validationMessageSource;
-
     private Integer countryCode;
     private Long phoneNumber;
 
     public Phone() {
-        SpringApplicationContext.autowire(this);
     }
 
     public Phone(String fullNumber, String defaultRegionCode) throws NumberParseException {
         this();
         if (fullNumber.matches(".*[a-zA-Z]+.*")) {
+            MessageSource validationMessageSource = SpringApplicationContext.getBean("validationMessageSource",
+                    MessageSource.class);
             String message = validationMessageSource.getMessage("com.expressui.sample.entity.Phone.phoneNumberWithLetters");
             throw new NumberParseException(NumberParseException.ErrorType.NOT_A_NUMBER, message);
         }
@@ -1,6 +1,6 @@
 
     create table SAMPLE.ACCOUNT (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -39,7 +39,7 @@
     );
 
     create table SAMPLE.ADDRESS (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -56,7 +56,7 @@
     );
 
     create table SAMPLE.CONTACT (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -120,7 +120,7 @@
     );
 
     create table SAMPLE.OPPORTUNITY (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -145,7 +145,7 @@
     );
 
     create table SAMPLE.PERMISSION (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -164,7 +164,7 @@
     );
 
     create table SAMPLE.PROFILE (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -184,7 +184,7 @@
     );
 
     create table SAMPLE.ROLE (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -215,6 +215,15 @@
         primary key (ID)
     );
 
+    create table SAMPLE.TEXT_INDEX_ENTRY (
+        ID bigint not null,
+        ENTITY_ID bigint not null,
+        ENTITY_TYPE varchar(128) not null,
+        PROPERTY_ID varchar(64) not null,
+        TRIGRAM varchar(3) not null,
+        primary key (ID)
+    );
+
     create table SAMPLE.USER_ROLE (
         ROLE_ID bigint not null,
         USER_ID bigint not null,
@@ -227,7 +236,7 @@
     );
 
     create table SAMPLE.UZER (
-        ID bigint generated by default as identity,
+        ID bigint not null,
         CREATED timestamp not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED timestamp not null,
@@ -407,6 +416,10 @@
         foreign key (COUNTRY_ID) 
         references SAMPLE.COUNTRY;
 
+    create index IDX_TEXT_INDEX_TRIGRAM on SAMPLE.TEXT_INDEX_ENTRY (ENTITY_TYPE, PROPERTY_ID, TRIGRAM);
+
+    create index IDX_TEXT_INDEX_ENTITY on SAMPLE.TEXT_INDEX_ENTRY (ENTITY_ID);
+
     create index IDX_USER_ROLE_ROLE on SAMPLE.USER_ROLE (ROLE_ID);
 
     create index IDX_USER_ROLE_USER on SAMPLE.USER_ROLE (USER_ID);
@@ -420,3 +433,21 @@
         add constraint FK_USER_ROLE_USER 
         foreign key (USER_ID) 
         references SAMPLE.UZER;
+
+    create sequence SAMPLE.SEQ_ACCOUNT start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_ADDRESS start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_CONTACT start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_OPPORTUNITY start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_PERMISSION start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_PROFILE start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_ROLE start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_TEXT_INDEX_ENTRY start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_UZER start with 1 increment by 50;
@@ -1,6 +1,6 @@
 
     create table sample.ACCOUNT (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -39,7 +39,7 @@
     );
 
     create table sample.ADDRESS (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -56,7 +56,7 @@
     );
 
     create table sample.CONTACT (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -120,7 +120,7 @@
     );
 
     create table sample.OPPORTUNITY (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -145,7 +145,7 @@
     );
 
     create table sample.PERMISSION (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -164,7 +164,7 @@
     );
 
     create table sample.PROFILE (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -184,7 +184,7 @@
     );
 
     create table sample.ROLE (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -215,6 +215,15 @@
         primary key (ID)
     );
 
+    create table sample.TEXT_INDEX_ENTRY (
+        ID bigint not null,
+        ENTITY_ID bigint not null,
+        ENTITY_TYPE varchar(128) not null,
+        PROPERTY_ID varchar(64) not null,
+        TRIGRAM varchar(3) not null,
+        primary key (ID)
+    );
+
     create table sample.USER_ROLE (
         ROLE_ID bigint not null,
         USER_ID bigint not null,
@@ -227,7 +236,7 @@
     );
 
     create table sample.UZER (
-        ID bigint not null auto_increment,
+        ID bigint not null,
         CREATED datetime not null,
         CREATED_BY varchar(255) not null,
         LAST_MODIFIED datetime not null,
@@ -431,6 +440,10 @@
         foreign key (COUNTRY_ID) 
         references sample.COUNTRY (ID);
 
+    create index IDX_TEXT_INDEX_TRIGRAM on sample.TEXT_INDEX_ENTRY (ENTITY_TYPE, PROPERTY_ID, TRIGRAM);
+
+    create index IDX_TEXT_INDEX_ENTITY on sample.TEXT_INDEX_ENTRY (ENTITY_ID);
+
     create index IDX_USER_ROLE_ROLE on sample.USER_ROLE (ROLE_ID);
 
     create index IDX_USER_ROLE_USER on sample.USER_ROLE (USER_ID);
@@ -446,3 +459,57 @@
         add constraint FK_USER_ROLE_USER 
         foreign key (USER_ID) 
         references sample.UZER (ID);
+
+    create table sample.SEQ_ACCOUNT (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_ACCOUNT values ( 1 );
+
+    create table sample.SEQ_ADDRESS (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_ADDRESS values ( 1 );
+
+    create table sample.SEQ_CONTACT (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_CONTACT values ( 1 );
+
+    create table sample.SEQ_OPPORTUNITY (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_OPPORTUNITY values ( 1 );
+
+    create table sample.SEQ_PERMISSION (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_PERMISSION values ( 1 );
+
+    create table sample.SEQ_PROFILE (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_PROFILE values ( 1 );
+
+    create table sample.SEQ_ROLE (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_ROLE values ( 1 );
+
+    create table sample.SEQ_TEXT_INDEX_ENTRY (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_TEXT_INDEX_ENTRY values ( 1 );
+
+    create table sample.SEQ_UZER (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_UZER values ( 1 );
@@ -0,0 +1,54 @@
+-- Migrates databases created before ids were allocated from sequences, when ID columns were identity columns.
+-- Creates the sequence of each table and restarts it at the first block of 50 ids above the table's highest id.
+-- Run once before starting the upgraded application. The block size must match expressui.sequenceIncrementSize.
+
+    create sequence SAMPLE.SEQ_ACCOUNT start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_ACCOUNT restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.ACCOUNT
+    );
+
+    create sequence SAMPLE.SEQ_ADDRESS start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_ADDRESS restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.ADDRESS
+    );
+
+    create sequence SAMPLE.SEQ_CONTACT start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_CONTACT restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.CONTACT
+    );
+
+    create sequence SAMPLE.SEQ_OPPORTUNITY start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_OPPORTUNITY restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.OPPORTUNITY
+    );
+
+    create sequence SAMPLE.SEQ_PERMISSION start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_PERMISSION restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.PERMISSION
+    );
+
+    create sequence SAMPLE.SEQ_PROFILE start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_PROFILE restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.PROFILE
+    );
+
+    create sequence SAMPLE.SEQ_ROLE start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_ROLE restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.ROLE
+    );
+
+    -- TEXT_INDEX_ENTRY is new, see migrate-text-index.dev.sql, so its sequence starts at 1
+    create sequence SAMPLE.SEQ_TEXT_INDEX_ENTRY start with 1 increment by 50;
+
+    create sequence SAMPLE.SEQ_UZER start with 1 increment by 50;
+
+    alter sequence SAMPLE.SEQ_UZER restart with (
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from SAMPLE.UZER
+    );
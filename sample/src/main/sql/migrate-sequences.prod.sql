@@ -0,0 +1,66 @@
+-- Migrates databases created before ids were allocated from sequences, when ID columns were identity columns.
+-- Creates the sequence table of each table, starting at the first block of 50 ids above the table's highest id.
+-- Run once before starting the upgraded application. The block size must match expressui.sequenceIncrementSize.
+
+    create table sample.SEQ_ACCOUNT (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_ACCOUNT
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.ACCOUNT;
+
+    create table sample.SEQ_ADDRESS (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_ADDRESS
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.ADDRESS;
+
+    create table sample.SEQ_CONTACT (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_CONTACT
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.CONTACT;
+
+    create table sample.SEQ_OPPORTUNITY (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_OPPORTUNITY
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.OPPORTUNITY;
+
+    create table sample.SEQ_PERMISSION (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_PERMISSION
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.PERMISSION;
+
+    create table sample.SEQ_PROFILE (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_PROFILE
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.PROFILE;
+
+    create table sample.SEQ_ROLE (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_ROLE
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.ROLE;
+
+    create table sample.SEQ_TEXT_INDEX_ENTRY (
+         next_val bigint 
+    );
+
+    -- TEXT_INDEX_ENTRY is new, see migrate-text-index.prod.sql, so its sequence starts at 1
+    insert into sample.SEQ_TEXT_INDEX_ENTRY values ( 1 );
+
+    create table sample.SEQ_UZER (
+         next_val bigint 
+    );
+
+    insert into sample.SEQ_UZER
+        select (floor(coalesce(max(ID), 0) / 50) + 1) * 50 + 1 from sample.UZER;
@@ -0,0 +1,16 @@
+-- Migrates databases created before the text index was introduced, by creating its table and indexes.
+-- Existing rows are indexed in the background when the application starts, see TextIndex. Until then, searches
+-- on the affected entities do not use the index.
+
+    create table SAMPLE.TEXT_INDEX_ENTRY (
+        ID bigint not null,
+        ENTITY_ID bigint not null,
+        ENTITY_TYPE varchar(128) not null,
+        PROPERTY_ID varchar(64) not null,
+        TRIGRAM varchar(3) not null,
+        primary key (ID)
+    );
+
+    create index IDX_TEXT_INDEX_TRIGRAM on SAMPLE.TEXT_INDEX_ENTRY (ENTITY_TYPE, PROPERTY_ID, TRIGRAM);
+
+    create index IDX_TEXT_INDEX_ENTITY on SAMPLE.TEXT_INDEX_ENTRY (ENTITY_ID);
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.sample.dao;
+
+import com.expressui.core.dao.GenericDao;
+import com.expressui.core.dao.query.TextIndex;
+import com.expressui.sample.dao.query.ContactQuery;
+import com.expressui.sample.entity.*;
+import com.google.i18n.phonenumbers.NumberParseException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ContactTextIndexTest extends AbstractDomainTest {
+
+    @Resource
+    private GenericDao genericDao;
+
+    @Resource
+    private TextIndex textIndex;
+
+    @Resource
+    private ContactQuery contactQuery;
+
+    @Resource
+    private EntityManager entityManager;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private Country country;
+
+    private Contact contact;
+
+    @Before
+    public void createContact() throws NumberParseException {
+        country = new Country("ZZ", "Text Index Country");
+        genericDao.persist(country);
+
+        contact = new Contact("Text", "Zyxwvu");
+        contact.setMainPhone(new Phone("(704) 555-1212", "US"));
+        contact.setMainPhoneType(PhoneType.BUSINESS);
+        Address address = new Address(AddressType.MAILING);
+        address.setStreet("100 Main St.");
+        address.setCity("Charlotte");
+        address.setCountry(country);
+        contact.setMailingAddress(address);
+        genericDao.persist(contact);
+    }
+
+    @After
+    public void removeContact() {
+        genericDao.remove(contact);
+        genericDao.remove(country);
+    }
+
+    @Test
+    public void indexUpdatedOnWrite() {
+        Assert.assertTrue(textIndex.isIndexed(Contact.class, "lastName"));
+        Assert.assertFalse(textIndex.isIndexed(Contact.class, "firstName"));
+        Assert.assertEquals(TextIndex.toTrigrams("Zyxwvu"), getIndexedTrigrams());
+
+        contact.setLastName("Qrstuv");
+        contact = genericDao.merge(contact);
+        Assert.assertEquals(TextIndex.toTrigrams("Qrstuv"), getIndexedTrigrams());
+    }
+
+    @Test
+    public void rebuild() {
+        removeIndexEntries();
+        Assert.assertTrue(getIndexedTrigrams().isEmpty());
+
+        Assert.assertTrue(textIndex.rebuild(Contact.class) > 0);
+        Assert.assertEquals(TextIndex.toTrigrams("Zyxwvu"), getIndexedTrigrams());
+        Assert.assertTrue(textIndex.isComplete(Contact.class));
+    }
+
+    @Test
+    public void findCandidates() {
+        if (!textIndex.isComplete(Contact.class)) {
+            Assert.assertTrue(findByLastName("xwv"));
+            textIndex.rebuild(Contact.class);
+        }
+        Assert.assertTrue(findByLastName("xwv"));
+        Assert.assertFalse(findByLastName("xwz"));
+
+        removeIndexEntries();
+        Assert.assertFalse(findByLastName("xwv"));
+        Assert.assertTrue(findByLastName("xw"));
+    }
+
+    private boolean findByLastName(String lastName) {
+        contactQuery.setLastName(lastName);
+        List<Contact> contacts = contactQuery.execute();
+        for (Contact foundContact : contacts) {
+            if (foundContact.getId().equals(contact.getId())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Set<String> getIndexedTrigrams() {
+        List<String> trigrams = entityManager.createQuery("SELECT e.trigram FROM TextIndexEntry e"
+                + " WHERE e.entityType = :entityType AND e.entityId = :entityId", String.class)
+                .setParameter("entityType", Contact.class.getName())
+                .setParameter("entityId", contact.getId())
+                .getResultList();
+
+        return new HashSet<String>(trigrams);
+    }
+
+    private void removeIndexEntries() {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                entityManager.createQuery("DELETE FROM TextIndexEntry e"
+                        + " WHERE e.entityType = :entityType AND e.entityId = :entityId")
+                        .setParameter("entityType", Contact.class.getName())
+                        .setParameter("entityId", contact.getId())
+                        .executeUpdate();
+            }
+        });
+    }
+}
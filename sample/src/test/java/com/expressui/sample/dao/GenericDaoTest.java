@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.sample.dao;
+
+import com.expressui.core.dao.GenericDao;
+import com.expressui.core.dao.security.UserDao;
+import com.expressui.core.entity.security.Role;
+import com.expressui.core.entity.security.User;
+import com.expressui.core.entity.security.UserRole;
+import com.expressui.sample.entity.Account;
+import com.expressui.sample.entity.Address;
+import com.expressui.sample.entity.AddressType;
+import com.expressui.sample.entity.Contact;
+import com.expressui.sample.entity.Country;
+import com.expressui.sample.entity.Phone;
+import com.google.i18n.phonenumbers.NumberParseException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import javax.persistence.Cache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class GenericDaoTest extends AbstractDomainTest {
+
+    @Resource
+    private GenericDao genericDao;
+
+    @Resource
+    private UserDao userDao;
+
+    private Country country;
+
+    @Before
+    public void createCountry() {
+        country = new Country("XX", "Test Country");
+        genericDao.persist(country);
+    }
+
+    @Test
+    public void updateParentReference() throws Exception {
+        Contact manager = createContact("Manager");
+        Contact contact = createContact("Employee");
+        genericDao.flush();
+        Integer version = contact.getVersion();
+        Date lastModified = contact.getLastModified();
+        Thread.sleep(10);
+
+        int count = genericDao.updateParentReference(Contact.class, Arrays.asList(contact.getId()), "reportsTo",
+                manager);
+        Assert.assertEquals(1, count);
+
+        Contact updatedContact = genericDao.find(Contact.class, contact.getId());
+        Assert.assertNotSame(contact, updatedContact);
+        Assert.assertEquals(manager.getId(), updatedContact.getReportsTo().getId());
+        Assert.assertEquals(version + 1, updatedContact.getVersion().intValue());
+        Assert.assertTrue(updatedContact.getLastModified().after(lastModified));
+        Assert.assertSame(manager, genericDao.find(Contact.class, manager.getId()));
+    }
+
+    @Test
+    public void removeAllInChunks() {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i <= GenericDao.BULK_CHUNK_SIZE; i++) {
+            Country bulkCountry = new Country("B" + i, "Bulk Country " + i);
+            genericDao.persist(bulkCountry);
+            ids.add(bulkCountry.getId());
+        }
+        genericDao.flush();
+        genericDao.clear();
+
+        int count = genericDao.removeAll(Country.class, ids);
+        genericDao.flush();
+
+        Assert.assertEquals(GenericDao.BULK_CHUNK_SIZE + 1, count);
+        Assert.assertNull(genericDao.find(Country.class, "B0"));
+        Assert.assertNull(genericDao.find(Country.class, "B" + GenericDao.BULK_CHUNK_SIZE));
+    }
+
+    @Test
+    public void removeCompositeKeyEntities() throws NumberParseException {
+        User user = new User("tester", "tester");
+        genericDao.persist(user);
+        Role role = new Role("tester");
+        genericDao.persist(role);
+        UserRole userRole = new UserRole(user, role);
+        genericDao.persist(userRole);
+        Contact contact = createContact("Removed");
+        genericDao.flush();
+
+        genericDao.remove(Arrays.asList(userRole, contact));
+        genericDao.flush();
+
+        Assert.assertNull(genericDao.find(UserRole.class, userRole.getId()));
+        Assert.assertNull(genericDao.find(Contact.class, contact.getId()));
+        Assert.assertNotNull(genericDao.find(User.class, user.getId()));
+    }
+
+    @Test
+    public void removeUserWithAssignedAccount() throws NumberParseException {
+        User user = new User("assignee", "assignee");
+        userDao.persist(user);
+        Account account = new Account();
+        account.setName("Assigned Account");
+        account.setMainPhone(new Phone("(704) 555-1212", "US"));
+        account.getBillingAddress().setStreet("100 Main St.");
+        account.getBillingAddress().setCity("Charlotte");
+        account.getBillingAddress().setCountry(country);
+        account.setAssignedTo(user);
+        genericDao.persist(account);
+        Contact contact = createContact("Assigned");
+        contact.setAssignedTo(user);
+        genericDao.flush();
+
+        userDao.remove(Arrays.asList(user));
+        genericDao.flush();
+        genericDao.clear();
+
+        Assert.assertNull(userDao.find(user.getId()));
+        Assert.assertNull(genericDao.find(Account.class, account.getId()).getAssignedTo());
+        Assert.assertNull(genericDao.find(Contact.class, contact.getId()).getAssignedTo());
+    }
+
+    @Test
+    public void findNonexistent() throws NumberParseException {
+        Contact contact = createContact("Existing");
+        Contact removedContact = createContact("Removed");
+        genericDao.flush();
+        genericDao.remove(removedContact);
+        genericDao.flush();
+        Contact newContact = new Contact("Test", "New");
+        Country missingCountry = new Country("ZZ", "Missing Country");
+
+        List<Object> nonexistent = genericDao.findNonexistent(Arrays.<Object>asList(country, contact, removedContact,
+                newContact, missingCountry));
+
+        Assert.assertEquals(3, nonexistent.size());
+        Assert.assertTrue(nonexistent.contains(removedContact));
+        Assert.assertTrue(nonexistent.contains(newContact));
+        Assert.assertTrue(nonexistent.contains(missingCountry));
+    }
+
+    @Test
+    public void findNonexistentAssumesCachedEntitiesExist() {
+        Cache cache = genericDao.getEntityManager().getEntityManagerFactory().getCache();
+        Country cachedCountry = new Country("ZC", "Cached Country");
+        genericDao.persist(cachedCountry);
+        genericDao.flush();
+        genericDao.clear();
+
+        try {
+            genericDao.find(Country.class, "ZC");
+            Assert.assertTrue(cache.contains(Country.class, "ZC"));
+
+            Assert.assertTrue(genericDao.findNonexistent(Arrays.asList(cachedCountry)).isEmpty());
+        } finally {
+            cache.evict(Country.class, "ZC");
+        }
+    }
+
+    private Contact createContact(String lastName) throws NumberParseException {
+        Contact contact = new Contact("Test", lastName);
+        contact.setMainPhone(new Phone("(704) 555-1212", "US"));
+
+        Address address = new Address(AddressType.MAILING);
+        address.setStreet("100 Main St.");
+        address.setCity("Charlotte");
+        address.setCountry(country);
+        contact.setMailingAddress(address);
+        genericDao.persist(contact);
+
+        return contact;
+    }
+}
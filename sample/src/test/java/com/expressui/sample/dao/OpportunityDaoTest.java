@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2012 Brown Bag Consulting.
+ * This file is part of the ExpressUI project.
+ * Author: Juan Osuna
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License Version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * Brown Bag Consulting, Brown Bag Consulting DISCLAIMS THE WARRANTY OF
+ * NON INFRINGEMENT OF THIRD PARTY RIGHTS.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the ExpressUI software without
+ * disclosing the source code of your own applications. These activities
+ * include: offering paid services to customers as an ASP, providing
+ * services from a web application, shipping ExpressUI with a closed
+ * source product.
+ *
+ * For more information, please contact Brown Bag Consulting at this
+ * address: juan@brownbagconsulting.com.
+ */
+
+package com.expressui.sample.dao;
+
+import com.expressui.core.dao.GenericDao;
+import com.expressui.domain.ecbfx.EcbfxService;
+import com.expressui.sample.entity.Currency;
+import com.expressui.sample.entity.Opportunity;
+import com.expressui.sample.entity.SalesStage;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class OpportunityDaoTest extends AbstractDomainTest {
+
+    @Resource
+    private GenericDao genericDao;
+
+    @Resource
+    private OpportunityDao opportunityDao;
+
+    private Object opportunityDaoTarget;
+
+    private EcbfxService realEcbfxService;
+
+    private EcbfxService ecbfxService;
+
+    private SalesStage salesStage;
+
+    private Currency currency;
+
+    @Before
+    public void mockEcbfxService() throws Exception {
+        opportunityDaoTarget = ((Advised) opportunityDao).getTargetSource().getTarget();
+        realEcbfxService = (EcbfxService) ReflectionTestUtils.getField(opportunityDaoTarget, "ecbfxService");
+        ecbfxService = mock(EcbfxService.class);
+        ReflectionTestUtils.setField(opportunityDaoTarget, "ecbfxService", ecbfxService);
+
+        salesStage = new SalesStage("Test Stage");
+        salesStage.setProbability(.5);
+        genericDao.persist(salesStage);
+        currency = new Currency("XTS", "Test Currency");
+        genericDao.persist(currency);
+    }
+
+    @After
+    public void restoreEcbfxService() {
+        ReflectionTestUtils.setField(opportunityDaoTarget, "ecbfxService", realEcbfxService);
+    }
+
+    @Test
+    public void persistConvertsInOneBatch() {
+        when(ecbfxService.convert(anyList())).thenReturn(Arrays.asList(new BigDecimal(20), new BigDecimal(40)));
+        Opportunity first = createOpportunity("First", 10);
+        Opportunity second = createOpportunity("Second", 20);
+
+        genericDao.persist(Arrays.asList(first, second));
+        genericDao.flush();
+
+        verify(ecbfxService, times(1)).convert(anyList());
+        Assert.assertEquals(new BigDecimal(20), first.getAmountInUSD());
+        Assert.assertEquals(new BigDecimal(10), first.getValueWeightedInUSD());
+        Assert.assertEquals(new BigDecimal(40), second.getAmountInUSD());
+        Assert.assertFalse(first.isUSDAmountsCalculationRequired());
+
+        first.preSave();
+        second.preSave();
+        verify(ecbfxService, times(1)).convert(anyList());
+    }
+
+    @Test
+    public void persistThroughDaoConvertsInOneBatch() {
+        when(ecbfxService.convert(anyList())).thenReturn(Arrays.asList(new BigDecimal(20), new BigDecimal(40)));
+        List<Opportunity> opportunities = Arrays.asList(createOpportunity("First", 10), createOpportunity("Second", 20));
+
+        opportunityDao.persist(opportunities);
+        genericDao.flush();
+
+        verify(ecbfxService, times(1)).convert(anyList());
+        Assert.assertEquals(new BigDecimal(40), opportunities.get(1).getAmountInUSD());
+    }
+
+    @Test
+    public void persistSkipsCalculatedOpportunities() {
+        when(ecbfxService.convert(anyList())).thenReturn(Arrays.asList(new BigDecimal(20)));
+        Opportunity opportunity = createOpportunity("Calculated", 10);
+        genericDao.persist(Arrays.asList(opportunity));
+        genericDao.flush();
+
+        genericDao.persist(Arrays.asList(opportunity));
+
+        verify(ecbfxService, times(1)).convert(anyList());
+        Assert.assertEquals(new BigDecimal(20), opportunity.getAmountInUSD());
+    }
+
+    @Test
+    public void failedConversionClearsUSDAmounts() {
+        when(ecbfxService.convert(anyList())).thenReturn(Arrays.asList(new BigDecimal(20)));
+        Opportunity opportunity = createOpportunity("Failed", 10);
+        genericDao.persist(Arrays.asList(opportunity));
+        genericDao.flush();
+
+        when(ecbfxService.convert(anyList())).thenThrow(new IllegalStateException("rates unavailable"));
+        opportunity.setAmount(30);
+        opportunityDao.calculateUSDAmounts(Arrays.asList(opportunity));
+
+        Assert.assertNull(opportunity.getAmountInUSD());
+        Assert.assertNull(opportunity.getValueWeightedInUSD());
+        Assert.assertTrue(opportunity.isUSDAmountsCalculationRequired());
+    }
+
+    private Opportunity createOpportunity(String name, double amount) {
+        Opportunity opportunity = new Opportunity();
+        ReflectionTestUtils.setField(opportunity, "ecbfxService", ecbfxService);
+        opportunity.setName(name);
+        opportunity.setSalesStage(salesStage);
+        opportunity.setCurrency(currency);
+        opportunity.setAmount(amount);
+
+        return opportunity;
+    }
+}
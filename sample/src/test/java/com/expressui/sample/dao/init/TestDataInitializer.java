@@ -54,9 +54,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 @Service
@@ -90,6 +92,7 @@ public class TestDataInitializer {
 
         int accountCount = count / 10;
         Account currentAccount = null;
+        List<Opportunity> opportunities = new ArrayList<Opportunity>();
         for (Integer contactCount = count; contactCount > 0; contactCount--) {
             Contact contact;
             if (contactCount % 50 == 1) {
@@ -131,16 +134,23 @@ public class TestDataInitializer {
             contact.setDescription("Description of contact");
 
             if (contactCount % 10 == 0) {
-                currentAccount = initializeAccount(accountCount--);
+                currentAccount = initializeAccount(accountCount);
+                opportunities.add(initializeOpportunity(currentAccount, accountCount));
+                accountCount--;
             }
             contact.setAccount(currentAccount);
             genericDao.persist(contact);
 
             if (contactCount % 50 == 0) {
+                // persisting opportunities together converts their amounts into USD in one batch
+                genericDao.persist(opportunities);
+                opportunities.clear();
                 genericDao.flush();
                 genericDao.clear();
             }
         }
+        genericDao.persist(opportunities);
+        genericDao.flush();
     }
 
     public void initializeRoles() {
@@ -288,12 +298,10 @@ public class TestDataInitializer {
         }
         genericDao.persist(account);
 
-        initializeOpportunity(account, i);
-
         return account;
     }
 
-    private void initializeOpportunity(Account account, int i) {
+    private Opportunity initializeOpportunity(Account account, int i) {
         Opportunity opportunity = new Opportunity();
         if (i % 20 == 1) {
             opportunity.setName("Columns and fields resize automatically");
@@ -316,7 +324,7 @@ public class TestDataInitializer {
 
         opportunity.setAmount(ReferenceDataInitializer.random(1, 1000000));
 
-        genericDao.persist(opportunity);
+        return opportunity;
     }
 
     private Address randomAddress(int i) {